@@ -1,6 +1,6 @@
 {pkgs}: {
   deps = [
     pkgs.maven
-    pkgs.jdk
+    pkgs.jdk21
   ];
 }
@@ -0,0 +1,213 @@
+package com.busmanagement.benchmark;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.City;
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.persistence.PersistenceManager;
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryCityRepository;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import com.busmanagement.service.BookingService;
+import com.busmanagement.service.BusService;
+import com.busmanagement.service.FakePaymentGateway;
+import com.busmanagement.service.PaymentProcessor;
+import com.busmanagement.service.PaymentService;
+import com.busmanagement.service.RouteService;
+import com.busmanagement.service.ScheduleSearchCache;
+import com.busmanagement.service.ScheduleService;
+import com.busmanagement.service.SeatHoldService;
+import com.busmanagement.service.SeatInventoryService;
+import com.busmanagement.service.TicketService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Wires the repositories and services by hand (no Spring context) and fills
+ * them with a synthetic network: CITY_COUNT cities, a route for every ordered
+ * city pair, two trips per bus per day over DAYS days, and enough bookings to
+ * reach the requested ticket count at roughly 75% load.
+ *
+ * The repositories keep static or singleton state, so each benchmark must run
+ * in its own fork (the JMH default).
+ */
+final class BenchmarkFixture {
+    static final int CITY_COUNT = 20;
+    static final int DAYS = 30;
+    static final int BUS_CAPACITY = 40;
+    static final int SEATS_SOLD_PER_TRIP = 30;
+    // Bookings queue their payments; setup drains the queue well before it fills
+    static final int PAYMENT_QUEUE_CAPACITY = 1 << 20;
+
+    final InMemoryCityRepository cityRepository;
+    final InMemoryRouteRepository routeRepository;
+    final InMemoryScheduleRepository scheduleRepository;
+    final InMemoryBusRepository busRepository;
+    final InMemoryBookingRepository bookingRepository;
+    final InMemoryTicketRepository ticketRepository;
+    final InMemoryPaymentRepository paymentRepository;
+    final BusService busService;
+    final RouteService routeService;
+    final SeatInventoryService seatInventoryService;
+    final ScheduleService scheduleService;
+    final TicketService ticketService;
+    final FakePaymentGateway paymentGateway;
+    final PaymentProcessor paymentProcessor;
+    final PaymentService paymentService;
+    final BookingService bookingService;
+
+    final List<City> cities = new ArrayList<>();
+    final List<Route> routes = new ArrayList<>();
+    final List<Bus> buses = new ArrayList<>();
+    final List<Schedule> schedules = new ArrayList<>();
+    final LocalDate firstDay = LocalDate.now().plusDays(1);
+    final Random random;
+
+    private BenchmarkFixture(long seed, long gatewayLatencyMillis, int paymentWorkers) {
+        random = new Random(seed);
+        cityRepository = InMemoryCityRepository.getInstance();
+        routeRepository = InMemoryRouteRepository.getInstance();
+        ticketRepository = new InMemoryTicketRepository();
+        bookingRepository = new InMemoryBookingRepository();
+        busRepository = InMemoryBusRepository.getInstance();
+        scheduleRepository = InMemoryScheduleRepository.getInstance();
+
+        busService = new BusService(busRepository);
+        routeService = new RouteService(routeRepository);
+        seatInventoryService = new SeatInventoryService(scheduleRepository, ticketRepository);
+        scheduleService = new ScheduleService(scheduleRepository, busService, routeService, seatInventoryService,
+                new ScheduleSearchCache(scheduleRepository, 1024));
+        ticketService = new TicketService(ticketRepository, seatInventoryService);
+        paymentRepository = new InMemoryPaymentRepository();
+        paymentGateway = new FakePaymentGateway(gatewayLatencyMillis, 0);
+        paymentProcessor = new PaymentProcessor(paymentGateway, paymentRepository,
+                paymentWorkers, PAYMENT_QUEUE_CAPACITY, 5, 200, 10_000);
+        paymentService = new PaymentService(paymentRepository, paymentProcessor);
+        SeatHoldService seatHoldService = new SeatHoldService(seatInventoryService, 600);
+        bookingService = new BookingService(bookingRepository, paymentService, ticketService,
+                seatInventoryService, seatHoldService, scheduleService);
+
+        for (int i = 0; i < CITY_COUNT; i++) {
+            City city = new City();
+            city.setName("City-" + i);
+            city.setState("State-" + (i % 5));
+            cities.add(cityRepository.save(city));
+        }
+        for (City source : cities) {
+            for (City destination : cities) {
+                if (source != destination) {
+                    Route route = new Route();
+                    route.setSource(source);
+                    route.setDestination(destination);
+                    route.setDistance(100 + random.nextInt(900));
+                    route.setDuration(120 + random.nextInt(240));
+                    route.setFareAmount(200.0 + random.nextInt(1500));
+                    routes.add(routeRepository.save(route));
+                }
+            }
+        }
+    }
+
+    // A network carrying ticketCount sold tickets
+    static BenchmarkFixture withTickets(int ticketCount, long seed) {
+        BenchmarkFixture fixture = new BenchmarkFixture(seed, 0, Math.max(4, Runtime.getRuntime().availableProcessors()));
+        int scheduleCount = Math.max(1, (ticketCount + SEATS_SOLD_PER_TRIP - 1) / SEATS_SOLD_PER_TRIP);
+        int busCount = Math.max(1, (scheduleCount + 2 * DAYS - 1) / (2 * DAYS));
+        for (int i = 0; i < busCount; i++) {
+            fixture.addBus();
+        }
+        for (int i = 0; i < scheduleCount; i++) {
+            Bus bus = fixture.buses.get(i % busCount);
+            int slot = i / busCount;
+            LocalDateTime departure = fixture.firstDay.plusDays(slot / 2 % DAYS).atTime(slot % 2 == 0 ? 6 : 14, 0);
+            fixture.addSchedule(bus, departure);
+        }
+        int sold = 0;
+        for (Schedule schedule : fixture.schedules) {
+            for (int seat = 1; seat <= SEATS_SOLD_PER_TRIP && sold < ticketCount; seat++, sold++) {
+                fixture.book(schedule, seat);
+            }
+            if (fixture.paymentProcessor.getInFlightCount() > PAYMENT_QUEUE_CAPACITY / 2) {
+                fixture.awaitPayments();
+            }
+        }
+        fixture.awaitPayments();
+        return fixture;
+    }
+
+    // Cities and routes only, with a payment gateway that takes latencyMillis per call
+    static BenchmarkFixture withGatewayLatency(long latencyMillis, int paymentWorkers, long seed) {
+        return new BenchmarkFixture(seed, latencyMillis, paymentWorkers);
+    }
+
+    // From here on every write is journaled to dataDir and waits for its fsync, as with persistence.enabled
+    PersistenceManager journalTo(Path dataDir) throws IOException {
+        return new PersistenceManager(cityRepository, busRepository, routeRepository, scheduleRepository,
+                bookingRepository, ticketRepository, paymentRepository, InMemoryMaintenanceRepository.getInstance(),
+                true, dataDir.toString(), 64L << 20, true, 200, 3600);
+    }
+
+    Bus addBus() {
+        Bus bus = new Bus();
+        bus.setRegistrationNumber("BENCH-" + (buses.size() + 1));
+        bus.setManufacturer("Volvo");
+        bus.setModel("9700");
+        bus.setCapacity(BUS_CAPACITY);
+        bus.setStatus(Bus.BusStatus.ACTIVE);
+        buses.add(busRepository.save(bus));
+        return bus;
+    }
+
+    // Saved straight to the repository to keep setup fast; the synthetic timetable is conflict-free by construction
+    Schedule addSchedule(Bus bus, LocalDateTime departure) {
+        Route route = routes.get(random.nextInt(routes.size()));
+        Schedule schedule = new Schedule();
+        schedule.setBus(bus);
+        schedule.setRoute(route);
+        schedule.setDepartureTime(departure);
+        schedule.setArrivalTime(departure.plusMinutes(route.getDuration()));
+        schedule.setDriverName("Bench Driver");
+        schedule.setAvailableSeats(bus.getCapacity());
+        schedule.setStatus(Schedule.ScheduleStatus.SCHEDULED.getLabel());
+        schedules.add(scheduleRepository.save(schedule));
+        return schedule;
+    }
+
+    Booking book(Schedule schedule, int seat) {
+        return bookingService.createSingleTicketBooking(schedule, "Passenger " + seat,
+                "passenger" + (seat % 1000) + "@example.com", "9000000000", seat,
+                schedule.getRoute().getFareAmount(), "CARD", null);
+    }
+
+    // Wait until every queued payment has settled, so the bookings are CONFIRMED
+    void awaitPayments() {
+        while (paymentProcessor.getInFlightCount() > 0) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for payments");
+            }
+        }
+    }
+
+    Schedule randomSchedule() {
+        return schedules.get(random.nextInt(schedules.size()));
+    }
+
+    LocalDate randomDay() {
+        return firstDay.plusDays(random.nextInt(DAYS));
+    }
+}
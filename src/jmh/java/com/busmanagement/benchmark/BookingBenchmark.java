@@ -0,0 +1,80 @@
+package com.busmanagement.benchmark;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Schedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking and cancellation are stateful (a seat can be sold once, a booking
+ * cancelled once), so these run as single-shot batches: each iteration gets
+ * BATCH fresh seats or bookings prepared outside the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = BookingBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = BookingBenchmark.BATCH)
+public class BookingBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({ "1000", "100000" })
+    public int ticketCount;
+
+    private BenchmarkFixture fixture;
+    private final List<Schedule> freshSchedules = new ArrayList<>();
+    private final List<Booking> freshBookings = new ArrayList<>();
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = BenchmarkFixture.withTickets(ticketCount, 42);
+    }
+
+    // Empty trips for the booking benchmark and bookings for the cancel benchmark
+    @Setup(Level.Iteration)
+    public void prepareBatch() {
+        freshSchedules.clear();
+        freshBookings.clear();
+        cursor = 0;
+        int tripsNeeded = (BATCH + BenchmarkFixture.BUS_CAPACITY - 1) / BenchmarkFixture.BUS_CAPACITY;
+        for (int i = 0; i < tripsNeeded; i++) {
+            Bus bus = fixture.addBus();
+            freshSchedules.add(fixture.addSchedule(bus, fixture.randomDay().atTime(10, 0)));
+        }
+        for (int i = 0; i < tripsNeeded; i++) {
+            Bus bus = fixture.addBus();
+            Schedule schedule = fixture.addSchedule(bus, fixture.randomDay().atTime(10, 0));
+            for (int seat = 1; seat <= BenchmarkFixture.BUS_CAPACITY && freshBookings.size() < BATCH; seat++) {
+                freshBookings.add(fixture.book(schedule, seat));
+            }
+        }
+        fixture.awaitPayments();
+    }
+
+    @Benchmark
+    public Booking createSingleTicketBooking() {
+        int n = cursor++;
+        Schedule schedule = freshSchedules.get(n / BenchmarkFixture.BUS_CAPACITY);
+        return fixture.book(schedule, n % BenchmarkFixture.BUS_CAPACITY + 1);
+    }
+
+    @Benchmark
+    public Booking cancelBooking() {
+        return fixture.bookingService.cancelBooking(freshBookings.get(cursor++).getId());
+    }
+}
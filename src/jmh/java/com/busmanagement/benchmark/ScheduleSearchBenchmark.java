@@ -0,0 +1,53 @@
+package com.busmanagement.benchmark;
+
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Search-page and schedule-form reads against a populated network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduleSearchBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int ticketCount;
+
+    private BenchmarkFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = BenchmarkFixture.withTickets(ticketCount, 42);
+    }
+
+    @Benchmark
+    public List<Schedule> findSchedulesByRouteAndDate() {
+        Route route = fixture.routes.get(fixture.random.nextInt(fixture.routes.size()));
+        LocalDate day = fixture.randomDay();
+        return fixture.scheduleService.findSchedulesByRouteAndDate(
+                route.getSource().getId(), route.getDestination().getId(), day);
+    }
+
+    @Benchmark
+    public List<Integer> getBookedSeatsByScheduleId() {
+        return fixture.ticketService.getBookedSeatsByScheduleId(fixture.randomSchedule().getId());
+    }
+
+    @Benchmark
+    public Object getAvailableBusesForTimeSlot() {
+        LocalDateTime start = fixture.randomDay().atTime(9, 0);
+        return fixture.scheduleService.getAvailableBusesForTimeSlot(start, start.plusHours(3), null);
+    }
+}
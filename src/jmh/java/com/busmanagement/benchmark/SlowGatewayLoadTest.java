@@ -0,0 +1,211 @@
+package com.busmanagement.benchmark;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.persistence.PersistenceManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Load driver behind docs/virtual-threads.md. Not a JMH benchmark: one run is
+ * seconds long and what matters is throughput and memory under a slow payment
+ * gateway, not nanosecond timings.
+ *
+ * Makes BOOKINGS single-ticket bookings (BookingService.createSingleTicketBooking)
+ * with at most CONCURRENCY in flight, each for its own seat. Persistence is on
+ * with sync-on-write, so every booking waits for the write-ahead log fsync of its
+ * booking, ticket and payment; the charge itself goes through the payment
+ * pipeline (WORKERS threads) to a gateway that sleeps LATENCY_MS per call. Each
+ * booking request runs on an executor the way a request runs on Tomcat:
+ *
+ *   pooled     a fixed pool of POOL_SIZE platform threads (Tomcat's default of 200)
+ *   unbounded  a new platform thread per request
+ *   virtual    a new virtual thread per request (spring.threads.virtual.enabled)
+ *
+ * Reports how fast bookings were accepted, how long until each was confirmed,
+ * and peak heap, live threads and RSS.
+ *
+ *   ./mvnw -Pbenchmarks compile exec:java -Dexec.mainClass=com.busmanagement.benchmark.SlowGatewayLoadTest \
+ *       -Dexec.args="MODE [BOOKINGS=10000] [CONCURRENCY=2000] [LATENCY_MS=500] [POOL_SIZE=200] [WORKERS=200]"
+ */
+public final class SlowGatewayLoadTest {
+    private static final String PAYMENT_ID_PREFIX = "LOAD-";
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "virtual";
+        int bookings = intArg(args, 1, 10_000);
+        int concurrency = intArg(args, 2, 2_000);
+        int latencyMillis = intArg(args, 3, 500);
+        int poolSize = intArg(args, 4, 200);
+        int workers = intArg(args, 5, 200);
+
+        BenchmarkFixture fixture = BenchmarkFixture.withGatewayLatency(latencyMillis, workers, 42);
+        Schedule[] schedules = timetable(fixture, bookings);
+        Path dataDir = Files.createTempDirectory("slow-gateway-load");
+        PersistenceManager persistence = fixture.journalTo(dataDir);
+
+        long[] submittedAt = new long[bookings];
+        long[] requestLatencies = new long[bookings];
+        long[] confirmLatencies = new long[bookings];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch settled = new CountDownLatch(bookings);
+        // Registered after BookingService, so the booking is already CONFIRMED when this runs
+        fixture.paymentProcessor.addListener(payment -> {
+            int n = Integer.parseInt(payment.getPaymentId().substring(PAYMENT_ID_PREFIX.length()));
+            confirmLatencies[n] = System.nanoTime() - submittedAt[n];
+            if (!payment.isCompleted()) {
+                failures.incrementAndGet();
+            }
+            settled.countDown();
+        });
+
+        ExecutorService executor = executorFor(mode, poolSize);
+        MemorySampler sampler = new MemorySampler();
+        sampler.start();
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch accepted = new CountDownLatch(bookings);
+        long started = System.nanoTime();
+        for (int i = 0; i < bookings; i++) {
+            inFlight.acquire();
+            int n = i;
+            submittedAt[n] = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    Schedule schedule = schedules[n / BenchmarkFixture.BUS_CAPACITY];
+                    int seat = n % BenchmarkFixture.BUS_CAPACITY + 1;
+                    fixture.bookingService.createSingleTicketBooking(schedule, "Passenger " + n,
+                            "passenger" + n + "@example.com", "9000000000", seat,
+                            schedule.getRoute().getFareAmount(), "CARD", PAYMENT_ID_PREFIX + n);
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    settled.countDown();
+                } finally {
+                    requestLatencies[n] = System.nanoTime() - submittedAt[n];
+                    inFlight.release();
+                    accepted.countDown();
+                }
+            });
+        }
+        accepted.await();
+        long acceptedNanos = System.nanoTime() - started;
+        settled.await();
+        long settledNanos = System.nanoTime() - started;
+        sampler.interrupt();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        persistence.shutdown();
+        deleteRecursively(dataDir);
+
+        Arrays.sort(requestLatencies);
+        Arrays.sort(confirmLatencies);
+        System.out.printf("mode=%s bookings=%d concurrency=%d latency=%dms pool=%d workers=%d%n",
+                mode, bookings, concurrency, latencyMillis, poolSize, workers);
+        System.out.printf("accepted=%.0f bookings/s in %.1fs, request p50=%dms p99=%dms%n",
+                bookings / (acceptedNanos / 1e9), acceptedNanos / 1e9,
+                millis(requestLatencies, 0.50), millis(requestLatencies, 0.99));
+        System.out.printf("confirmed=%.0f bookings/s in %.1fs, confirmation p50=%dms p99=%dms failures=%d%n",
+                bookings / (settledNanos / 1e9), settledNanos / 1e9,
+                millis(confirmLatencies, 0.50), millis(confirmLatencies, 0.99), failures.get());
+        System.out.printf("peak heap used=%dMB peak live threads=%d peak RSS=%s%n",
+                sampler.peakHeapBytes / (1024 * 1024), sampler.peakThreads, peakRss());
+    }
+
+    // Enough trips for one booking per seat, laid out like BenchmarkFixture.withTickets
+    private static Schedule[] timetable(BenchmarkFixture fixture, int bookings) {
+        int scheduleCount = (bookings + BenchmarkFixture.BUS_CAPACITY - 1) / BenchmarkFixture.BUS_CAPACITY;
+        int busCount = Math.max(1, (scheduleCount + 2 * BenchmarkFixture.DAYS - 1) / (2 * BenchmarkFixture.DAYS));
+        for (int i = 0; i < busCount; i++) {
+            fixture.addBus();
+        }
+        Schedule[] schedules = new Schedule[scheduleCount];
+        for (int i = 0; i < scheduleCount; i++) {
+            Bus bus = fixture.buses.get(i % busCount);
+            int slot = i / busCount;
+            schedules[i] = fixture.addSchedule(bus, fixture.firstDay.plusDays(slot / 2 % BenchmarkFixture.DAYS)
+                    .atTime(slot % 2 == 0 ? 6 : 14, 0));
+        }
+        return schedules;
+    }
+
+    private static ExecutorService executorFor(String mode, int poolSize) {
+        switch (mode) {
+            case "pooled":
+                return Executors.newFixedThreadPool(poolSize);
+            case "unbounded":
+                return Executors.newCachedThreadPool();
+            case "virtual":
+                return Executors.newVirtualThreadPerTaskExecutor();
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode + "; expected pooled, unbounded or virtual");
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private static long millis(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(quantile * sorted.length))] / 1_000_000;
+    }
+
+    // High-water resident set size from the kernel, which counts platform thread stacks
+    private static String peakRss() throws IOException {
+        for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+            if (line.startsWith("VmHWM:")) {
+                long kb = Long.parseLong(line.replaceAll("\\D", ""));
+                return kb / 1024 + "MB";
+            }
+        }
+        return "n/a";
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // Samples heap use and platform thread count; virtual thread stacks live on the heap
+    private static final class MemorySampler extends Thread {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private volatile long peakHeapBytes;
+        private volatile int peakThreads;
+
+        MemorySampler() {
+            super("memory-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+                peakThreads = Math.max(peakThreads, threads.getThreadCount());
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
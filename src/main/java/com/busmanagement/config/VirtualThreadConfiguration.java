@@ -0,0 +1,37 @@
+package com.busmanagement.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual-thread mode, switched on with spring.threads.virtual.enabled=true
+ * (the property Spring Boot 3.2 uses for the same thing, so the setting carries
+ * over on upgrade).
+ *
+ * Tomcat runs every request on a new virtual thread instead of its bounded worker
+ * pool (server.tomcat.threads.max), and async MVC work such as the streaming
+ * exports does too. A booking blocked on the payment gateway then parks its
+ * virtual thread and frees the carrier, instead of holding one of a fixed number
+ * of platform threads. See docs/virtual-threads.md for measurements.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Takes the place of Boot's pooled applicationTaskExecutor, which MVC uses for async requests
+    @Bean(name = { "applicationTaskExecutor", "taskExecutor" })
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -6,16 +6,25 @@ import com.busmanagement.model.Schedule;
 import com.busmanagement.model.Ticket;
 import com.busmanagement.service.BookingService;
 import com.busmanagement.service.CityService;
+import com.busmanagement.service.Journey;
+import com.busmanagement.service.JourneyPlannerService;
 import com.busmanagement.service.ScheduleService;
+import com.busmanagement.service.SeatHold;
+import com.busmanagement.service.SeatHoldService;
+import com.busmanagement.service.SeatMapBroadcaster;
 import com.busmanagement.service.TicketService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import javax.servlet.http.HttpSession;
 import java.beans.PropertyEditorSupport;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -30,17 +39,26 @@ public class BookingController {
     private final ScheduleService scheduleService;
     private final BookingService bookingService;
     private final TicketService ticketService;
+    private final SeatHoldService seatHoldService;
+    private final JourneyPlannerService journeyPlannerService;
+    private final SeatMapBroadcaster seatMapBroadcaster;
 
     @Autowired
     public BookingController(
             CityService cityService,
             ScheduleService scheduleService,
             BookingService bookingService,
-            TicketService ticketService) {
+            TicketService ticketService,
+            SeatHoldService seatHoldService,
+            JourneyPlannerService journeyPlannerService,
+            SeatMapBroadcaster seatMapBroadcaster) {
         this.cityService = cityService;
         this.scheduleService = scheduleService;
         this.bookingService = bookingService;
         this.ticketService = ticketService;
+        this.seatHoldService = seatHoldService;
+        this.journeyPlannerService = journeyPlannerService;
+        this.seatMapBroadcaster = seatMapBroadcaster;
     }
 
     @InitBinder
@@ -80,15 +98,36 @@ public class BookingController {
             @RequestParam Long sourceId,
             @RequestParam Long destinationId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate travelDate,
+            @RequestParam(defaultValue = "1") int seats,
             Model model) {
 
-        List<Schedule> schedules = scheduleService.findSchedulesByRouteAndDate(sourceId, destinationId, travelDate);
+        List<Schedule> schedules = scheduleService.findSchedulesByRouteAndDate(sourceId, destinationId, travelDate,
+                seats);
         model.addAttribute("schedules", schedules);
         model.addAttribute("travelDate", travelDate);
+        model.addAttribute("seats", seats);
+
+        // Itineraries with a change of bus and enough seats on every leg; direct trips are already listed above
+        List<Journey> connections = new ArrayList<>();
+        for (Journey journey : journeyPlannerService.planJourneys(sourceId, destinationId, travelDate)) {
+            if (journey.getTransfers() > 0 && hasSeatsOnEveryLeg(journey, seats)) {
+                connections.add(journey);
+            }
+        }
+        model.addAttribute("connections", connections);
 
         return "booking/results";
     }
 
+    private boolean hasSeatsOnEveryLeg(Journey journey, int seats) {
+        for (Schedule leg : journey.getLegs()) {
+            if (scheduleService.getSeatsLeft(leg) < seats) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // Select seats
     @GetMapping("/select-seat/{scheduleId}")
     public String selectSeat(@PathVariable Long scheduleId, Model model) {
@@ -108,10 +147,21 @@ public class BookingController {
         return "booking/select-seat";
     }
 
+    // Live seat-map changes for the seat selection page, as Server-Sent Events
+    @GetMapping(path = "/select-seat/{scheduleId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> seatStream(@PathVariable Long scheduleId) {
+        if (!scheduleService.getScheduleById(scheduleId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(seatMapBroadcaster.subscribe(scheduleId));
+    }
+
     // Passenger details
     @PostMapping("/passenger-details")
     public String passengerDetails(@RequestParam Long scheduleId,
             @RequestParam int seatNumber,
+            HttpSession session,
             Model model) {
 
         Schedule schedule = scheduleService.getScheduleById(scheduleId)
@@ -121,6 +171,15 @@ public class BookingController {
             return "redirect:/booking/search?error=Schedule not found";
         }
 
+        // Hold the seat while the customer fills in details and pays; a session keeps one hold,
+        // so coming back to this page reuses it and choosing another seat gives the old one up
+        SeatHold hold;
+        try {
+            hold = seatHoldService.placeHold(schedule, seatNumber, session.getId());
+        } catch (IllegalStateException e) {
+            return "redirect:/booking/select-seat/" + scheduleId + "?error=" + e.getMessage();
+        }
+
         // Create a new booking and ticket
         Booking booking = new Booking();
         booking.setSchedule(schedule);
@@ -134,6 +193,8 @@ public class BookingController {
         model.addAttribute("booking", booking);
         model.addAttribute("ticket", ticket);
         model.addAttribute("schedule", schedule);
+        model.addAttribute("holdId", hold.getHoldId());
+        model.addAttribute("holdSeconds", hold.getRemainingSeconds());
 
         return "booking/passenger-details";
     }
@@ -145,6 +206,7 @@ public class BookingController {
             @RequestParam Long scheduleId,
             @RequestParam int seatNumber,
             @RequestParam double fare,
+            @RequestParam(required = false) Long holdId,
             Model model) {
 
         Schedule schedule = scheduleService.getScheduleById(scheduleId)
@@ -172,6 +234,7 @@ public class BookingController {
         model.addAttribute("scheduleId", scheduleId);
         model.addAttribute("seatNumber", seatNumber);
         model.addAttribute("fare", fare);
+        model.addAttribute("holdId", holdId);
 
         return "booking/payment";
     }
@@ -186,6 +249,8 @@ public class BookingController {
             @RequestParam double fare,
             @RequestParam String paymentMethod,
             @RequestParam Long scheduleId,
+            @RequestParam(required = false) Long holdId,
+            HttpSession session,
             RedirectAttributes redirectAttributes) {
 
         try {
@@ -202,9 +267,11 @@ public class BookingController {
                     seatNumber,
                     fare,
                     paymentMethod,
-                    "PAY-" + System.currentTimeMillis());
+                    null, // assigned by the payment gateway
+                    holdId,
+                    session.getId());
 
-            redirectAttributes.addFlashAttribute("success", "Booking confirmed successfully!");
+            redirectAttributes.addFlashAttribute("success", "Booking received! We will confirm it as soon as your payment goes through.");
             return "redirect:/booking/confirmation/" + confirmedBooking.getId();
 
         } catch (Exception e) {
@@ -242,11 +309,12 @@ public class BookingController {
         // Get bookings by email
         List<Booking> bookings = bookingService.getBookingsByPassengerEmail(email);
 
-        // Get all tickets associated with these bookings
-        List<Ticket> tickets = new ArrayList<>();
+        // Get all tickets associated with these bookings in one indexed pass
+        List<Long> bookingIds = new ArrayList<>();
         for (Booking booking : bookings) {
-            tickets.addAll(ticketService.getTicketsByBookingId(booking.getId()));
+            bookingIds.add(booking.getId());
         }
+        List<Ticket> tickets = ticketService.getTicketsByBookingIds(bookingIds);
 
         model.addAttribute("bookings", bookings);
         model.addAttribute("tickets", tickets);
@@ -1,13 +1,13 @@
 package com.busmanagement.controller;
 
 import com.busmanagement.model.Bus;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.service.BusService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 @RequestMapping("/buses")
@@ -61,10 +61,21 @@ public class BusController {
     }
 
     // REST API endpoints for AJAX calls
+    // Answers 304 while no bus has been written since the client's copy
     @GetMapping("/api/all")
     @ResponseBody
-    public List<Bus> getAllBusesApi() {
-        return busService.getAllBuses();
+    public ResponseEntity<?> getAllBusesApi(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (request.checkNotModified(ConditionalGet.versionTag(busService.getModificationCount()))) {
+            return null;
+        }
+        // A plain array unless the client asks for a page
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(busService.getAllBuses());
+        }
+        return ResponseEntity.ok(busService.getBusPage(after, limit != null ? limit : CursorPage.DEFAULT_LIMIT));
     }
 
     @GetMapping("/api/{id}")
@@ -0,0 +1,56 @@
+package com.busmanagement.controller;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validators for conditional GETs on the REST read endpoints, checked with
+ * WebRequest.checkNotModified before anything is loaded or serialized.
+ *
+ * Listings are tagged with the modification counts of every repository whose
+ * entities appear in the JSON. The counts restart at each boot, so the tag
+ * also carries a per-process epoch. Single entities are tagged from their
+ * updatedAt timestamps, which survive restarts and also give Last-Modified.
+ */
+final class ConditionalGet {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() {
+    }
+
+    // Weak tag over repository modification counts
+    static String versionTag(long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(EPOCH);
+        for (long version : versions) {
+            tag.append('-').append(Long.toString(version, 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    // Weak tag over an entity id, its newest timestamp and any in-place state that bypasses updatedAt
+    static String entityTag(Long id, long stampNanos, long... state) {
+        StringBuilder tag = new StringBuilder("W/\"").append(id).append('-').append(Long.toString(stampNanos, 36));
+        for (long value : state) {
+            tag.append('-').append(Long.toString(value, 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    // Newest of the given timestamps in epoch nanoseconds, ignoring nulls; 0 if all are null
+    static long newest(LocalDateTime... timestamps) {
+        long newest = 0;
+        for (LocalDateTime timestamp : timestamps) {
+            if (timestamp != null) {
+                Instant instant = timestamp.atZone(ZoneId.systemDefault()).toInstant();
+                newest = Math.max(newest, instant.getEpochSecond() * 1_000_000_000L + instant.getNano());
+            }
+        }
+        return newest;
+    }
+
+    // Last-Modified value for newest(...): milliseconds, or -1 for none
+    static long lastModified(long stampNanos) {
+        return stampNanos > 0 ? stampNanos / 1_000_000 : -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.busmanagement.controller;
+
+import com.busmanagement.service.ExportFilter;
+import com.busmanagement.service.ExportFormat;
+import com.busmanagement.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Admin exports for finance, streamed as NDJSON or CSV.
+ * e.g. GET /export/payments?format=csv&from=2024-01-01&to=2024-01-31
+ */
+@Controller
+@RequestMapping("/export")
+public class ExportController {
+
+    private final ExportService exportService;
+    private final long timeoutMillis;
+
+    @Autowired
+    public ExportController(ExportService exportService,
+            @Value("${export.timeout-seconds:3600}") long timeoutSeconds) {
+        this.exportService = exportService;
+        this.timeoutMillis = timeoutSeconds * 1000;
+    }
+
+    @GetMapping("/bookings")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long scheduleId,
+            @RequestParam(required = false) String status) {
+        return stream("bookings", format, from, to, scheduleId, status, exportService::exportBookings);
+    }
+
+    @GetMapping("/tickets")
+    public ResponseEntity<StreamingResponseBody> exportTickets(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long scheduleId,
+            @RequestParam(required = false) String status) {
+        return stream("tickets", format, from, to, scheduleId, status, exportService::exportTickets);
+    }
+
+    // status matches the payment's own status (PENDING, COMPLETED or FAILED)
+    @GetMapping("/payments")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long scheduleId,
+            @RequestParam(required = false) String status) {
+        return stream("payments", format, from, to, scheduleId, status, exportService::exportPayments);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, String formatParam, LocalDate from,
+            LocalDate to, Long scheduleId, String status, Exporter exporter) {
+        ExportFormat format;
+        ExportFilter filter;
+        try {
+            format = ExportFormat.fromParam(formatParam);
+            filter = new ExportFilter(from, to, scheduleId, status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Rows are written on an async request thread after this method returns
+        extendAsyncTimeout();
+        StreamingResponseBody body = out -> exporter.export(filter, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "-" + LocalDate.now() + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    // Only exports get the long timeout; other async requests keep the servlet default of 30s
+    private void extendAsyncTimeout() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        AsyncWebRequest asyncRequest = WebAsyncUtils.createAsyncWebRequest(attributes.getRequest(), attributes.getResponse());
+        asyncRequest.setTimeout(timeoutMillis);
+        WebAsyncUtils.getAsyncManager(attributes.getRequest()).setAsyncWebRequest(asyncRequest);
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        void export(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException;
+    }
+}
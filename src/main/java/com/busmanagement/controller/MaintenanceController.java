@@ -2,6 +2,7 @@ package com.busmanagement.controller;
 
 import com.busmanagement.model.Bus;
 import com.busmanagement.model.Maintenance;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.service.BusService;
 import com.busmanagement.service.MaintenanceService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.beans.PropertyEditorSupport;
@@ -223,10 +225,23 @@ public class MaintenanceController {
 
     // REST API endpoints
 
+    // Answers 304 while no maintenance record or bus has been written since the client's copy
     @GetMapping("/api/all")
     @ResponseBody
-    public List<Maintenance> getAllMaintenanceRecordsApi() {
-        return maintenanceService.getAllMaintenanceRecords();
+    public ResponseEntity<?> getAllMaintenanceRecordsApi(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (request.checkNotModified(ConditionalGet.versionTag(
+                maintenanceService.getModificationCount(), busService.getModificationCount()))) {
+            return null;
+        }
+        // A plain array unless the client asks for a page
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(maintenanceService.getAllMaintenanceRecords());
+        }
+        return ResponseEntity.ok(maintenanceService.getMaintenancePage(after,
+                limit != null ? limit : CursorPage.DEFAULT_LIMIT));
     }
 
     @GetMapping("/api/{id}")
@@ -71,8 +71,14 @@ public class PaymentController {
             return ResponseEntity.badRequest().body("Payment not found");
         }
 
+        // The refund is queued for the gateway; the payment comes back INITIATED
         Payment payment = paymentOpt.get();
-        Payment updatedPayment = paymentService.processRefund(payment, amount);
+        Payment updatedPayment;
+        try {
+            updatedPayment = paymentService.processRefund(payment, amount);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
         return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -2,6 +2,7 @@ package com.busmanagement.controller;
 
 import com.busmanagement.model.City;
 import com.busmanagement.model.Route;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.service.CityService;
 import com.busmanagement.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.bind.annotation.InitBinder;
 import java.beans.PropertyEditorSupport;
@@ -129,18 +131,39 @@ public class RouteController {
     }
 
     // REST API Methods
+    // Answers 304 while no route or city has been written since the client's copy
     @GetMapping("/api/all")
     @ResponseBody
-    public ResponseEntity<List<Route>> getAllRoutes() {
-        return ResponseEntity.ok(routeService.getAllRoutes());
+    public ResponseEntity<?> getAllRoutes(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (request.checkNotModified(ConditionalGet.versionTag(
+                routeService.getModificationCount(), cityService.getModificationCount()))) {
+            return null;
+        }
+        // A plain array unless the client asks for a page
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(routeService.getAllRoutes());
+        }
+        return ResponseEntity.ok(routeService.getRoutePage(after, limit != null ? limit : CursorPage.DEFAULT_LIMIT));
     }
 
     @GetMapping("/api/{id}")
     @ResponseBody
-    public ResponseEntity<Route> getRoute(@PathVariable Long id) {
-        return routeService.getRouteById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Route> getRoute(@PathVariable Long id, WebRequest request) {
+        Route route = routeService.getRouteById(id).orElse(null);
+        if (route == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // The JSON carries the route and its two cities, all of which keep updatedAt
+        long stamp = ConditionalGet.newest(route.getUpdatedAt(),
+                route.getSource() != null ? route.getSource().getUpdatedAt() : null,
+                route.getDestination() != null ? route.getDestination().getUpdatedAt() : null);
+        if (request.checkNotModified(ConditionalGet.entityTag(id, stamp), ConditionalGet.lastModified(stamp))) {
+            return null;
+        }
+        return ResponseEntity.ok(route);
     }
 
     @GetMapping("/api/popular")
@@ -3,20 +3,30 @@ package com.busmanagement.controller;
 import com.busmanagement.model.Bus;
 import com.busmanagement.model.Route;
 import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.CursorPage;
+import com.busmanagement.service.BookingService;
 import com.busmanagement.service.BusService;
+import com.busmanagement.service.ImportReport;
 import com.busmanagement.service.RouteService;
+import com.busmanagement.service.ScheduleCancellation;
 import com.busmanagement.service.ScheduleService;
+import com.busmanagement.service.TimetableImportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.beans.PropertyEditorSupport;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 @Controller
 @RequestMapping("/schedules")
@@ -25,12 +35,17 @@ public class ScheduleController {
     private final ScheduleService scheduleService;
     private final BusService busService;
     private final RouteService routeService;
+    private final TimetableImportService timetableImportService;
+    private final BookingService bookingService;
 
     @Autowired
-    public ScheduleController(ScheduleService scheduleService, BusService busService, RouteService routeService) {
+    public ScheduleController(ScheduleService scheduleService, BusService busService, RouteService routeService,
+            TimetableImportService timetableImportService, BookingService bookingService) {
         this.scheduleService = scheduleService;
         this.busService = busService;
         this.routeService = routeService;
+        this.timetableImportService = timetableImportService;
+        this.bookingService = bookingService;
     }
 
     @InitBinder
@@ -66,10 +81,17 @@ public class ScheduleController {
         });
     }
 
-    // List all schedules
+    // List schedules, one keyset page at a time
     @GetMapping
-    public String listSchedules(Model model) {
-        model.addAttribute("schedules", scheduleService.getAllSchedules());
+    public String listSchedules(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit,
+            Model model) {
+        CursorPage<Schedule> page = scheduleService.getSchedulePage(after, limit);
+        model.addAttribute("schedules", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("after", after);
+        model.addAttribute("limit", limit);
         model.addAttribute("pageTitle", "Manage Schedules");
         return "schedule/list";
     }
@@ -78,7 +100,7 @@ public class ScheduleController {
     @GetMapping("/new")
     public String createScheduleForm(Model model) {
         Schedule schedule = new Schedule();
-        schedule.setStatus("Scheduled");
+        schedule.setStatus(Schedule.ScheduleStatus.SCHEDULED.getLabel());
 
         // Set default times
         LocalDateTime departure = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0);
@@ -169,6 +191,21 @@ public class ScheduleController {
         return "redirect:/schedules";
     }
 
+    // Cancel a trip: every booking on it is cancelled and refunded in full
+    @PostMapping("/{id}/cancel")
+    public String cancelSchedule(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        try {
+            ScheduleCancellation result = bookingService.cancelSchedule(id);
+            redirectAttributes.addFlashAttribute("success", String.format(
+                    "Trip cancelled: %d bookings and %d tickets cancelled, %d refunds totalling %.2f queued.",
+                    result.getBookingsCancelled(), result.getTicketsCancelled(),
+                    result.getRefundsQueued(), result.getRefundTotal()));
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+        return "redirect:/schedules";
+    }
+
     // View schedule details
     @GetMapping("/view/{id}")
     public String viewSchedule(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
@@ -185,19 +222,89 @@ public class ScheduleController {
         return "schedule/view";
     }
 
+    // Bulk timetable import form
+    @GetMapping("/import")
+    public String importForm(Model model) {
+        model.addAttribute("pageTitle", "Import Timetable");
+        return "schedule/import";
+    }
+
+    // Bulk timetable import from GTFS-style CSV files; every file is optional
+    @PostMapping("/import")
+    public String importTimetable(
+            @RequestParam(required = false) MultipartFile cities,
+            @RequestParam(required = false) MultipartFile routes,
+            @RequestParam(required = false) MultipartFile buses,
+            @RequestParam(required = false) MultipartFile trips,
+            Model model) {
+        try {
+            model.addAttribute("report", runImport(cities, routes, buses, trips));
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            model.addAttribute("error", "Import failed: " + e.getMessage());
+        }
+        model.addAttribute("pageTitle", "Import Timetable");
+        return "schedule/import";
+    }
+
     // REST API endpoints
     @GetMapping("/api/all")
     @ResponseBody
-    public ResponseEntity<List<Schedule>> getAllSchedules() {
-        return ResponseEntity.ok(scheduleService.getAllSchedules());
+    public ResponseEntity<?> getAllSchedules(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        // A plain array unless the client asks for a page
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(scheduleService.getAllSchedules());
+        }
+        return ResponseEntity.ok(scheduleService.getSchedulePage(after,
+                limit != null ? limit : CursorPage.DEFAULT_LIMIT));
+    }
+
+    @PostMapping("/api/import")
+    @ResponseBody
+    public ResponseEntity<ImportReport> importTimetableApi(
+            @RequestParam(required = false) MultipartFile cities,
+            @RequestParam(required = false) MultipartFile routes,
+            @RequestParam(required = false) MultipartFile buses,
+            @RequestParam(required = false) MultipartFile trips) throws IOException {
+        try {
+            return ResponseEntity.ok(runImport(cities, routes, buses, trips));
+        } catch (IllegalArgumentException e) {
+            // Missing header column or malformed file
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/api/{id}")
     @ResponseBody
-    public ResponseEntity<Schedule> getSchedule(@PathVariable Long id) {
-        return scheduleService.getScheduleById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Schedule> getSchedule(@PathVariable Long id, WebRequest request) {
+        Schedule schedule = scheduleService.getScheduleById(id).orElse(null);
+        if (schedule == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Free seats change without touching updatedAt, and buses carry no timestamp, so both go in
+        // the tag; with part of the JSON untimestamped there is no honest Last-Modified to send.
+        // The status goes in too, so a cancellation changes the tag even within one clock tick.
+        Route route = schedule.getRoute();
+        long stamp = ConditionalGet.newest(schedule.getUpdatedAt(),
+                route != null ? route.getUpdatedAt() : null,
+                route != null && route.getSource() != null ? route.getSource().getUpdatedAt() : null,
+                route != null && route.getDestination() != null ? route.getDestination().getUpdatedAt() : null);
+        if (request.checkNotModified(ConditionalGet.entityTag(id, stamp, schedule.getAvailableSeats(),
+                Objects.hashCode(schedule.getStatus()), busService.getModificationCount()))) {
+            return null;
+        }
+        return ResponseEntity.ok(schedule);
+    }
+
+    @PostMapping("/api/{id}/cancel")
+    @ResponseBody
+    public ResponseEntity<ScheduleCancellation> cancelScheduleApi(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(bookingService.cancelSchedule(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @GetMapping("/api/available-buses")
@@ -209,4 +316,18 @@ public class ScheduleController {
 
         return scheduleService.getAvailableBusesForTimeSlot(start, end, excludeId);
     }
-}
\ No newline at end of file
+
+    private ImportReport runImport(MultipartFile cities, MultipartFile routes, MultipartFile buses,
+            MultipartFile trips) throws IOException {
+        try (InputStream citiesIn = open(cities);
+             InputStream routesIn = open(routes);
+             InputStream busesIn = open(buses);
+             InputStream tripsIn = open(trips)) {
+            return timetableImportService.importTimetable(citiesIn, routesIn, busesIn, tripsIn);
+        }
+    }
+
+    private static InputStream open(MultipartFile file) throws IOException {
+        return file != null && !file.isEmpty() ? file.getInputStream() : null;
+    }
+}
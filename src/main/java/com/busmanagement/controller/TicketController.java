@@ -61,9 +61,7 @@ public class TicketController {
             Optional<Ticket> ticketOpt = ticketService.getTicketById(id);
 
             if (ticketOpt.isPresent()) {
-                Ticket ticket = ticketOpt.get();
-                ticket.setStatus("CANCELLED");
-                ticketService.saveTicket(ticket);
+                Ticket ticket = ticketService.cancelTicket(id);
 
                 // If this is the only ticket, also cancel the booking
                 Long bookingId = ticket.getBooking().getId();
@@ -0,0 +1,142 @@
+package com.busmanagement.metrics;
+
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryCityRepository;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import com.busmanagement.service.PaymentProcessor;
+import com.busmanagement.service.ScheduleSearchCache;
+import com.busmanagement.service.SeatHoldService;
+import com.busmanagement.service.SeatMapBroadcaster;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Attaches Micrometer to the repositories (method timers, index/scan counters)
+ * and registers size gauges. Endpoint latency comes from Spring Boot's own
+ * http.server.requests timer; see the management.* properties.
+ */
+@Component
+public class ApplicationMetricsBinder implements MeterBinder {
+
+    private final InMemoryCityRepository cityRepository;
+    private final InMemoryBusRepository busRepository;
+    private final InMemoryRouteRepository routeRepository;
+    private final InMemoryScheduleRepository scheduleRepository;
+    private final InMemoryBookingRepository bookingRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private final InMemoryPaymentRepository paymentRepository;
+    private final InMemoryMaintenanceRepository maintenanceRepository;
+    private final SeatHoldService seatHoldService;
+    private final SeatMapBroadcaster seatMapBroadcaster;
+    private final PaymentProcessor paymentProcessor;
+    private final ScheduleSearchCache scheduleSearchCache;
+
+    @Autowired
+    public ApplicationMetricsBinder(
+            InMemoryCityRepository cityRepository,
+            InMemoryBusRepository busRepository,
+            InMemoryRouteRepository routeRepository,
+            InMemoryScheduleRepository scheduleRepository,
+            InMemoryBookingRepository bookingRepository,
+            InMemoryTicketRepository ticketRepository,
+            InMemoryPaymentRepository paymentRepository,
+            InMemoryMaintenanceRepository maintenanceRepository,
+            SeatHoldService seatHoldService,
+            SeatMapBroadcaster seatMapBroadcaster,
+            PaymentProcessor paymentProcessor,
+            ScheduleSearchCache scheduleSearchCache) {
+        this.cityRepository = cityRepository;
+        this.busRepository = busRepository;
+        this.routeRepository = routeRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.bookingRepository = bookingRepository;
+        this.ticketRepository = ticketRepository;
+        this.paymentRepository = paymentRepository;
+        this.maintenanceRepository = maintenanceRepository;
+        this.seatHoldService = seatHoldService;
+        this.seatMapBroadcaster = seatMapBroadcaster;
+        this.paymentProcessor = paymentProcessor;
+        this.scheduleSearchCache = scheduleSearchCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cityRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "city"));
+        busRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "bus"));
+        routeRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "route"));
+        scheduleRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "schedule"));
+        bookingRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "booking"));
+        ticketRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "ticket"));
+        paymentRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "payment"));
+        maintenanceRepository.setMetrics(new MicrometerRepositoryMetrics(registry, "maintenance"));
+
+        sizeGauge(registry, "city", cityRepository, InMemoryCityRepository::count);
+        sizeGauge(registry, "bus", busRepository, InMemoryBusRepository::count);
+        sizeGauge(registry, "route", routeRepository, InMemoryRouteRepository::count);
+        sizeGauge(registry, "schedule", scheduleRepository, InMemoryScheduleRepository::count);
+        sizeGauge(registry, "booking", bookingRepository, InMemoryBookingRepository::count);
+        sizeGauge(registry, "ticket", ticketRepository, InMemoryTicketRepository::count);
+        sizeGauge(registry, "payment", paymentRepository, InMemoryPaymentRepository::count);
+        sizeGauge(registry, "maintenance", maintenanceRepository, InMemoryMaintenanceRepository::count);
+
+        Gauge.builder("booking.seat.holds.active", seatHoldService, SeatHoldService::getActiveHoldCount)
+                .description("Seat holds that have not yet expired or been converted")
+                .register(registry);
+        Gauge.builder("booking.seat.stream.subscribers", seatMapBroadcaster, SeatMapBroadcaster::getSubscriberCount)
+                .description("Open seat-map event streams")
+                .register(registry);
+        Gauge.builder("payment.queue.depth", paymentProcessor, PaymentProcessor::getQueueDepth)
+                .description("Charges and refunds waiting for a payment worker")
+                .register(registry);
+        Gauge.builder("payment.in.flight", paymentProcessor, PaymentProcessor::getInFlightCount)
+                .description("Charges and refunds queued, running or waiting to retry")
+                .register(registry);
+        FunctionCounter.builder("payment.retries", paymentProcessor, PaymentProcessor::getRetryCount)
+                .description("Gateway calls sent again after a retryable failure")
+                .register(registry);
+        FunctionCounter.builder("payment.rejected", paymentProcessor, PaymentProcessor::getRejectedCount)
+                .description("Charges refused because the payment queue was full")
+                .register(registry);
+
+        Gauge.builder("schedule.search.cache.size", scheduleSearchCache, ScheduleSearchCache::getSize)
+                .description("Route-day search results held in the cache")
+                .register(registry);
+        FunctionCounter.builder("schedule.search.cache.hits", scheduleSearchCache, ScheduleSearchCache::getHitCount)
+                .description("Schedule searches answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("schedule.search.cache.misses", scheduleSearchCache, ScheduleSearchCache::getMissCount)
+                .description("Schedule searches that had to query the repository")
+                .register(registry);
+        FunctionCounter.builder("schedule.search.cache.evictions", scheduleSearchCache,
+                        ScheduleSearchCache::getEvictionCount)
+                .description("Cached results pushed out to make room for more frequently searched ones")
+                .register(registry);
+        FunctionCounter.builder("schedule.search.cache.rejections", scheduleSearchCache,
+                        ScheduleSearchCache::getRejectionCount)
+                .description("Results not cached because the entry they would replace is searched more often")
+                .register(registry);
+        FunctionCounter.builder("schedule.search.cache.invalidations", scheduleSearchCache,
+                        ScheduleSearchCache::getInvalidationCount)
+                .description("Cached results dropped because a schedule on that route day changed")
+                .register(registry);
+    }
+
+    private static <T> void sizeGauge(MeterRegistry registry, String repository, T instance,
+            ToDoubleFunction<T> size) {
+        Gauge.builder("repository.size", instance, size)
+                .description("Entities held in the repository")
+                .tags("repository", repository)
+                .register(registry);
+    }
+}
@@ -0,0 +1,70 @@
+package com.busmanagement.metrics;
+
+import com.busmanagement.repository.RepositoryMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RepositoryMetrics backed by Micrometer, for one repository. Meters are
+ * registered on the first call of each operation and access kind, and looked
+ * up by the (constant) operation name in that access kind's map afterwards,
+ * so recording allocates nothing.
+ */
+final class MicrometerRepositoryMetrics implements RepositoryMetrics {
+
+    private final MeterRegistry registry;
+    private final String repository;
+    // One timer map per access kind, since an operation can be answered either way; filled up front, read-only after
+    private final Map<Access, Map<String, Timer>> timers = new EnumMap<>(Access.class);
+    private final Counter indexedLookups;
+    private final Counter scans;
+
+    MicrometerRepositoryMetrics(MeterRegistry registry, String repository) {
+        this.registry = registry;
+        this.repository = repository;
+        for (Access access : Access.values()) {
+            timers.put(access, new ConcurrentHashMap<>());
+        }
+        this.indexedLookups = lookupCounter(Access.INDEX);
+        this.scans = lookupCounter(Access.SCAN);
+    }
+
+    @Override
+    public long start() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void record(String operation, Access access, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Map<String, Timer> byOperation = timers.get(access);
+        Timer timer = byOperation.get(operation);
+        if (timer == null) {
+            timer = byOperation.computeIfAbsent(operation, op -> Timer.builder("repository.operations")
+                    .description("Time spent in repository methods")
+                    .tags("repository", repository, "operation", op,
+                            "access", access.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (access == Access.INDEX) {
+            indexedLookups.increment();
+        } else if (access == Access.SCAN) {
+            scans.increment();
+        }
+    }
+
+    private Counter lookupCounter(Access access) {
+        return Counter.builder("repository.lookups")
+                .description("Reads answered from an index versus by scanning every entity")
+                .tags("repository", repository, "access", access.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+}
@@ -13,7 +13,7 @@ public class Booking {
     private String passengerName;
     private String passengerEmail;
     private String passengerPhone;
-    private String status; // CONFIRMED, CANCELLED
+    private String status; // PENDING_PAYMENT, CONFIRMED, CANCELLED
     private LocalDateTime bookingTime;
     private LocalDateTime cancelTime;
     private List<Ticket> tickets = new ArrayList<>();
@@ -29,6 +29,11 @@ public class Booking {
         return "BTP-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
 
+    // Draw a new random reference, e.g. when the generated one is already taken
+    public void regenerateBookingReference() {
+        this.bookingReference = generateBookingReference();
+    }
+
     // Add a ticket to this booking
     public void addTicket(Ticket ticket) {
         if (tickets == null) {
@@ -58,6 +63,10 @@ public class Booking {
         return "CANCELLED".equals(status);
     }
 
+    public boolean isPendingPayment() {
+        return "PENDING_PAYMENT".equals(status);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
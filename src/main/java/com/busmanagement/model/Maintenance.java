@@ -16,10 +16,37 @@ public class Maintenance {
     private String notes;
     private LocalDateTime createdAt;
 
+    // Lifecycle states; the status string holds the constant's name
+    public enum MaintenanceStatus {
+        SCHEDULED, IN_PROGRESS, COMPLETED, CANCELLED;
+
+        // Scheduled jobs can be started, completed or cancelled; jobs in progress can only be completed
+        public boolean canMoveTo(MaintenanceStatus target) {
+            switch (this) {
+                case SCHEDULED:
+                    return target != SCHEDULED;
+                case IN_PROGRESS:
+                    return target == COMPLETED;
+                default:
+                    return false;
+            }
+        }
+
+        // The state a status string names, or null if it names none
+        public static MaintenanceStatus of(String name) {
+            for (MaintenanceStatus status : values()) {
+                if (status.name().equals(name)) {
+                    return status;
+                }
+            }
+            return null;
+        }
+    }
+
     // Constructor
     public Maintenance() {
         this.createdAt = LocalDateTime.now();
-        this.status = "SCHEDULED";
+        this.status = MaintenanceStatus.SCHEDULED.name();
     }
 
     // Getters and Setters
@@ -79,6 +106,11 @@ public class Maintenance {
         this.status = status;
     }
 
+    // The status as a lifecycle state, or null if the string is not one
+    public MaintenanceStatus lifecycleStatus() {
+        return MaintenanceStatus.of(status);
+    }
+
     public String getTechnicianName() {
         return technicianName;
     }
@@ -125,10 +157,10 @@ public class Maintenance {
     }
 
     public boolean isCompleted() {
-        return "COMPLETED".equals(status);
+        return lifecycleStatus() == MaintenanceStatus.COMPLETED;
     }
 
     public boolean isInProgress() {
-        return "IN_PROGRESS".equals(status);
+        return lifecycleStatus() == MaintenanceStatus.IN_PROGRESS;
     }
 }
\ No newline at end of file
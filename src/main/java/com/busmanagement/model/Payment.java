@@ -9,13 +9,16 @@ public class Payment {
     private double amount;
     private String paymentMethod; // CARD, UPI, NET_BANKING, etc.
     private String paymentId;
+    private String status; // PENDING, COMPLETED, FAILED
+    private String failureReason;
     private LocalDateTime paymentTime;
     private double refundAmount;
     private LocalDateTime refundTime;
-    private String refundStatus; // NONE, INITIATED, PROCESSED, COMPLETED
+    private String refundStatus; // NONE, INITIATED, PROCESSED, COMPLETED, FAILED
 
     public Payment() {
         this.paymentTime = LocalDateTime.now();
+        this.status = "PENDING";
         this.refundStatus = "NONE";
     }
 
@@ -27,6 +30,18 @@ public class Payment {
         return refundTime != null ? refundTime.format(DateTimeFormatter.ofPattern("dd MMM yyyy, HH:mm")) : "";
     }
 
+    public boolean isPending() {
+        return "PENDING".equals(status);
+    }
+
+    public boolean isCompleted() {
+        return "COMPLETED".equals(status);
+    }
+
+    public boolean isFailed() {
+        return "FAILED".equals(status);
+    }
+
     public boolean isRefunded() {
         return "COMPLETED".equals(refundStatus);
     }
@@ -76,6 +91,22 @@ public class Payment {
         this.paymentId = paymentId;
     }
 
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
     public LocalDateTime getPaymentTime() {
         return paymentTime;
     }
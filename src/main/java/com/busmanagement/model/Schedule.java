@@ -10,11 +10,41 @@ public class Schedule {
     private String driverName; // Simple string for now
     private LocalDateTime departureTime;
     private LocalDateTime arrivalTime;
-    private int availableSeats;
+    private volatile int availableSeats; // kept in step with the seat inventory
     private String status; // Scheduled, In-Progress, Completed, Cancelled
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Lifecycle states; the status string holds the label, which is what forms and stored data use
+    public enum ScheduleStatus {
+        SCHEDULED("Scheduled"), IN_PROGRESS("In-Progress"), COMPLETED("Completed"), CANCELLED("Cancelled");
+
+        private final String label;
+
+        ScheduleStatus(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        // A trip that still occupies its bus
+        public boolean isActive() {
+            return this == SCHEDULED || this == IN_PROGRESS;
+        }
+
+        // The state a status string names, or null if it names none
+        public static ScheduleStatus of(String label) {
+            for (ScheduleStatus status : values()) {
+                if (status.label.equals(label)) {
+                    return status;
+                }
+            }
+            return null;
+        }
+    }
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -80,6 +110,11 @@ public class Schedule {
         this.status = status;
     }
 
+    // The status as a lifecycle state, or null if the string is not one
+    public ScheduleStatus lifecycleStatus() {
+        return ScheduleStatus.of(status);
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,512 @@
+package com.busmanagement.persistence;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.City;
+import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Payment;
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Ticket;
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryCityRepository;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of repository changes. A record is
+ * [byte op][byte entity tag] followed by the id (delete) or the entity's own
+ * fields (save). References to other entities are written as ids and resolved
+ * against the repositories when the record is applied, which is why records
+ * must be applied in log order.
+ */
+class EntityCodec {
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+
+    private static final byte CITY = 1;
+    private static final byte BUS = 2;
+    private static final byte ROUTE = 3;
+    private static final byte SCHEDULE = 4;
+    private static final byte BOOKING = 5;
+    private static final byte TICKET = 6;
+    private static final byte PAYMENT = 7;
+    private static final byte MAINTENANCE = 8;
+
+    private final InMemoryCityRepository cityRepository;
+    private final InMemoryBusRepository busRepository;
+    private final InMemoryRouteRepository routeRepository;
+    private final InMemoryScheduleRepository scheduleRepository;
+    private final InMemoryBookingRepository bookingRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private final InMemoryPaymentRepository paymentRepository;
+    private final InMemoryMaintenanceRepository maintenanceRepository;
+
+    EntityCodec(InMemoryCityRepository cityRepository,
+            InMemoryBusRepository busRepository,
+            InMemoryRouteRepository routeRepository,
+            InMemoryScheduleRepository scheduleRepository,
+            InMemoryBookingRepository bookingRepository,
+            InMemoryTicketRepository ticketRepository,
+            InMemoryPaymentRepository paymentRepository,
+            InMemoryMaintenanceRepository maintenanceRepository) {
+        this.cityRepository = cityRepository;
+        this.busRepository = busRepository;
+        this.routeRepository = routeRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.bookingRepository = bookingRepository;
+        this.ticketRepository = ticketRepository;
+        this.paymentRepository = paymentRepository;
+        this.maintenanceRepository = maintenanceRepository;
+    }
+
+    byte[] encodeSave(Object entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SAVE);
+            if (entity instanceof City) {
+                out.writeByte(CITY);
+                writeCity(out, (City) entity);
+            } else if (entity instanceof Bus) {
+                out.writeByte(BUS);
+                writeBus(out, (Bus) entity);
+            } else if (entity instanceof Route) {
+                out.writeByte(ROUTE);
+                writeRoute(out, (Route) entity);
+            } else if (entity instanceof Schedule) {
+                out.writeByte(SCHEDULE);
+                writeSchedule(out, (Schedule) entity);
+            } else if (entity instanceof Booking) {
+                out.writeByte(BOOKING);
+                writeBooking(out, (Booking) entity);
+            } else if (entity instanceof Ticket) {
+                out.writeByte(TICKET);
+                writeTicket(out, (Ticket) entity);
+            } else if (entity instanceof Payment) {
+                out.writeByte(PAYMENT);
+                writePayment(out, (Payment) entity);
+            } else if (entity instanceof Maintenance) {
+                out.writeByte(MAINTENANCE);
+                writeMaintenance(out, (Maintenance) entity);
+            } else {
+                throw new IllegalArgumentException("Unsupported entity type: " + entity.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    byte[] encodeDelete(Class<?> entityType, Long id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE);
+            out.writeByte(tagOf(entityType));
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Decode one record and apply it to the repositories without journaling it again
+    void apply(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte op = in.readByte();
+            byte tag = in.readByte();
+            if (op == DELETE) {
+                delete(tag, in.readLong());
+                return;
+            }
+            switch (tag) {
+                case CITY:
+                    cityRepository.restore(readCity(in));
+                    break;
+                case BUS:
+                    busRepository.restore(readBus(in));
+                    break;
+                case ROUTE:
+                    routeRepository.restore(readRoute(in));
+                    break;
+                case SCHEDULE:
+                    scheduleRepository.restore(readSchedule(in));
+                    break;
+                case BOOKING:
+                    bookingRepository.restore(readBooking(in));
+                    break;
+                case TICKET:
+                    ticketRepository.restore(readTicket(in));
+                    break;
+                case PAYMENT:
+                    paymentRepository.restore(readPayment(in));
+                    break;
+                case MAINTENANCE:
+                    maintenanceRepository.restore(readMaintenance(in));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown entity tag in record: " + tag);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(byte tag, long id) {
+        switch (tag) {
+            case CITY:
+                cityRepository.deleteById(id);
+                break;
+            case BUS:
+                busRepository.deleteById(id);
+                break;
+            case ROUTE:
+                routeRepository.deleteById(id);
+                break;
+            case SCHEDULE:
+                scheduleRepository.deleteById(id);
+                break;
+            case BOOKING:
+                bookingRepository.deleteById(id);
+                break;
+            case TICKET:
+                ticketRepository.deleteById(id);
+                break;
+            case PAYMENT:
+                paymentRepository.deleteById(id);
+                break;
+            case MAINTENANCE:
+                maintenanceRepository.deleteById(id);
+                break;
+            default:
+                throw new IllegalStateException("Unknown entity tag in record: " + tag);
+        }
+    }
+
+    private static byte tagOf(Class<?> entityType) {
+        if (entityType == City.class) return CITY;
+        if (entityType == Bus.class) return BUS;
+        if (entityType == Route.class) return ROUTE;
+        if (entityType == Schedule.class) return SCHEDULE;
+        if (entityType == Booking.class) return BOOKING;
+        if (entityType == Ticket.class) return TICKET;
+        if (entityType == Payment.class) return PAYMENT;
+        if (entityType == Maintenance.class) return MAINTENANCE;
+        throw new IllegalArgumentException("Unsupported entity type: " + entityType.getName());
+    }
+
+    // City
+
+    private void writeCity(DataOutputStream out, City city) throws IOException {
+        out.writeLong(city.getId());
+        writeString(out, city.getName());
+        writeString(out, city.getState());
+        writeString(out, city.getDescription());
+        writeDateTime(out, city.getCreatedAt());
+        writeDateTime(out, city.getUpdatedAt());
+    }
+
+    private City readCity(DataInputStream in) throws IOException {
+        City city = new City();
+        city.setId(in.readLong());
+        city.setName(readString(in));
+        city.setState(readString(in));
+        city.setDescription(readString(in));
+        city.setCreatedAt(readDateTime(in));
+        city.setUpdatedAt(readDateTime(in));
+        return city;
+    }
+
+    // Bus
+
+    private void writeBus(DataOutputStream out, Bus bus) throws IOException {
+        out.writeLong(bus.getId());
+        writeString(out, bus.getRegistrationNumber());
+        writeString(out, bus.getManufacturer());
+        writeString(out, bus.getModel());
+        writeInteger(out, bus.getCapacity());
+        writeString(out, bus.getStatus() != null ? bus.getStatus().name() : null);
+        writeDateTime(out, bus.getCreatedAt());
+    }
+
+    private Bus readBus(DataInputStream in) throws IOException {
+        Bus bus = new Bus();
+        bus.setId(in.readLong());
+        bus.setRegistrationNumber(readString(in));
+        bus.setManufacturer(readString(in));
+        bus.setModel(readString(in));
+        bus.setCapacity(readInteger(in));
+        String status = readString(in);
+        bus.setStatus(status != null ? Bus.BusStatus.valueOf(status) : null);
+        bus.setCreatedAt(readDateTime(in));
+        return bus;
+    }
+
+    // Route
+
+    private void writeRoute(DataOutputStream out, Route route) throws IOException {
+        out.writeLong(route.getId());
+        writeId(out, route.getSource() != null ? route.getSource().getId() : null);
+        writeId(out, route.getDestination() != null ? route.getDestination().getId() : null);
+        writeInteger(out, route.getDistance());
+        writeInteger(out, route.getDuration());
+        writeDouble(out, route.getFareAmount());
+        out.writeDouble(route.getRating());
+        writeDateTime(out, route.getCreatedAt());
+        writeDateTime(out, route.getUpdatedAt());
+    }
+
+    private Route readRoute(DataInputStream in) throws IOException {
+        Route route = new Route();
+        route.setId(in.readLong());
+        route.setSource(resolveCity(readId(in)));
+        route.setDestination(resolveCity(readId(in)));
+        route.setDistance(readInteger(in));
+        route.setDuration(readInteger(in));
+        route.setFareAmount(readDouble(in));
+        route.setRating(in.readDouble());
+        route.setCreatedAt(readDateTime(in));
+        route.setUpdatedAt(readDateTime(in));
+        return route;
+    }
+
+    // Schedule
+
+    private void writeSchedule(DataOutputStream out, Schedule schedule) throws IOException {
+        out.writeLong(schedule.getId());
+        writeId(out, schedule.getRoute() != null ? schedule.getRoute().getId() : null);
+        writeId(out, schedule.getBus() != null ? schedule.getBus().getId() : null);
+        writeString(out, schedule.getDriverName());
+        writeDateTime(out, schedule.getDepartureTime());
+        writeDateTime(out, schedule.getArrivalTime());
+        out.writeInt(schedule.getAvailableSeats());
+        writeString(out, schedule.getStatus());
+        writeDateTime(out, schedule.getCreatedAt());
+        writeDateTime(out, schedule.getUpdatedAt());
+    }
+
+    private Schedule readSchedule(DataInputStream in) throws IOException {
+        Schedule schedule = new Schedule();
+        schedule.setId(in.readLong());
+        Long routeId = readId(in);
+        schedule.setRoute(routeId != null ? routeRepository.findById(routeId).orElse(null) : null);
+        Long busId = readId(in);
+        schedule.setBus(busId != null ? busRepository.findById(busId).orElse(null) : null);
+        schedule.setDriverName(readString(in));
+        schedule.setDepartureTime(readDateTime(in));
+        schedule.setArrivalTime(readDateTime(in));
+        schedule.setAvailableSeats(in.readInt());
+        schedule.setStatus(readString(in));
+        schedule.setCreatedAt(readDateTime(in));
+        schedule.setUpdatedAt(readDateTime(in));
+        return schedule;
+    }
+
+    // Booking
+
+    private void writeBooking(DataOutputStream out, Booking booking) throws IOException {
+        out.writeLong(booking.getId());
+        writeString(out, booking.getBookingReference());
+        writeId(out, booking.getSchedule() != null ? booking.getSchedule().getId() : null);
+        writeString(out, booking.getPassengerName());
+        writeString(out, booking.getPassengerEmail());
+        writeString(out, booking.getPassengerPhone());
+        writeString(out, booking.getStatus());
+        writeDateTime(out, booking.getBookingTime());
+        writeDateTime(out, booking.getCancelTime());
+    }
+
+    private Booking readBooking(DataInputStream in) throws IOException {
+        Booking booking = new Booking();
+        booking.setId(in.readLong());
+        booking.setBookingReference(readString(in));
+        Long scheduleId = readId(in);
+        booking.setSchedule(scheduleId != null ? scheduleRepository.findById(scheduleId).orElse(null) : null);
+        booking.setPassengerName(readString(in));
+        booking.setPassengerEmail(readString(in));
+        booking.setPassengerPhone(readString(in));
+        booking.setStatus(readString(in));
+        booking.setBookingTime(readDateTime(in));
+        booking.setCancelTime(readDateTime(in));
+        return booking;
+    }
+
+    // Ticket
+
+    private void writeTicket(DataOutputStream out, Ticket ticket) throws IOException {
+        out.writeLong(ticket.getId());
+        writeId(out, ticket.getBooking() != null ? ticket.getBooking().getId() : null);
+        out.writeInt(ticket.getSeatNumber());
+        out.writeDouble(ticket.getFare());
+        writeString(out, ticket.getStatus());
+    }
+
+    private Ticket readTicket(DataInputStream in) throws IOException {
+        Ticket ticket = new Ticket();
+        ticket.setId(in.readLong());
+        Long bookingId = readId(in);
+        ticket.setBooking(bookingId != null ? bookingRepository.findById(bookingId).orElse(null) : null);
+        ticket.setSeatNumber(in.readInt());
+        ticket.setFare(in.readDouble());
+        ticket.setStatus(readString(in));
+        return ticket;
+    }
+
+    // Payment
+
+    private void writePayment(DataOutputStream out, Payment payment) throws IOException {
+        out.writeLong(payment.getId());
+        writeId(out, payment.getBooking() != null ? payment.getBooking().getId() : null);
+        out.writeDouble(payment.getAmount());
+        writeString(out, payment.getPaymentMethod());
+        writeString(out, payment.getPaymentId());
+        writeDateTime(out, payment.getPaymentTime());
+        out.writeDouble(payment.getRefundAmount());
+        writeDateTime(out, payment.getRefundTime());
+        writeString(out, payment.getRefundStatus());
+        writeString(out, payment.getStatus());
+        writeString(out, payment.getFailureReason());
+    }
+
+    private Payment readPayment(DataInputStream in) throws IOException {
+        Payment payment = new Payment();
+        payment.setId(in.readLong());
+        Long bookingId = readId(in);
+        payment.setBooking(bookingId != null ? bookingRepository.findById(bookingId).orElse(null) : null);
+        payment.setAmount(in.readDouble());
+        payment.setPaymentMethod(readString(in));
+        payment.setPaymentId(readString(in));
+        payment.setPaymentTime(readDateTime(in));
+        payment.setRefundAmount(in.readDouble());
+        payment.setRefundTime(readDateTime(in));
+        payment.setRefundStatus(readString(in));
+        // Records from before payments were processed asynchronously end here; those were all settled inline
+        if (in.available() > 0) {
+            payment.setStatus(readString(in));
+            payment.setFailureReason(readString(in));
+        } else {
+            payment.setStatus("COMPLETED");
+        }
+        return payment;
+    }
+
+    // Maintenance
+
+    private void writeMaintenance(DataOutputStream out, Maintenance maintenance) throws IOException {
+        out.writeLong(maintenance.getId());
+        writeId(out, maintenance.getBus() != null ? maintenance.getBus().getId() : null);
+        writeString(out, maintenance.getMaintenanceType());
+        writeString(out, maintenance.getDescription());
+        writeDateTime(out, maintenance.getScheduledDate());
+        writeDateTime(out, maintenance.getCompletedDate());
+        writeString(out, maintenance.getStatus());
+        writeString(out, maintenance.getTechnicianName());
+        writeDouble(out, maintenance.getCost());
+        writeString(out, maintenance.getNotes());
+        writeDateTime(out, maintenance.getCreatedAt());
+    }
+
+    private Maintenance readMaintenance(DataInputStream in) throws IOException {
+        Maintenance maintenance = new Maintenance();
+        maintenance.setId(in.readLong());
+        Long busId = readId(in);
+        maintenance.setBus(busId != null ? busRepository.findById(busId).orElse(null) : null);
+        maintenance.setMaintenanceType(readString(in));
+        maintenance.setDescription(readString(in));
+        maintenance.setScheduledDate(readDateTime(in));
+        maintenance.setCompletedDate(readDateTime(in));
+        maintenance.setStatus(readString(in));
+        maintenance.setTechnicianName(readString(in));
+        maintenance.setCost(readDouble(in));
+        maintenance.setNotes(readString(in));
+        maintenance.setCreatedAt(readDateTime(in));
+        return maintenance;
+    }
+
+    // Routes keep their own City objects; fall back to an id-only city if it is not in the city repository
+    private City resolveCity(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return cityRepository.findById(id).orElseGet(() -> {
+            City city = new City();
+            city.setId(id);
+            return city;
+        });
+    }
+
+    // Field helpers: a leading presence byte for every nullable value
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeId(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readId(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,314 @@
+package com.busmanagement.persistence;
+
+import com.busmanagement.repository.EntityJournal;
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryCityRepository;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Crash safety for the in-memory repositories without a database. Every
+ * save/delete is appended to a write-ahead log, a snapshot of all
+ * repositories is written periodically, and on startup the latest snapshot
+ * plus the log written after it are replayed before anything else reads the
+ * repositories.
+ *
+ * Snapshots are fuzzy: the log is rolled to a new segment first and the
+ * repositories are copied while writes continue. Records carry whole entity
+ * state, so replaying the segments from the roll onwards converges on the
+ * latest state whichever version the snapshot happened to capture.
+ */
+@Component
+public class PersistenceManager implements EntityJournal {
+    private static final Logger log = LoggerFactory.getLogger(PersistenceManager.class);
+    private static final int SNAPSHOT_MAGIC = 0x42545053; // "BTPS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final InMemoryCityRepository cityRepository;
+    private final InMemoryBusRepository busRepository;
+    private final InMemoryRouteRepository routeRepository;
+    private final InMemoryScheduleRepository scheduleRepository;
+    private final InMemoryBookingRepository bookingRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private final InMemoryPaymentRepository paymentRepository;
+    private final InMemoryMaintenanceRepository maintenanceRepository;
+
+    private final boolean enabled;
+    private final boolean syncOnWrite;
+    private final Path dataDirectory;
+    private final Path walDirectory;
+    private final EntityCodec codec;
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PersistenceManager(InMemoryCityRepository cityRepository,
+            InMemoryBusRepository busRepository,
+            InMemoryRouteRepository routeRepository,
+            InMemoryScheduleRepository scheduleRepository,
+            InMemoryBookingRepository bookingRepository,
+            InMemoryTicketRepository ticketRepository,
+            InMemoryPaymentRepository paymentRepository,
+            InMemoryMaintenanceRepository maintenanceRepository,
+            @Value("${persistence.enabled:false}") boolean enabled,
+            @Value("${persistence.data-dir:data}") String dataDir,
+            @Value("${persistence.wal.segment-size-bytes:67108864}") long segmentSizeBytes,
+            @Value("${persistence.wal.sync-on-write:true}") boolean syncOnWrite,
+            @Value("${persistence.wal.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${persistence.snapshot.interval-seconds:300}") long snapshotIntervalSeconds) throws IOException {
+        this.cityRepository = cityRepository;
+        this.busRepository = busRepository;
+        this.routeRepository = routeRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.bookingRepository = bookingRepository;
+        this.ticketRepository = ticketRepository;
+        this.paymentRepository = paymentRepository;
+        this.maintenanceRepository = maintenanceRepository;
+        this.enabled = enabled;
+        this.syncOnWrite = syncOnWrite;
+        this.dataDirectory = Paths.get(dataDir);
+        this.walDirectory = dataDirectory.resolve("wal");
+        this.codec = new EntityCodec(cityRepository, busRepository, routeRepository, scheduleRepository,
+                bookingRepository, ticketRepository, paymentRepository, maintenanceRepository);
+
+        if (!enabled) {
+            return;
+        }
+
+        recover();
+        this.wal = new WriteAheadLog(walDirectory, segmentSizeBytes);
+        attachJournal(this);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        if (!syncOnWrite) {
+            scheduler.scheduleWithFixedDelay(wal::syncAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long logSave(Object entity) {
+        return wal.append(codec.encodeSave(entity));
+    }
+
+    @Override
+    public long logDelete(Class<?> entityType, Long id) {
+        return wal.append(codec.encodeDelete(entityType, id));
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (syncOnWrite) {
+            wal.sync(position);
+        }
+    }
+
+    /**
+     * Write a snapshot of every repository and drop the log segments it covers.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long firstSegment = wal.roll();
+        Path target = dataDirectory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, firstSegment, SNAPSHOT_SUFFIX));
+        Path temp = dataDirectory.resolve(target.getFileName() + ".tmp");
+
+        long count = 0;
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(firstSegment);
+            // Referenced entities first, so references resolve when loading
+            for (List<?> entities : allEntities()) {
+                for (Object entity : entities) {
+                    byte[] record = codec.encodeSave(entity);
+                    crc.reset();
+                    crc.update(record, 0, record.length);
+                    out.writeInt(record.length);
+                    out.writeInt((int) crc.getValue());
+                    out.write(record);
+                    count++;
+                }
+            }
+            out.writeInt(-1);
+            out.writeLong(count);
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Path older : listSnapshots()) {
+            if (!older.equals(target)) {
+                Files.deleteIfExists(older);
+            }
+        }
+        wal.deleteSegmentsBefore(firstSegment);
+        log.info("Wrote snapshot of {} entities, log kept from segment {}", count, firstSegment);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        scheduler.shutdownNow();
+        attachJournal(EntityJournal.NO_OP);
+        wal.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Snapshot failed, will retry at the next interval", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(dataDirectory);
+        long fromSegment = 0;
+        List<Path> snapshots = listSnapshots();
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            // The snapshot is authoritative: drop the built-in sample data before loading it
+            clearRepositories();
+            fromSegment = loadSnapshot(latest);
+            log.info("Loaded snapshot {}", latest.getFileName());
+        }
+        long replayed;
+        try {
+            replayed = WriteAheadLog.replay(walDirectory, fromSegment, codec::apply);
+        } catch (IOException e) {
+            // Fail startup rather than serve data with writes missing from the middle of the log
+            throw new IOException("Cannot recover from the write-ahead log in " + walDirectory + ": " + e.getMessage(), e);
+        }
+        log.info("Replayed {} log records from segment {}", replayed, fromSegment);
+    }
+
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (InputStream file = Files.newInputStream(snapshot);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a snapshot file: " + snapshot);
+            }
+            long firstSegment = in.readLong();
+            CRC32 crc = new CRC32();
+            long count = 0;
+            while (true) {
+                int length = in.readInt();
+                if (length < 0) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Corrupt record in snapshot " + snapshot);
+                }
+                codec.apply(record);
+                count++;
+            }
+            if (in.readLong() != count) {
+                throw new IOException("Snapshot record count mismatch in " + snapshot);
+            }
+            return firstSegment;
+        } catch (EOFException e) {
+            throw new IOException("Truncated snapshot " + snapshot, e);
+        }
+    }
+
+    private List<List<?>> allEntities() {
+        List<List<?>> all = new ArrayList<>();
+        all.add(cityRepository.findAll());
+        all.add(busRepository.findAll());
+        all.add(routeRepository.findAll());
+        all.add(scheduleRepository.findAll());
+        all.add(bookingRepository.findAll());
+        all.add(ticketRepository.findAll());
+        all.add(paymentRepository.findAll());
+        all.add(maintenanceRepository.findAll());
+        return all;
+    }
+
+    private void clearRepositories() {
+        paymentRepository.findAll().forEach(p -> paymentRepository.deleteById(p.getId()));
+        ticketRepository.findAll().forEach(t -> ticketRepository.deleteById(t.getId()));
+        bookingRepository.findAll().forEach(b -> bookingRepository.deleteById(b.getId()));
+        maintenanceRepository.findAll().forEach(m -> maintenanceRepository.deleteById(m.getId()));
+        scheduleRepository.findAll().forEach(s -> scheduleRepository.deleteById(s.getId()));
+        routeRepository.findAll().forEach(r -> routeRepository.deleteById(r.getId()));
+        busRepository.findAll().forEach(b -> busRepository.deleteById(b.getId()));
+        cityRepository.findAll().forEach(c -> cityRepository.deleteById(c.getId()));
+    }
+
+    private void attachJournal(EntityJournal journal) {
+        cityRepository.setJournal(journal);
+        busRepository.setJournal(journal);
+        routeRepository.setJournal(journal);
+        scheduleRepository.setJournal(journal);
+        bookingRepository.setJournal(journal);
+        ticketRepository.setJournal(journal);
+        paymentRepository.setJournal(journal);
+        maintenanceRepository.setJournal(journal);
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).forEach(snapshots::add);
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+}
@@ -0,0 +1,282 @@
+package com.busmanagement.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, append-only record log. Each record is framed as
+ * [int length][int crc32][payload]. A new segment is started on every open
+ * and whenever the current one grows past the segment size, so a torn write
+ * can only ever sit at the tail of the last segment. Replay cuts it off there
+ * and treats damage anywhere else as corruption.
+ *
+ * Durability uses group commit: append returns a sequence number, and
+ * sync(seq) forces the file once for every record appended so far, so
+ * concurrent writers waiting on overlapping sequence numbers share one fsync.
+ */
+class WriteAheadLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final long segmentSizeBytes;
+    // Locks rather than monitors, so a virtual thread blocked in a file write or waiting out another
+    // writer's fsync unmounts instead of pinning its carrier. appendLock guards the channel and counters.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+
+    private FileChannel channel;
+    private long segmentId;
+    private long segmentBytes;
+    private long appendedSeq;
+    private volatile long durableSeq;
+
+    WriteAheadLog(Path directory, long segmentSizeBytes) throws IOException {
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments(directory);
+        openSegment(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+    }
+
+    long append(byte[] payload) {
+        appendLock.lock();
+        try {
+            if (segmentBytes >= segmentSizeBytes) {
+                rollLocked();
+            }
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            header.clear();
+            header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] { header, body });
+            }
+            segmentBytes += 8 + payload.length;
+            return ++appendedSeq;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Block until the record with this sequence number is on disk
+    void sync(long seq) {
+        while (seq > durableSeq) {
+            forceLock.lock();
+            try {
+                if (seq <= durableSeq) {
+                    return;
+                }
+                long target;
+                FileChannel current;
+                appendLock.lock();
+                try {
+                    target = appendedSeq;
+                    current = channel;
+                } finally {
+                    appendLock.unlock();
+                }
+                try {
+                    current.force(false);
+                    durableSeq = Math.max(durableSeq, target);
+                } catch (ClosedChannelException e) {
+                    // Rolled over meanwhile; the roll forced everything up to this point
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to sync write-ahead log", e);
+                }
+            } finally {
+                forceLock.unlock();
+            }
+        }
+    }
+
+    // Make everything appended so far durable
+    void syncAll() {
+        long target;
+        appendLock.lock();
+        try {
+            target = appendedSeq;
+        } finally {
+            appendLock.unlock();
+        }
+        sync(target);
+    }
+
+    // Start a new segment and return its id; later records go to it or beyond
+    long roll() {
+        appendLock.lock();
+        try {
+            rollLocked();
+            return segmentId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Remove segments wholly covered by a snapshot
+    void deleteSegmentsBefore(long firstKeptSegment) throws IOException {
+        for (Long id : listSegments(directory)) {
+            if (id < firstKeptSegment) {
+                Files.deleteIfExists(segmentPath(directory, id));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            channel.force(false);
+            durableSeq = appendedSeq;
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void rollLocked() throws IOException {
+        channel.force(false);
+        durableSeq = appendedSeq;
+        channel.close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long id) throws IOException {
+        channel = FileChannel.open(segmentPath(directory, id),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentId = id;
+        segmentBytes = 0;
+    }
+
+    /**
+     * Feed every record of the segments numbered fromSegment and above to the
+     * consumer, in order. Only the last segment may end in a torn record, left
+     * by a crash mid-append; it is cut off, so the segment is clean once the
+     * next open starts a new one after it. Anything else unreadable, in an
+     * earlier segment or before the end of the last, is corruption: replay
+     * throws IOException rather than rebuild state from a log with a hole in it.
+     */
+    static long replay(Path directory, long fromSegment, Consumer<byte[]> consumer) throws IOException {
+        long count = 0;
+        List<Long> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            long id = segments.get(i);
+            if (id >= fromSegment) {
+                count += replaySegment(directory, id, i == segments.size() - 1, consumer);
+            }
+        }
+        return count;
+    }
+
+    private static long replaySegment(Path directory, long id, boolean last, Consumer<byte[]> consumer)
+            throws IOException {
+        Path path = segmentPath(directory, id);
+        long count = 0;
+        long position = 0;
+        String tornTail = null;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = in.size();
+            ByteBuffer head = ByteBuffer.allocate(8);
+            CRC32 check = new CRC32();
+            while (position < size) {
+                if (size - position < head.capacity()) {
+                    tornTail = "a torn record header";
+                    break;
+                }
+                head.clear();
+                readFully(in, head);
+                head.flip();
+                int length = head.getInt();
+                int expectedCrc = head.getInt();
+                if (length < 0) {
+                    throw new IOException("Corrupt record header in WAL segment " + id + " at offset " + position);
+                }
+                long end = position + head.capacity() + length;
+                if (end > size) {
+                    tornTail = "a torn record";
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(in, body);
+                check.reset();
+                check.update(body.array(), 0, length);
+                if ((int) check.getValue() != expectedCrc) {
+                    if (end < size) {
+                        throw new IOException("Corrupt record in WAL segment " + id + " at offset " + position
+                                + ", followed by more records");
+                    }
+                    tornTail = "a record with a bad checksum";
+                    break;
+                }
+                consumer.accept(body.array());
+                count++;
+                position = end;
+            }
+        }
+        if (tornTail != null) {
+            if (!last) {
+                throw new IOException("WAL segment " + id + " ends in " + tornTail + " at offset " + position
+                        + " but later segments follow it");
+            }
+            log.warn("WAL segment {} ends in {} at offset {}, left by an interrupted append; cutting it off",
+                    id, tornTail, position);
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(position);
+                out.force(true);
+            }
+        }
+        return count;
+    }
+
+    // Fill the buffer; the caller has checked the segment holds enough bytes
+    private static void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("WAL segment shrank while it was being replayed");
+            }
+        }
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static Path segmentPath(Path directory, long id) {
+        return directory.resolve(String.format("%020d%s", id, SUFFIX));
+    }
+}
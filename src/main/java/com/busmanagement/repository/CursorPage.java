@@ -0,0 +1,53 @@
+package com.busmanagement.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * One page of a keyset-paginated listing, in ascending id order. Pass
+ * nextCursor back as the "after" id to get the following page; it is null on
+ * the last page. Unlike an offset, the cursor stays valid while rows are
+ * added or removed, and fetching a page costs O(limit) whatever the table size.
+ */
+public class CursorPage<T> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final List<T> items;
+    private final Long nextCursor;
+
+    public CursorPage(List<T> items, Long nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    // Take up to limit entries from an id-ordered view that already starts after the cursor
+    static <T> CursorPage<T> of(NavigableMap<Long, T> tail, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<T> items = new ArrayList<>(Math.min(size, tail.size()));
+        Long lastId = null;
+        for (Map.Entry<Long, T> entry : tail.entrySet()) {
+            if (items.size() == size) {
+                return new CursorPage<>(items, lastId);
+            }
+            items.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new CursorPage<>(items, null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isLastPage() {
+        return nextCursor == null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.busmanagement.repository;
+
+/**
+ * Receives every change made through a repository, in the order the changes
+ * were applied. The log* methods are called while the repository holds its
+ * write lock and return a position; awaitDurable is called after the lock is
+ * released, so several writers can share one flush.
+ */
+public interface EntityJournal {
+
+    EntityJournal NO_OP = new EntityJournal() {
+        @Override
+        public long logSave(Object entity) {
+            return 0;
+        }
+
+        @Override
+        public long logDelete(Class<?> entityType, Long id) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    long logSave(Object entity);
+
+    long logDelete(Class<?> entityType, Long id);
+
+    void awaitDurable(long position);
+}
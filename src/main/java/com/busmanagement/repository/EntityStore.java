@@ -0,0 +1,715 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.repository.RepositoryMetrics.Access;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind the in-memory repositories: the id -> entity map, id
+ * assignment, the journal and metrics hooks, and any number of secondary
+ * indexes declared up front. Every save, delete and restore updates the
+ * indexes under the same lock as the primary map, so a finder that goes
+ * through an index sees exactly what findById would.
+ *
+ * Entities are held by reference, as before; what finders return are fresh
+ * lists, and the views handed out (streams, pages) are read-only.
+ */
+final class EntityStore<T> {
+    private final Class<T> type;
+    private final Function<T, Long> idOf;
+    private final BiConsumer<T, Long> assignId;
+    private final Map<Long, T> entities;
+    private final AtomicLong idCounter = new AtomicLong(1);
+    // Held across the journal append, which writes to the log file; a lock rather than a monitor,
+    // so a virtual thread waiting on that write unmounts instead of pinning its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    // Bumped on every write, so derived structures know when to rebuild
+    private final AtomicLong modificationCount = new AtomicLong();
+    private final List<SecondaryIndex<T, ?>> indexes = new ArrayList<>();
+    // Keys each entity was last indexed under, one slot per index, so a re-save can unlink the stale entries
+    private final Map<Long, Object[]> indexedKeys = new ConcurrentHashMap<>();
+    // Last findAllSnapshot result, reused until the next write
+    private volatile Snapshot<T> snapshot;
+    private BiConsumer<? super T, LocalDateTime> onInsert = (entity, now) -> { };
+    private BiConsumer<? super T, LocalDateTime> onSave = (entity, now) -> { };
+    private volatile EntityJournal journal = EntityJournal.NO_OP;
+    private volatile RepositoryMetrics metrics = RepositoryMetrics.NO_OP;
+
+    private EntityStore(Class<T> type, Function<T, Long> idOf, BiConsumer<T, Long> assignId, Map<Long, T> entities) {
+        this.type = type;
+        this.idOf = idOf;
+        this.assignId = assignId;
+        this.entities = entities;
+    }
+
+    // Ordered by id, so listings can be paged with a keyset cursor
+    static <T> EntityStore<T> ordered(Class<T> type, Function<T, Long> idOf, BiConsumer<T, Long> assignId) {
+        return new EntityStore<>(type, idOf, assignId, new ConcurrentSkipListMap<>());
+    }
+
+    // Hashed by id: O(1) findById, no paging
+    static <T> EntityStore<T> hashed(Class<T> type, Function<T, Long> idOf, BiConsumer<T, Long> assignId) {
+        return new EntityStore<>(type, idOf, assignId, new ConcurrentHashMap<>());
+    }
+
+    <I extends SecondaryIndex<T, ?>> I addIndex(I index) {
+        if (!entities.isEmpty()) {
+            throw new IllegalStateException("Indexes must be declared before the first " + type.getSimpleName() + " is stored");
+        }
+        indexes.add(index);
+        return index;
+    }
+
+    <K> UniqueIndex<T, K> uniqueIndex(String name, Function<? super T, ? extends K> key) {
+        return addIndex(new UniqueIndex<>(name, key));
+    }
+
+    <K> MultiIndex<T, K> multiIndex(Function<? super T, ? extends K> key) {
+        return addIndex(new MultiIndex<>(key));
+    }
+
+    <E extends Enum<E>> StateIndex<T, E> stateIndex(Class<E> states, Function<? super T, ? extends E> state) {
+        return addIndex(new StateIndex<>(states, state));
+    }
+
+    <K extends Comparable<? super K>> SortedIndex<T, K> sortedIndex(Function<? super T, ? extends K> key) {
+        return addIndex(new SortedIndex<>(key));
+    }
+
+    // Called for a new entity before its id is assigned, e.g. to set createdAt
+    void onInsert(BiConsumer<? super T, LocalDateTime> onInsert) {
+        this.onInsert = onInsert;
+    }
+
+    // Called for every entity written through save, saveAll, update or updateAll, e.g. to set updatedAt
+    void onSave(BiConsumer<? super T, LocalDateTime> onSave) {
+        this.onSave = onSave;
+    }
+
+    void setJournal(EntityJournal journal) {
+        this.journal = journal;
+    }
+
+    void setMetrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // For repository methods answered outside the store, so they report under the same metrics
+    RepositoryMetrics metrics() {
+        return metrics;
+    }
+
+    int count() {
+        return entities.size();
+    }
+
+    long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    List<T> findAll() {
+        long startNanos = metrics.start();
+        try {
+            return new ArrayList<>(entities.values());
+        } finally {
+            metrics.record("findAll", Access.SCAN, startNanos);
+        }
+    }
+
+    /**
+     * Every entity, as an immutable list shared by all callers until the next
+     * write. For reference data that is read on every page and rarely changes:
+     * repeat calls cost a volatile read instead of a copy of the map.
+     */
+    List<T> findAllSnapshot() {
+        long startNanos = metrics.start();
+        // Read the version before copying: a write racing with the copy leaves it tagged stale, never fresh
+        long version = modificationCount.get();
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version == version) {
+            metrics.record("findAllSnapshot", Access.INDEX, startNanos);
+            return current.items;
+        }
+        try {
+            List<T> items = Collections.unmodifiableList(new ArrayList<>(entities.values()));
+            snapshot = new Snapshot<>(version, items);
+            return items;
+        } finally {
+            metrics.record("findAllSnapshot", Access.SCAN, startNanos);
+        }
+    }
+
+    // Lazy walk for exports: nothing is copied, and writes made during the walk may or may not be seen
+    Stream<T> streamAll() {
+        long startNanos = metrics.start();
+        try {
+            return Collections.unmodifiableCollection(entities.values()).stream();
+        } finally {
+            metrics.record("streamAll", Access.SCAN, startNanos);
+        }
+    }
+
+    // Entities for ids found outside the store's own indexes, in the order given; missing ids are skipped
+    List<T> findByIds(String operation, Collection<Long> ids) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>(ids.size());
+            collect(ids, null, result);
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    Optional<T> findById(Long id) {
+        long startNanos = metrics.start();
+        try {
+            return id != null ? Optional.ofNullable(entities.get(id)) : Optional.empty();
+        } finally {
+            metrics.record("findById", Access.INDEX, startNanos);
+        }
+    }
+
+    // Read part of a stored entity under the store lock, so a change made through update is seen in full; null if absent
+    <R> R read(String operation, Long id, Function<? super T, R> reader) {
+        long startNanos = metrics.start();
+        try {
+            lock.lock();
+            try {
+                T entity = id != null ? entities.get(id) : null;
+                return entity != null ? reader.apply(entity) : null;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // Keyset page: up to limit entities with id greater than afterId (null for the first page)
+    CursorPage<T> findPage(Long afterId, int limit) {
+        long startNanos = metrics.start();
+        try {
+            NavigableMap<Long, T> byId = ordered();
+            return CursorPage.of(afterId == null ? byId : byId.tailMap(afterId, false), limit);
+        } finally {
+            metrics.record("findPage", Access.INDEX, startNanos);
+        }
+    }
+
+    // The first limit entities in id order
+    List<T> findFirst(String operation, int limit) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            for (T entity : ordered().values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(entity);
+            }
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    <K> Optional<T> findFirst(String operation, KeyIndex<T, K> index, K key) {
+        long startNanos = metrics.start();
+        try {
+            return Optional.ofNullable(first(index.ids(key)));
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    <K> List<T> find(String operation, KeyIndex<T, K> index, K key) {
+        return find(operation, index, key, null);
+    }
+
+    // Entities under key that also pass filter (null for all of them), in id order
+    <K> List<T> find(String operation, KeyIndex<T, K> index, K key, Predicate<? super T> filter) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            collect(index.ids(key), filter, result);
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // Entities under any of several keys, in one indexed pass
+    <K> List<T> findEach(String operation, KeyIndex<T, K> index, Collection<K> keys) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            for (K key : keys) {
+                collect(index.ids(key), null, result);
+            }
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // The first entity under each of several keys, skipping keys with none
+    <K> List<T> findFirstEach(String operation, KeyIndex<T, K> index, Collection<K> keys) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            for (K key : keys) {
+                T entity = first(index.ids(key));
+                if (entity != null) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // Lazy walk over the entities under one key
+    <K> Stream<T> stream(String operation, KeyIndex<T, K> index, K key) {
+        long startNanos = metrics.start();
+        try {
+            return index.ids(key).stream().map(entities::get).filter(Objects::nonNull);
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // Range scan over a sorted index, in key order (id order among equal keys)
+    <K extends Comparable<? super K>> List<T> findRange(String operation, SortedIndex<T, K> index,
+            K from, boolean fromInclusive, K to, boolean toInclusive) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            for (NavigableSet<Long> ids : index.range(from, fromInclusive, to, toInclusive)) {
+                collect(ids, null, result);
+            }
+            return result;
+        } finally {
+            metrics.record(operation, Access.INDEX, startNanos);
+        }
+    }
+
+    // For finders no index can answer: a pass over every entity
+    List<T> scan(String operation, Predicate<? super T> filter) {
+        long startNanos = metrics.start();
+        try {
+            List<T> result = new ArrayList<>();
+            for (T entity : entities.values()) {
+                if (filter.test(entity)) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        } finally {
+            metrics.record(operation, Access.SCAN, startNanos);
+        }
+    }
+
+    T save(T entity) {
+        long startNanos = metrics.start();
+        try {
+            long position;
+            lock.lock();
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                boolean created = idOf.apply(entity) == null;
+                if (created) {
+                    onInsert.accept(entity, now);
+                }
+                requireUniqueKeys(entity);
+                position = write(entity, created, now);
+                modificationCount.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            return entity;
+        } finally {
+            metrics.record("save", Access.WRITE, startNanos);
+        }
+    }
+
+    /**
+     * Apply change to the stored entity and save it, all under the store lock, so
+     * a change that checks the entity's state first cannot race another writer.
+     * The change may throw to refuse, before it modifies anything. Returns the
+     * entity, or null if there is none with this id.
+     */
+    T update(Long id, Consumer<? super T> change) {
+        long startNanos = metrics.start();
+        try {
+            T entity;
+            long position;
+            lock.lock();
+            try {
+                entity = id != null ? entities.get(id) : null;
+                if (entity == null) {
+                    return null;
+                }
+                change.accept(entity);
+                requireUniqueKeys(entity);
+                position = write(entity, false, LocalDateTime.now());
+                modificationCount.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            return entity;
+        } finally {
+            metrics.record("update", Access.WRITE, startNanos);
+        }
+    }
+
+    /**
+     * Conditional bulk form of update: under one lock, offer each stored entity
+     * to change, which returns true if it modified the entity. Only those are
+     * saved, and they are returned. An entity two callers race for is changed
+     * by exactly one of them, since the second sees the first one's change.
+     */
+    List<T> updateAll(Collection<Long> ids, Predicate<? super T> change) {
+        long startNanos = metrics.start();
+        try {
+            List<T> changed = new ArrayList<>();
+            long position = 0;
+            lock.lock();
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                for (Long id : ids) {
+                    T entity = id != null ? entities.get(id) : null;
+                    if (entity != null && change.test(entity)) {
+                        position = write(entity, false, now);
+                        changed.add(entity);
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    modificationCount.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+            return changed;
+        } finally {
+            metrics.record("updateAll", Access.WRITE, startNanos);
+        }
+    }
+
+    // Save a batch under one lock, waiting for durability once for all of them
+    void saveAll(List<T> batch) {
+        long startNanos = metrics.start();
+        try {
+            long position = 0;
+            lock.lock();
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                // Every unique key is checked before anything is written, so a bad batch changes nothing
+                boolean[] created = new boolean[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    T entity = batch.get(i);
+                    created[i] = idOf.apply(entity) == null;
+                    if (created[i]) {
+                        onInsert.accept(entity, now);
+                    }
+                    requireUniqueKeys(entity);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    position = write(batch.get(i), created[i], now);
+                }
+                modificationCount.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+        } finally {
+            metrics.record("saveAll", Access.WRITE, startNanos);
+        }
+    }
+
+    void deleteById(Long id) {
+        long startNanos = metrics.start();
+        try {
+            long position;
+            lock.lock();
+            try {
+                entities.remove(id);
+                unindex(id);
+                modificationCount.incrementAndGet();
+                position = journal.logDelete(type, id);
+            } finally {
+                lock.unlock();
+            }
+            journal.awaitDurable(position);
+        } finally {
+            metrics.record("deleteById", Access.WRITE, startNanos);
+        }
+    }
+
+    // Put a recovered entity back as-is, without journaling or touching timestamps
+    void restore(T entity) {
+        lock.lock();
+        try {
+            Long id = idOf.apply(entity);
+            entities.put(id, entity);
+            unindex(id);
+            index(id, entity);
+            modificationCount.incrementAndGet();
+            idCounter.accumulateAndGet(id + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the store lock
+    private long write(T entity, boolean created, LocalDateTime now) {
+        if (created) {
+            assignId.accept(entity, idCounter.getAndIncrement());
+        }
+        onSave.accept(entity, now);
+        Long id = idOf.apply(entity);
+        entities.put(id, entity);
+        unindex(id);
+        index(id, entity);
+        return journal.logSave(entity);
+    }
+
+    private void requireUniqueKeys(T entity) {
+        Long id = idOf.apply(entity);
+        for (SecondaryIndex<T, ?> index : indexes) {
+            if (index instanceof UniqueIndex) {
+                ((UniqueIndex<T, ?>) index).requireAvailable(entity, id);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void index(Long id, T entity) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        Object[] keys = new Object[indexes.size()];
+        for (int i = 0; i < keys.length; i++) {
+            SecondaryIndex<T, Object> index = (SecondaryIndex<T, Object>) indexes.get(i);
+            keys[i] = index.keyOf(entity);
+            if (keys[i] != null) {
+                index.link(keys[i], id, entity);
+            }
+        }
+        indexedKeys.put(id, keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void unindex(Long id) {
+        Object[] keys = indexedKeys.remove(id);
+        if (keys == null) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                ((SecondaryIndex<T, Object>) indexes.get(i)).unlink(keys[i], id);
+            }
+        }
+    }
+
+    private T first(Collection<Long> ids) {
+        for (Long id : ids) {
+            T entity = entities.get(id);
+            if (entity != null) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    private void collect(Collection<Long> ids, Predicate<? super T> filter, List<T> result) {
+        for (Long id : ids) {
+            T entity = entities.get(id);
+            if (entity != null && (filter == null || filter.test(entity))) {
+                result.add(entity);
+            }
+        }
+    }
+
+    private NavigableMap<Long, T> ordered() {
+        if (!(entities instanceof NavigableMap)) {
+            throw new IllegalStateException(type.getSimpleName() + " store is not ordered by id");
+        }
+        return Collections.unmodifiableNavigableMap((NavigableMap<Long, T>) entities);
+    }
+
+    private static final class Snapshot<T> {
+        private final long version;
+        private final List<T> items;
+
+        Snapshot(long version, List<T> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+
+    /**
+     * A structure kept in step with the store. keyOf says where an entity goes
+     * (null to leave it out); link and unlink are called under the store lock,
+     * with the key the entity was last linked under, so in-place edits to an
+     * entity are picked up on its next save.
+     */
+    abstract static class SecondaryIndex<T, K> {
+        private final Function<? super T, ? extends K> keyFunction;
+
+        SecondaryIndex(Function<? super T, ? extends K> keyFunction) {
+            this.keyFunction = keyFunction;
+        }
+
+        final K keyOf(T entity) {
+            return keyFunction.apply(entity);
+        }
+
+        abstract void link(K key, Long id, T entity);
+
+        abstract void unlink(K key, Long id);
+    }
+
+    // An index the store can look entities up in; ids come back in ascending order
+    abstract static class KeyIndex<T, K> extends SecondaryIndex<T, K> {
+        KeyIndex(Function<? super T, ? extends K> keyFunction) {
+            super(keyFunction);
+        }
+
+        abstract Collection<Long> ids(K key);
+    }
+
+    // Hash index where each key names at most one entity; saving a second one under it is refused
+    static final class UniqueIndex<T, K> extends KeyIndex<T, K> {
+        private final String name;
+        private final Map<K, Long> ids = new ConcurrentHashMap<>();
+
+        UniqueIndex(String name, Function<? super T, ? extends K> keyFunction) {
+            super(keyFunction);
+            this.name = name;
+        }
+
+        boolean contains(K key) {
+            return key != null && ids.containsKey(key);
+        }
+
+        @Override
+        Collection<Long> ids(K key) {
+            Long id = key != null ? ids.get(key) : null;
+            return id != null ? Collections.singletonList(id) : Collections.emptyList();
+        }
+
+        @Override
+        void link(K key, Long id, T entity) {
+            ids.put(key, id);
+        }
+
+        @Override
+        void unlink(K key, Long id) {
+            ids.remove(key, id);
+        }
+
+        void requireAvailable(T entity, Long id) {
+            K key = keyOf(entity);
+            Long owner = key != null ? ids.get(key) : null;
+            if (owner != null && !owner.equals(id)) {
+                throw new IllegalStateException("Duplicate " + name + ": " + key);
+            }
+        }
+    }
+
+    // Hash index from a key to every entity under it
+    static class MultiIndex<T, K> extends KeyIndex<T, K> {
+        final Map<K, NavigableSet<Long>> ids;
+
+        MultiIndex(Function<? super T, ? extends K> keyFunction) {
+            this(keyFunction, new ConcurrentHashMap<>());
+        }
+
+        MultiIndex(Function<? super T, ? extends K> keyFunction, Map<K, NavigableSet<Long>> ids) {
+            super(keyFunction);
+            this.ids = ids;
+        }
+
+        @Override
+        Collection<Long> ids(K key) {
+            NavigableSet<Long> found = key != null ? ids.get(key) : null;
+            return found != null ? found : Collections.emptyNavigableSet();
+        }
+
+        @Override
+        void link(K key, Long id, T entity) {
+            ids.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+        }
+
+        @Override
+        void unlink(K key, Long id) {
+            NavigableSet<Long> found = ids.get(key);
+            if (found != null) {
+                found.remove(id);
+                if (found.isEmpty()) {
+                    ids.remove(key);
+                }
+            }
+        }
+    }
+
+    // Multi-value index over an enum: every state gets its id set up front, so links never create or drop one
+    static final class StateIndex<T, E extends Enum<E>> extends MultiIndex<T, E> {
+
+        StateIndex(Class<E> states, Function<? super T, ? extends E> keyFunction) {
+            super(keyFunction, new EnumMap<>(states));
+            for (E state : states.getEnumConstants()) {
+                ids.put(state, new ConcurrentSkipListSet<>());
+            }
+        }
+
+        @Override
+        void link(E key, Long id, T entity) {
+            ids.get(key).add(id);
+        }
+
+        @Override
+        void unlink(E key, Long id) {
+            ids.get(key).remove(id);
+        }
+    }
+
+    // Multi-value index kept in key order, for range scans
+    static final class SortedIndex<T, K extends Comparable<? super K>> extends MultiIndex<T, K> {
+
+        SortedIndex(Function<? super T, ? extends K> keyFunction) {
+            super(keyFunction, new ConcurrentSkipListMap<>());
+        }
+
+        Collection<NavigableSet<Long>> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+            return ((ConcurrentNavigableMap<K, NavigableSet<Long>>) ids)
+                    .subMap(from, fromInclusive, to, toInclusive).values();
+        }
+    }
+}
@@ -1,50 +1,78 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.Booking;
+import com.busmanagement.repository.EntityStore.MultiIndex;
+import com.busmanagement.repository.EntityStore.UniqueIndex;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class InMemoryBookingRepository {
-    private static final Map<Long, Booking> bookings = new ConcurrentHashMap<>();
-    private static final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Booking> store = EntityStore.hashed(Booking.class, Booking::getId, Booking::setId);
+    private final UniqueIndex<Booking, String> referenceIndex =
+            store.uniqueIndex("booking reference", Booking::getBookingReference);
+    private final MultiIndex<Booking, String> emailIndex = store.multiIndex(Booking::getPassengerEmail);
+
+    public InMemoryBookingRepository() {
+        // Short random references collide eventually; a new booking just draws another one
+        store.onInsert((booking, now) -> {
+            while (referenceIndex.contains(booking.getBookingReference())) {
+                booking.regenerateBookingReference();
+            }
+        });
+    }
 
     public List<Booking> findAll() {
-        return new ArrayList<>(bookings.values());
+        return store.findAll();
+    }
+
+    // Lazy walk for exports: nothing is copied, and writes made during the walk may or may not be seen
+    public Stream<Booking> streamAll() {
+        return store.streamAll();
     }
 
     public Optional<Booking> findById(Long id) {
-        return Optional.ofNullable(bookings.get(id));
+        return store.findById(id);
     }
 
     public Optional<Booking> findByBookingReference(String reference) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getBookingReference().equals(reference))
-                .findFirst();
+        return store.findFirst("findByBookingReference", referenceIndex, reference);
     }
 
     public List<Booking> findByPassengerEmail(String email) {
-        return bookings.values().stream()
-                .filter(booking -> booking.getPassengerEmail().equals(email))
-                .collect(Collectors.toList());
+        return store.find("findByPassengerEmail", emailIndex, email);
     }
 
     public Booking save(Booking booking) {
-        if (booking.getId() == null) {
-            booking.setId(idCounter.getAndIncrement());
-        }
-        bookings.put(booking.getId(), booking);
-        return booking;
+        return store.save(booking);
+    }
+
+    // Save a batch under one lock, waiting for durability once for all of them
+    public void saveAll(List<Booking> batch) {
+        store.saveAll(batch);
     }
 
     public void deleteById(Long id) {
-        bookings.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered booking back as-is, without journaling
+    public void restore(Booking booking) {
+        store.restore(booking);
     }
-}
\ No newline at end of file
+}
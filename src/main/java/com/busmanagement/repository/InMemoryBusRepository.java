@@ -1,39 +1,36 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.Bus;
+import com.busmanagement.repository.EntityStore.MultiIndex;
 
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Optional;
 
 public class InMemoryBusRepository {
     private static InMemoryBusRepository instance;
-    private final Map<Long, Bus> buses = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Bus> store = EntityStore.ordered(Bus.class, Bus::getId, Bus::setId);
+    private final MultiIndex<Bus, String> registrationIndex = store.multiIndex(Bus::getRegistrationNumber);
+    private final MultiIndex<Bus, Bus.BusStatus> statusIndex = store.multiIndex(Bus::getStatus);
 
     protected InMemoryBusRepository() {
+        store.onInsert((bus, now) -> bus.setCreatedAt(now));
+
         // Add some sample data
         Bus bus1 = new Bus();
-        bus1.setId(idCounter.getAndIncrement());
         bus1.setRegistrationNumber("BUS-001");
         bus1.setManufacturer("Mercedes");
         bus1.setModel("Sprinter");
         bus1.setCapacity(40);
         bus1.setStatus(Bus.BusStatus.ACTIVE);
-        bus1.setCreatedAt(LocalDateTime.now());
-        buses.put(bus1.getId(), bus1);
+        store.save(bus1);
 
         Bus bus2 = new Bus();
-        bus2.setId(idCounter.getAndIncrement());
         bus2.setRegistrationNumber("BUS-002");
         bus2.setManufacturer("Volvo");
         bus2.setModel("9700");
         bus2.setCapacity(60);
         bus2.setStatus(Bus.BusStatus.ACTIVE);
-        bus2.setCreatedAt(LocalDateTime.now());
-        buses.put(bus2.getId(), bus2);
+        store.save(bus2);
     }
 
     // Singleton getInstance method
@@ -45,35 +42,58 @@ public class InMemoryBusRepository {
     }
 
     public List<Bus> findAll() {
-        return new ArrayList<>(buses.values());
+        return store.findAll();
+    }
+
+    // Immutable list shared by every caller until the next save or delete
+    public List<Bus> findAllSnapshot() {
+        return store.findAllSnapshot();
     }
 
     public Optional<Bus> findById(Long id) {
-        return Optional.ofNullable(buses.get(id));
+        return store.findById(id);
+    }
+
+    // Keyset page: up to limit buses with id greater than afterId (null for the first page)
+    public CursorPage<Bus> findPage(Long afterId, int limit) {
+        return store.findPage(afterId, limit);
     }
 
     public Bus save(Bus bus) {
-        if (bus.getId() == null) {
-            bus.setId(idCounter.getAndIncrement());
-            bus.setCreatedAt(LocalDateTime.now());
-        }
-        buses.put(bus.getId(), bus);
-        return bus;
+        return store.save(bus);
     }
 
     public void deleteById(Long id) {
-        buses.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    // Bumped on every write; a cached view built at one count is current while the count is unchanged
+    public long getModificationCount() {
+        return store.getModificationCount();
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered bus back as-is, without journaling or touching timestamps
+    public void restore(Bus bus) {
+        store.restore(bus);
     }
 
     public Optional<Bus> findByRegistrationNumber(String registrationNumber) {
-        return buses.values().stream()
-                .filter(b -> b.getRegistrationNumber().equals(registrationNumber))
-                .findFirst();
+        return store.findFirst("findByRegistrationNumber", registrationIndex, registrationNumber);
     }
 
     public List<Bus> findByStatus(Bus.BusStatus status) {
-        return buses.values().stream()
-                .filter(b -> b.getStatus() == status)
-                .collect(Collectors.toList());
+        return store.find("findByStatus", statusIndex, status);
     }
-}
\ No newline at end of file
+}
@@ -1,56 +1,48 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.City;
+import com.busmanagement.repository.EntityStore.MultiIndex;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 @Repository
 public class InMemoryCityRepository {
     private static InMemoryCityRepository instance;
-    private final Map<Long, City> cities = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<City> store = EntityStore.ordered(City.class, City::getId, City::setId);
+    // Names match case-insensitively
+    private final MultiIndex<City, String> nameIndex = store.multiIndex(city -> normalize(city.getName()));
 
     protected InMemoryCityRepository() {
+        store.onInsert((city, now) -> city.setCreatedAt(now));
+        store.onSave((city, now) -> city.setUpdatedAt(now));
+
         // Add sample data
         City mumbai = new City();
-        mumbai.setId(idCounter.getAndIncrement());
         mumbai.setName("Mumbai");
         mumbai.setState("Maharashtra");
         mumbai.setDescription("Financial capital of India");
-        mumbai.setCreatedAt(LocalDateTime.now());
-        mumbai.setUpdatedAt(LocalDateTime.now());
-        cities.put(mumbai.getId(), mumbai);
+        store.save(mumbai);
 
         City delhi = new City();
-        delhi.setId(idCounter.getAndIncrement());
         delhi.setName("Delhi");
         delhi.setState("Delhi");
         delhi.setDescription("Capital city of India");
-        delhi.setCreatedAt(LocalDateTime.now());
-        delhi.setUpdatedAt(LocalDateTime.now());
-        cities.put(delhi.getId(), delhi);
+        store.save(delhi);
 
         City bangalore = new City();
-        bangalore.setId(idCounter.getAndIncrement());
         bangalore.setName("Bangalore");
         bangalore.setState("Karnataka");
         bangalore.setDescription("Silicon Valley of India");
-        bangalore.setCreatedAt(LocalDateTime.now());
-        bangalore.setUpdatedAt(LocalDateTime.now());
-        cities.put(bangalore.getId(), bangalore);
+        store.save(bangalore);
 
         City chennai = new City();
-        chennai.setId(idCounter.getAndIncrement());
         chennai.setName("Chennai");
         chennai.setState("Tamil Nadu");
         chennai.setDescription("Gateway to South India");
-        chennai.setCreatedAt(LocalDateTime.now());
-        chennai.setUpdatedAt(LocalDateTime.now());
-        cities.put(chennai.getId(), chennai);
+        store.save(chennai);
     }
 
     // Singleton getInstance method
@@ -62,30 +54,53 @@ public class InMemoryCityRepository {
     }
 
     public List<City> findAll() {
-        return new ArrayList<>(cities.values());
+        return store.findAll();
+    }
+
+    // Immutable list shared by every caller until the next save or delete
+    public List<City> findAllSnapshot() {
+        return store.findAllSnapshot();
     }
 
     public Optional<City> findById(Long id) {
-        return Optional.ofNullable(cities.get(id));
+        return store.findById(id);
     }
 
     public City save(City city) {
-        if (city.getId() == null) {
-            city.setId(idCounter.getAndIncrement());
-            city.setCreatedAt(LocalDateTime.now());
-        }
-        city.setUpdatedAt(LocalDateTime.now());
-        cities.put(city.getId(), city);
-        return city;
+        return store.save(city);
     }
 
     public void deleteById(Long id) {
-        cities.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    // Bumped on every write; a cached view built at one count is current while the count is unchanged
+    public long getModificationCount() {
+        return store.getModificationCount();
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered city back as-is, without journaling or touching timestamps
+    public void restore(City city) {
+        store.restore(city);
     }
 
     public Optional<City> findByName(String name) {
-        return cities.values().stream()
-                .filter(city -> city.getName().equalsIgnoreCase(name))
-                .findFirst();
+        return store.findFirst("findByName", nameIndex, normalize(name));
+    }
+
+    private static String normalize(String name) {
+        return name != null ? name.toLowerCase(Locale.ROOT) : null;
     }
-}
\ No newline at end of file
+}
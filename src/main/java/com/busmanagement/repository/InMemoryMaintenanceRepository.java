@@ -1,23 +1,31 @@
 package com.busmanagement.repository;
 
-import com.busmanagement.model.Bus;
 import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Maintenance.MaintenanceStatus;
+import com.busmanagement.repository.EntityStore.MultiIndex;
+import com.busmanagement.repository.EntityStore.StateIndex;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class InMemoryMaintenanceRepository {
     private static InMemoryMaintenanceRepository instance;
-    private final Map<Long, Maintenance> maintenances = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Maintenance> store =
+            EntityStore.ordered(Maintenance.class, Maintenance::getId, Maintenance::setId);
+    private final MultiIndex<Maintenance, Long> busIndex = store.multiIndex(
+            m -> m.getBus() != null ? m.getBus().getId() : null);
+    private final StateIndex<Maintenance, MaintenanceStatus> statusIndex =
+            store.stateIndex(MaintenanceStatus.class, Maintenance::lifecycleStatus);
+    // Scheduled and in-progress jobs by date, split into upcoming and overdue
+    private final MaintenanceBoard board = store.addIndex(new MaintenanceBoard());
 
     // Constructor
     protected InMemoryMaintenanceRepository() {
+        store.onInsert((maintenance, now) -> maintenance.setCreatedAt(now));
         // Initialize with some sample data
         createSampleMaintenanceData();
     }
@@ -37,70 +45,120 @@ public class InMemoryMaintenanceRepository {
 
     // Find all maintenances
     public List<Maintenance> findAll() {
-        return new ArrayList<>(maintenances.values());
+        return store.findAll();
     }
 
     // Find maintenance by id
     public Optional<Maintenance> findById(Long id) {
-        return Optional.ofNullable(maintenances.get(id));
+        return store.findById(id);
+    }
+
+    // Keyset page: up to limit maintenances with id greater than afterId (null for the first page)
+    public CursorPage<Maintenance> findPage(Long afterId, int limit) {
+        return store.findPage(afterId, limit);
     }
 
     // Save a maintenance record
     public Maintenance save(Maintenance maintenance) {
-        if (maintenance.getId() == null) {
-            maintenance.setId(idCounter.getAndIncrement());
-            maintenance.setCreatedAt(LocalDateTime.now());
-        }
-        maintenances.put(maintenance.getId(), maintenance);
-        return maintenance;
+        return store.save(maintenance);
     }
 
     // Delete a maintenance record
     public void deleteById(Long id) {
-        maintenances.remove(id);
+        store.deleteById(id);
+    }
+
+    /**
+     * Move a job to another lifecycle state, applying change alongside, under the
+     * write lock: of two racing transitions only one sees the state it expects.
+     * Throws IllegalArgumentException for an unknown id and IllegalStateException
+     * if the job's current state does not allow the move.
+     */
+    public Maintenance transition(Long id, MaintenanceStatus target, Consumer<Maintenance> change) {
+        Maintenance updated = store.update(id, maintenance -> {
+            MaintenanceStatus current = maintenance.lifecycleStatus();
+            if (current == null || !current.canMoveTo(target)) {
+                throw new IllegalStateException("Maintenance " + id + " is " + maintenance.getStatus()
+                        + " and cannot become " + target);
+            }
+            maintenance.setStatus(target.name());
+            change.accept(maintenance);
+        });
+        if (updated == null) {
+            throw new IllegalArgumentException("Invalid maintenance ID: " + id);
+        }
+        return updated;
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    // Bumped on every write; a cached view built at one count is current while the count is unchanged
+    public long getModificationCount() {
+        return store.getModificationCount();
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered maintenance back as-is, without journaling or touching timestamps
+    public void restore(Maintenance maintenance) {
+        store.restore(maintenance);
     }
 
     // Find by bus id
     public List<Maintenance> findByBusId(Long busId) {
-        return maintenances.values().stream()
-                .filter(m -> m.getBus() != null && m.getBus().getId().equals(busId))
-                .collect(Collectors.toList());
+        return store.find("findByBusId", busIndex, busId);
     }
 
-    // Find scheduled maintenances
+    // Find scheduled maintenances, earliest date first
     public List<Maintenance> findScheduled() {
-        return maintenances.values().stream()
-                .filter(m -> "SCHEDULED".equals(m.getStatus()))
-                .collect(Collectors.toList());
+        return board.scheduled();
     }
 
-    // Find in-progress maintenances
+    // Find in-progress maintenances, earliest date first
     public List<Maintenance> findInProgress() {
-        return maintenances.values().stream()
-                .filter(m -> "IN_PROGRESS".equals(m.getStatus()))
-                .collect(Collectors.toList());
+        return board.inProgress();
     }
 
     // Find completed maintenances
     public List<Maintenance> findCompleted() {
-        return maintenances.values().stream()
-                .filter(m -> "COMPLETED".equals(m.getStatus()))
-                .collect(Collectors.toList());
+        return findByStatus(MaintenanceStatus.COMPLETED);
+    }
+
+    // Every job in one lifecycle state, in id order
+    public List<Maintenance> findByStatus(MaintenanceStatus status) {
+        return store.find("findByStatus", statusIndex, status);
     }
 
-    // Find upcoming scheduled maintenance (future dates)
+    // Find upcoming scheduled maintenance (date not yet reached), earliest first
     public List<Maintenance> findUpcoming() {
-        LocalDateTime now = LocalDateTime.now();
-        return maintenances.values().stream()
-                .filter(m -> "SCHEDULED".equals(m.getStatus()) && m.getScheduledDate().isAfter(now))
-                .collect(Collectors.toList());
+        return board.upcoming();
     }
 
-    // Find overdue maintenance
+    // Find overdue maintenance; a job moves here when promoteOverdue runs at or after its date
     public List<Maintenance> findOverdue() {
-        LocalDateTime now = LocalDateTime.now();
-        return maintenances.values().stream()
-                .filter(m -> "SCHEDULED".equals(m.getStatus()) && m.getScheduledDate().isBefore(now))
-                .collect(Collectors.toList());
+        return board.overdue();
+    }
+
+    // Move upcoming jobs whose date has come to overdue; returns the jobs moved
+    public List<Maintenance> promoteOverdue(LocalDateTime now) {
+        return board.promoteDue(now);
+    }
+
+    // Date of the next upcoming job to fall due, or null if there is none
+    public LocalDateTime nextDeadline() {
+        return board.nextDeadline();
+    }
+
+    // Told the date of each job saved as upcoming; called under the write lock, so it must be quick
+    public void setDeadlineListener(Consumer<LocalDateTime> listener) {
+        board.setDeadlineListener(listener);
     }
-}
\ No newline at end of file
+}
@@ -1,49 +1,97 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.Payment;
+import com.busmanagement.repository.EntityStore.MultiIndex;
+import com.busmanagement.repository.EntityStore.UniqueIndex;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Repository
 public class InMemoryPaymentRepository {
-    private static final Map<Long, Payment> payments = new ConcurrentHashMap<>();
-    private static final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Payment> store = EntityStore.hashed(Payment.class, Payment::getId, Payment::setId);
+    // A gateway payment id names one payment
+    private final UniqueIndex<Payment, String> paymentIdIndex = store.uniqueIndex("payment id", Payment::getPaymentId);
+    private final MultiIndex<Payment, Long> bookingIndex = store.multiIndex(
+            payment -> payment.getBooking() != null ? payment.getBooking().getId() : null);
 
     public List<Payment> findAll() {
-        return new ArrayList<>(payments.values());
+        return store.findAll();
+    }
+
+    // Lazy walk for exports: nothing is copied, and writes made during the walk may or may not be seen
+    public Stream<Payment> streamAll() {
+        return store.streamAll();
     }
 
     public Optional<Payment> findById(Long id) {
-        return Optional.ofNullable(payments.get(id));
+        return store.findById(id);
     }
 
     public Optional<Payment> findByBookingId(Long bookingId) {
-        return payments.values().stream()
-                .filter(payment -> payment.getBooking() != null && payment.getBooking().getId().equals(bookingId))
-                .findFirst();
+        return store.findFirst("findByBookingId", bookingIndex, bookingId);
+    }
+
+    // The first payment of each of several bookings, in one indexed pass
+    public List<Payment> findByBookingIds(Collection<Long> bookingIds) {
+        return store.findFirstEach("findByBookingIds", bookingIndex, bookingIds);
     }
 
     public Optional<Payment> findByPaymentId(String paymentId) {
-        return payments.values().stream()
-                .filter(payment -> payment.getPaymentId().equals(paymentId))
-                .findFirst();
+        return store.findFirst("findByPaymentId", paymentIdIndex, paymentId);
     }
 
     public Payment save(Payment payment) {
-        if (payment.getId() == null) {
-            payment.setId(idCounter.getAndIncrement());
+        return store.save(payment);
+    }
+
+    // Save a batch under one lock, waiting for durability once for all of them
+    public void saveAll(List<Payment> batch) {
+        store.saveAll(batch);
+    }
+
+    /**
+     * Apply change to a stored payment and save it under the write lock, so a
+     * refund recorded by a request and a charge settled by a payment worker
+     * never overwrite each other. The change may throw to refuse. Throws
+     * IllegalArgumentException for an unknown id.
+     */
+    public Payment update(Long id, Consumer<Payment> change) {
+        Payment updated = store.update(id, change);
+        if (updated == null) {
+            throw new IllegalArgumentException("Payment not found with ID: " + id);
         }
-        payments.put(payment.getId(), payment);
-        return payment;
+        return updated;
+    }
+
+    // Bulk form of update under one lock: change returns true for the payments it modified, which are saved and returned
+    public List<Payment> updateAll(Collection<Long> ids, Predicate<Payment> change) {
+        return store.updateAll(ids, change);
     }
 
     public void deleteById(Long id) {
-        payments.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered payment back as-is, without journaling or touching timestamps
+    public void restore(Payment payment) {
+        store.restore(payment);
     }
-}
\ No newline at end of file
+}
@@ -2,23 +2,25 @@ package com.busmanagement.repository;
 
 import com.busmanagement.model.City;
 import com.busmanagement.model.Route;
+import com.busmanagement.repository.EntityStore.MultiIndex;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public class InMemoryRouteRepository {
     private static InMemoryRouteRepository instance;
-    private final Map<Long, Route> routes = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Route> store = EntityStore.ordered(Route.class, Route::getId, Route::setId);
+    private final MultiIndex<Route, Long> sourceIndex = store.multiIndex(
+            route -> route.getSource() != null ? route.getSource().getId() : null);
 
     // Change from private to protected constructor to allow Spring to create
     // proxies
     protected InMemoryRouteRepository() {
+        store.onInsert((route, now) -> route.setCreatedAt(now));
+        store.onSave((route, now) -> route.setUpdatedAt(now));
+
         // Add sample data
         City mumbai = new City();
         mumbai.setId(1L);
@@ -40,26 +42,20 @@ public class InMemoryRouteRepository {
 
         // Create sample routes
         Route route1 = new Route();
-        route1.setId(idCounter.getAndIncrement());
         route1.setSource(mumbai);
         route1.setDestination(delhi);
         route1.setDistance(1400);
         route1.setDuration(120); // 2 hours in minutes
         route1.setFareAmount(1200.0);
-        route1.setCreatedAt(LocalDateTime.now());
-        route1.setUpdatedAt(LocalDateTime.now());
-        routes.put(route1.getId(), route1);
+        store.save(route1);
 
         Route route2 = new Route();
-        route2.setId(idCounter.getAndIncrement());
         route2.setSource(delhi);
         route2.setDestination(bangalore);
         route2.setDistance(2100);
         route2.setDuration(180); // 3 hours in minutes
         route2.setFareAmount(1800.0);
-        route2.setCreatedAt(LocalDateTime.now());
-        route2.setUpdatedAt(LocalDateTime.now());
-        routes.put(route2.getId(), route2);
+        store.save(route2);
     }
 
     // Singleton getInstance method
@@ -72,38 +68,60 @@ public class InMemoryRouteRepository {
 
     // Repository methods
     public List<Route> findAll() {
-        return new ArrayList<>(routes.values());
+        return store.findAll();
+    }
+
+    // Immutable list shared by every caller until the next save or delete
+    public List<Route> findAllSnapshot() {
+        return store.findAllSnapshot();
     }
 
     public Optional<Route> findById(Long id) {
-        return Optional.ofNullable(routes.get(id));
+        return store.findById(id);
+    }
+
+    // Keyset page: up to limit routes with id greater than afterId (null for the first page)
+    public CursorPage<Route> findPage(Long afterId, int limit) {
+        return store.findPage(afterId, limit);
     }
 
     public Route save(Route route) {
-        if (route.getId() == null) {
-            route.setId(idCounter.getAndIncrement());
-            route.setCreatedAt(LocalDateTime.now());
-        }
-        route.setUpdatedAt(LocalDateTime.now());
-        routes.put(route.getId(), route);
-        return route;
+        return store.save(route);
     }
 
     public void deleteById(Long id) {
-        routes.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    // Bumped on every write; a cached view built at one count is current while the count is unchanged
+    public long getModificationCount() {
+        return store.getModificationCount();
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered route back as-is, without journaling or touching timestamps
+    public void restore(Route route) {
+        store.restore(route);
     }
 
     public List<Route> findBySourceCity(Long sourceId) {
-        return routes.values().stream()
-                .filter(route -> route.getSource().getId().equals(sourceId))
-                .collect(Collectors.toList());
+        return store.find("findBySourceCity", sourceIndex, sourceId);
     }
 
     public List<Route> findPopularRoutes(int limit) {
         // In a real app, this would be based on usage statistics
         // For now, just return the first few routes
-        return routes.values().stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return store.findFirst("findPopularRoutes", limit);
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,43 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.EntityStore.MultiIndex;
+import com.busmanagement.repository.EntityStore.SortedIndex;
+import com.busmanagement.repository.EntityStore.StateIndex;
+import com.busmanagement.repository.RepositoryMetrics.Access;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Repository
 public class InMemoryScheduleRepository {
     private static InMemoryScheduleRepository instance;
-    private final Map<Long, Schedule> schedules = new ConcurrentHashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Schedule> store = EntityStore.ordered(Schedule.class, Schedule::getId, Schedule::setId);
+
+    // (source city, destination city, departure time) -> schedules, for route searches over a departure window
+    private final SortedIndex<Schedule, RouteDeparture> routeDepartureIndex = store.sortedIndex(RouteDeparture::of);
+    private final MultiIndex<Schedule, Long> routeIndex = store.multiIndex(
+            schedule -> schedule.getRoute() != null ? schedule.getRoute().getId() : null);
+    private final MultiIndex<Schedule, Long> busIndex = store.multiIndex(
+            schedule -> schedule.getBus() != null ? schedule.getBus().getId() : null);
+    private final StateIndex<Schedule, ScheduleStatus> statusIndex =
+            store.stateIndex(ScheduleStatus.class, Schedule::lifecycleStatus);
+    // Active (Scheduled / In-Progress) trips per bus, for conflict detection
+    private final TripIntervalIndex activeTrips = store.addIndex(new TripIntervalIndex());
+    private final List<RouteDayListener> routeDayListeners = new CopyOnWriteArrayList<>();
 
     // Change from private to protected constructor
     protected InMemoryScheduleRepository() {
+        store.onInsert((schedule, now) -> schedule.setCreatedAt(now));
+        store.onSave((schedule, now) -> schedule.setUpdatedAt(now));
+        store.addIndex(new RouteDayWatch());
         // Will be populated with sample data in the service layer
     }
 
@@ -28,56 +49,204 @@ public class InMemoryScheduleRepository {
     }
 
     public List<Schedule> findAll() {
-        return new ArrayList<>(schedules.values());
+        return store.findAll();
     }
 
     public Optional<Schedule> findById(Long id) {
-        return Optional.ofNullable(schedules.get(id));
+        return store.findById(id);
+    }
+
+    // Keyset page: up to limit schedules with id greater than afterId (null for the first page)
+    public CursorPage<Schedule> findPage(Long afterId, int limit) {
+        return store.findPage(afterId, limit);
     }
 
     public Schedule save(Schedule schedule) {
-        if (schedule.getId() == null) {
-            schedule.setId(idCounter.getAndIncrement());
-            schedule.setCreatedAt(LocalDateTime.now());
-        }
-        schedule.setUpdatedAt(LocalDateTime.now());
-        schedules.put(schedule.getId(), schedule);
-        return schedule;
+        return store.save(schedule);
+    }
+
+    // Bulk insert for timetable imports: one lock and one durability wait for the whole batch
+    public void saveAll(List<Schedule> batch) {
+        store.saveAll(batch);
     }
 
     public void deleteById(Long id) {
-        schedules.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered schedule back as-is, without journaling or touching timestamps
+    public void restore(Schedule schedule) {
+        store.restore(schedule);
+    }
+
+    public void addRouteDayListener(RouteDayListener listener) {
+        routeDayListeners.add(listener);
+    }
+
+    // Bumped on every write, so derived structures (the journey planner timetable) know when to rebuild
+    public long getModificationCount() {
+        return store.getModificationCount();
+    }
+
+    /**
+     * Range scan over the route index: schedules from source to destination
+     * departing in [from, to).
+     */
+    public List<Schedule> findByRouteCitiesAndDepartureBetween(Long sourceId, Long destinationId,
+            LocalDateTime from, LocalDateTime to) {
+        if (sourceId == null || destinationId == null) {
+            return new ArrayList<>();
+        }
+        return store.findRange("findByRouteCitiesAndDepartureBetween", routeDepartureIndex,
+                new RouteDeparture(sourceId, destinationId, from), true,
+                new RouteDeparture(sourceId, destinationId, to), false);
     }
 
     public List<Schedule> findByRouteId(Long routeId) {
-        return schedules.values().stream()
-                .filter(schedule -> schedule.getRoute().getId().equals(routeId))
-                .collect(Collectors.toList());
+        return store.find("findByRouteId", routeIndex, routeId);
     }
 
     public List<Schedule> findByBusId(Long busId) {
-        return schedules.values().stream()
-                .filter(schedule -> schedule.getBus().getId().equals(busId))
-                .collect(Collectors.toList());
+        return store.find("findByBusId", busIndex, busId);
+    }
+
+    // Every trip in one lifecycle state, in id order
+    public List<Schedule> findByStatus(ScheduleStatus status) {
+        return store.find("findByStatus", statusIndex, status);
+    }
+
+    // A trip's lifecycle state, read under the write lock so a change made by updateStatus is never missed
+    public ScheduleStatus findStatus(Long id) {
+        return store.read("findStatus", id, Schedule::lifecycleStatus);
     }
 
+    // Scheduled or in-progress trips of the bus that have not yet arrived, in departure order
     public List<Schedule> findActiveSchedulesForBus(Long busId) {
-        LocalDateTime now = LocalDateTime.now();
-        return schedules.values().stream()
-                .filter(schedule -> schedule.getBus().getId().equals(busId))
-                .filter(schedule -> "Scheduled".equals(schedule.getStatus()) ||
-                        "In-Progress".equals(schedule.getStatus()))
-                .filter(schedule -> schedule.getDepartureTime().isAfter(now) ||
-                        schedule.getArrivalTime().isAfter(now))
-                .collect(Collectors.toList());
+        return store.findByIds("findActiveSchedulesForBus",
+                activeTrips.overlappingTrips(busId, LocalDateTime.now(), LocalDateTime.MAX));
+    }
+
+    /**
+     * Set a trip's lifecycle state under the write lock, so the change, its index
+     * updates and the journal entry land together. Throws IllegalArgumentException
+     * for an unknown id.
+     */
+    public Schedule updateStatus(Long id, ScheduleStatus status) {
+        Schedule updated = store.update(id, schedule -> schedule.setStatus(status.getLabel()));
+        if (updated == null) {
+            throw new IllegalArgumentException("Schedule not found with ID: " + id);
+        }
+        return updated;
     }
 
     public boolean isBusScheduledBetween(Long busId, LocalDateTime start, LocalDateTime end) {
-        return schedules.values().stream()
-                .filter(schedule -> schedule.getBus().getId().equals(busId))
-                .filter(schedule -> "Scheduled".equals(schedule.getStatus()) ||
-                        "In-Progress".equals(schedule.getStatus()))
-                .anyMatch(schedule -> (start.isBefore(schedule.getArrivalTime())
-                        && end.isAfter(schedule.getDepartureTime())));
-    }
-}
\ No newline at end of file
+        return isBusScheduledBetween(busId, start, end, null);
+    }
+
+    // Same check, ignoring one schedule (the one being edited)
+    public boolean isBusScheduledBetween(Long busId, LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
+        RepositoryMetrics metrics = store.metrics();
+        long startNanos = metrics.start();
+        try {
+            return activeTrips.hasOverlap(busId, start, end, excludeScheduleId);
+        } finally {
+            metrics.record("isBusScheduledBetween", Access.INDEX, startNanos);
+        }
+    }
+
+    // Ids of all buses with an active trip overlapping [start, end)
+    public Set<Long> findBusyBusIds(LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
+        RepositoryMetrics metrics = store.metrics();
+        long startNanos = metrics.start();
+        try {
+            return activeTrips.busyBusIds(start, end, excludeScheduleId);
+        } finally {
+            metrics.record("findBusyBusIds", Access.INDEX, startNanos);
+        }
+    }
+
+    // Holds nothing itself: the store's link and unlink calls tell it which route days each write touches
+    private final class RouteDayWatch extends EntityStore.SecondaryIndex<Schedule, RouteDeparture> {
+
+        RouteDayWatch() {
+            super(RouteDeparture::of);
+        }
+
+        @Override
+        void link(RouteDeparture key, Long id, Schedule schedule) {
+            notifyListeners(key);
+        }
+
+        @Override
+        void unlink(RouteDeparture key, Long id) {
+            notifyListeners(key);
+        }
+
+        private void notifyListeners(RouteDeparture key) {
+            for (RouteDayListener listener : routeDayListeners) {
+                listener.routeDayChanged(key.sourceId, key.destinationId, key.departureTime.toLocalDate());
+            }
+        }
+    }
+
+    // Route cities then departure time; the index keeps trips leaving at the same minute apart by id
+    private static final class RouteDeparture implements Comparable<RouteDeparture> {
+        private final long sourceId;
+        private final long destinationId;
+        private final LocalDateTime departureTime;
+
+        RouteDeparture(long sourceId, long destinationId, LocalDateTime departureTime) {
+            this.sourceId = sourceId;
+            this.destinationId = destinationId;
+            this.departureTime = departureTime;
+        }
+
+        static RouteDeparture of(Schedule schedule) {
+            if (schedule.getRoute() == null || schedule.getRoute().getSource() == null
+                    || schedule.getRoute().getDestination() == null || schedule.getDepartureTime() == null) {
+                return null;
+            }
+            Long sourceId = schedule.getRoute().getSource().getId();
+            Long destinationId = schedule.getRoute().getDestination().getId();
+            if (sourceId == null || destinationId == null) {
+                return null;
+            }
+            return new RouteDeparture(sourceId, destinationId, schedule.getDepartureTime());
+        }
+
+        @Override
+        public int compareTo(RouteDeparture other) {
+            int cmp = Long.compare(sourceId, other.sourceId);
+            if (cmp == 0) {
+                cmp = Long.compare(destinationId, other.destinationId);
+            }
+            return cmp != 0 ? cmp : departureTime.compareTo(other.departureTime);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RouteDeparture)) return false;
+            RouteDeparture other = (RouteDeparture) o;
+            return sourceId == other.sourceId && destinationId == other.destinationId
+                    && departureTime.equals(other.departureTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceId, destinationId, departureTime);
+        }
+    }
+}
@@ -1,59 +1,111 @@
 package com.busmanagement.repository;
 
 import com.busmanagement.model.Ticket;
+import com.busmanagement.repository.EntityStore.MultiIndex;
+import com.busmanagement.repository.RepositoryMetrics.Access;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class InMemoryTicketRepository {
-    private static final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
-    private static final AtomicLong idCounter = new AtomicLong(1);
+    private final EntityStore<Ticket> store = EntityStore.hashed(Ticket.class, Ticket::getId, Ticket::setId);
+    private final MultiIndex<Ticket, Long> bookingIndex = store.multiIndex(
+            ticket -> ticket.getBooking() != null ? ticket.getBooking().getId() : null);
+    private final MultiIndex<Ticket, Long> scheduleIndex = store.multiIndex(
+            ticket -> ticket.getSchedule() != null ? ticket.getSchedule().getId() : null);
 
     public List<Ticket> findAll() {
-        return new ArrayList<>(tickets.values());
+        return store.findAll();
+    }
+
+    // Lazy walk for exports: nothing is copied, and writes made during the walk may or may not be seen
+    public Stream<Ticket> streamAll() {
+        return store.streamAll();
+    }
+
+    // Lazy walk over one schedule's tickets, cancelled ones included
+    public Stream<Ticket> streamByScheduleId(Long scheduleId) {
+        return store.stream("streamByScheduleId", scheduleIndex, scheduleId);
     }
 
     public Optional<Ticket> findById(Long id) {
-        return Optional.ofNullable(tickets.get(id));
+        return store.findById(id);
     }
 
     public List<Ticket> findByBookingId(Long bookingId) {
-        return tickets.values().stream()
-                .filter(ticket -> ticket.getBooking() != null && ticket.getBooking().getId().equals(bookingId))
-                .collect(Collectors.toList());
+        return store.find("findByBookingId", bookingIndex, bookingId);
+    }
+
+    // Tickets of several bookings in one indexed pass
+    public List<Ticket> findByBookingIds(Collection<Long> bookingIds) {
+        return store.findEach("findByBookingIds", bookingIndex, bookingIds);
     }
 
     public List<Ticket> findByScheduleId(Long scheduleId) {
-        return tickets.values().stream()
-                .filter(ticket -> ticket.getSchedule() != null && ticket.getSchedule().getId().equals(scheduleId))
-                .filter(ticket -> !ticket.isCancelled())
-                .collect(Collectors.toList());
+        return store.find("findByScheduleId", scheduleIndex, scheduleId, ticket -> !ticket.isCancelled());
     }
 
     public List<Integer> findBookedSeatsByScheduleId(Long scheduleId) {
-        return tickets.values().stream()
-                .filter(ticket -> ticket.getSchedule() != null && ticket.getSchedule().getId().equals(scheduleId))
-                .filter(ticket -> !ticket.isCancelled())
-                .map(Ticket::getSeatNumber)
-                .collect(Collectors.toList());
+        RepositoryMetrics metrics = store.metrics();
+        long startNanos = metrics.start();
+        try {
+            List<Integer> seats = new ArrayList<>();
+            for (Ticket ticket : findByScheduleId(scheduleId)) {
+                seats.add(ticket.getSeatNumber());
+            }
+            return seats;
+        } finally {
+            metrics.record("findBookedSeatsByScheduleId", Access.INDEX, startNanos);
+        }
     }
 
     public Ticket save(Ticket ticket) {
-        if (ticket.getId() == null) {
-            ticket.setId(idCounter.getAndIncrement());
-        }
-        tickets.put(ticket.getId(), ticket);
-        return ticket;
+        return store.save(ticket);
+    }
+
+    // Save a batch under one lock, waiting for durability once for all of them
+    public void saveAll(List<Ticket> batch) {
+        store.saveAll(batch);
+    }
+
+    /**
+     * Mark the tickets CANCELLED under the write lock and return the ones this
+     * call cancelled. A ticket already cancelled, by this or a racing call, is
+     * left out, so exactly one caller sees each ticket's transition.
+     */
+    public List<Ticket> cancelAll(Collection<Long> ticketIds) {
+        return store.updateAll(ticketIds, ticket -> {
+            if (ticket.isCancelled()) {
+                return false;
+            }
+            ticket.setStatus("CANCELLED");
+            return true;
+        });
     }
 
     public void deleteById(Long id) {
-        tickets.remove(id);
+        store.deleteById(id);
+    }
+
+    public void setJournal(EntityJournal journal) {
+        store.setJournal(journal);
+    }
+
+    public void setMetrics(RepositoryMetrics metrics) {
+        store.setMetrics(metrics);
+    }
+
+    public int count() {
+        return store.count();
+    }
+
+    // Put a recovered ticket back as-is, without journaling
+    public void restore(Ticket ticket) {
+        store.restore(ticket);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Maintenance.MaintenanceStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Open maintenance jobs sorted into the dashboard's buckets: scheduled jobs
+ * whose date is still ahead (upcoming) or already passed (overdue), and jobs
+ * in progress. Each bucket is ordered by scheduled date. A job is placed when
+ * it is saved; moving upcoming jobs to overdue as their date passes is left to
+ * promoteDue, which the maintenance scheduler calls from a timer, so reads
+ * never compare dates. Each bucket keeps an immutable copy for readers that is
+ * rebuilt only after the bucket changes.
+ */
+class MaintenanceBoard extends EntityStore.SecondaryIndex<Maintenance, MaintenanceStatus> {
+    private final Bucket upcoming = new Bucket();
+    private final Bucket overdue = new Bucket();
+    private final Bucket inProgress = new Bucket();
+    private final Map<Long, Placement> placements = new HashMap<>();
+    // Overdue jobs first, then upcoming ones: every scheduled job in date order
+    private volatile List<Maintenance> scheduledView;
+    private volatile Consumer<LocalDateTime> deadlineListener = deadline -> { };
+
+    MaintenanceBoard() {
+        super(maintenance -> {
+            MaintenanceStatus status = maintenance.lifecycleStatus();
+            return status == MaintenanceStatus.SCHEDULED || status == MaintenanceStatus.IN_PROGRESS ? status : null;
+        });
+    }
+
+    // Told the date of every job that lands in upcoming, so a timer can be set for it; called under the store lock
+    void setDeadlineListener(Consumer<LocalDateTime> listener) {
+        this.deadlineListener = listener;
+    }
+
+    @Override
+    void link(MaintenanceStatus status, Long id, Maintenance maintenance) {
+        LocalDateTime deadline = maintenance.getScheduledDate();
+        boolean newDeadline = false;
+        synchronized (this) {
+            remove(id);
+            Bucket bucket;
+            if (status == MaintenanceStatus.IN_PROGRESS) {
+                bucket = inProgress;
+            } else if (deadline != null && !deadline.isAfter(LocalDateTime.now())) {
+                bucket = overdue;
+            } else {
+                bucket = upcoming;
+                newDeadline = deadline != null;
+            }
+            DeadlineKey key = new DeadlineKey(deadline, id);
+            bucket.put(key, maintenance);
+            placements.put(id, new Placement(bucket, key));
+        }
+        if (newDeadline) {
+            deadlineListener.accept(deadline);
+        }
+    }
+
+    @Override
+    synchronized void unlink(MaintenanceStatus status, Long id) {
+        remove(id);
+    }
+
+    // Move every upcoming job whose date is not after now to overdue; returns the jobs moved, earliest first
+    synchronized List<Maintenance> promoteDue(LocalDateTime now) {
+        List<Maintenance> promoted = new ArrayList<>();
+        Map.Entry<DeadlineKey, Maintenance> first;
+        while ((first = upcoming.jobs.firstEntry()) != null
+                && first.getKey().deadline != null && !first.getKey().deadline.isAfter(now)) {
+            upcoming.remove(first.getKey());
+            overdue.put(first.getKey(), first.getValue());
+            placements.put(first.getKey().id, new Placement(overdue, first.getKey()));
+            promoted.add(first.getValue());
+        }
+        return promoted;
+    }
+
+    // Earliest date among the upcoming jobs, or null if none is waiting to fall due
+    synchronized LocalDateTime nextDeadline() {
+        return upcoming.jobs.isEmpty() ? null : upcoming.jobs.firstKey().deadline;
+    }
+
+    List<Maintenance> upcoming() {
+        return upcoming.view();
+    }
+
+    List<Maintenance> overdue() {
+        return overdue.view();
+    }
+
+    List<Maintenance> inProgress() {
+        return inProgress.view();
+    }
+
+    List<Maintenance> scheduled() {
+        List<Maintenance> view = scheduledView;
+        if (view != null) {
+            return view;
+        }
+        synchronized (this) {
+            if (scheduledView == null) {
+                List<Maintenance> jobs = new ArrayList<>(overdue.jobs.size() + upcoming.jobs.size());
+                jobs.addAll(overdue.jobs.values());
+                jobs.addAll(upcoming.jobs.values());
+                scheduledView = Collections.unmodifiableList(jobs);
+            }
+            return scheduledView;
+        }
+    }
+
+    private void remove(Long id) {
+        Placement placement = placements.remove(id);
+        if (placement != null) {
+            placement.bucket.remove(placement.key);
+        }
+    }
+
+    private void changed(Bucket bucket) {
+        if (bucket != inProgress) {
+            scheduledView = null;
+        }
+    }
+
+    private final class Bucket {
+        private final NavigableMap<DeadlineKey, Maintenance> jobs = new TreeMap<>();
+        private volatile List<Maintenance> view;
+
+        // Callers hold the board lock
+        void put(DeadlineKey key, Maintenance maintenance) {
+            jobs.put(key, maintenance);
+            view = null;
+            changed(this);
+        }
+
+        void remove(DeadlineKey key) {
+            if (jobs.remove(key) != null) {
+                view = null;
+                changed(this);
+            }
+        }
+
+        List<Maintenance> view() {
+            List<Maintenance> current = view;
+            if (current != null) {
+                return current;
+            }
+            synchronized (MaintenanceBoard.this) {
+                if (view == null) {
+                    view = Collections.unmodifiableList(new ArrayList<>(jobs.values()));
+                }
+                return view;
+            }
+        }
+    }
+
+    private static final class Placement {
+        private final Bucket bucket;
+        private final DeadlineKey key;
+
+        Placement(Bucket bucket, DeadlineKey key) {
+            this.bucket = bucket;
+            this.key = key;
+        }
+    }
+
+    // Scheduled date then id; jobs without a date sort last
+    private static final class DeadlineKey implements Comparable<DeadlineKey> {
+        private final LocalDateTime deadline;
+        private final long id;
+
+        DeadlineKey(LocalDateTime deadline, long id) {
+            this.deadline = deadline;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(DeadlineKey other) {
+            if (deadline == null || other.deadline == null) {
+                if (deadline != other.deadline) {
+                    return deadline == null ? 1 : -1;
+                }
+            } else {
+                int byDeadline = deadline.compareTo(other.deadline);
+                if (byDeadline != 0) {
+                    return byDeadline;
+                }
+            }
+            return Long.compare(id, other.id);
+        }
+    }
+}
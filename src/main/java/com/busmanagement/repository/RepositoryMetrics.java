@@ -0,0 +1,31 @@
+package com.busmanagement.repository;
+
+/**
+ * Timing hook for repository methods. A method calls start() on entry and
+ * record() on exit, saying whether it was answered from an index, by scanning
+ * every entity, or was a write. Implementations must not allocate on either
+ * call; NO_OP does not even read the clock.
+ */
+public interface RepositoryMetrics {
+
+    enum Access {
+        INDEX,
+        SCAN,
+        WRITE
+    }
+
+    RepositoryMetrics NO_OP = new RepositoryMetrics() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void record(String operation, Access access, long startNanos) {
+        }
+    };
+
+    long start();
+
+    void record(String operation, Access access, long startNanos);
+}
@@ -0,0 +1,15 @@
+package com.busmanagement.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Told about every (source city, destination city, departure date) that a
+ * schedule write adds a trip to or takes one from. A trip moved to another
+ * day or route reports both its old and its new day. Called under the
+ * schedule repository's write lock, so implementations must be quick and
+ * must not call back into the repository.
+ */
+public interface RouteDayListener {
+
+    void routeDayChanged(long sourceId, long destinationId, LocalDate departureDate);
+}
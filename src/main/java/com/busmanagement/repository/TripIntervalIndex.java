@@ -0,0 +1,184 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Schedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Active bus trips ordered by departure time, per bus and fleet-wide.
+ * Together with the longest indexed trip duration, any trip overlapping
+ * [start, end) must depart inside [start - longest, end), so an overlap
+ * check is a range scan over that window instead of a pass over every trip.
+ * Only Scheduled and In-Progress trips are kept; the key is the trip's bus.
+ */
+class TripIntervalIndex extends EntityStore.SecondaryIndex<Schedule, Long> {
+    private final NavigableSet<Trip> fleet = new ConcurrentSkipListSet<>();
+    private final Map<Long, NavigableSet<Trip>> byBus = new ConcurrentHashMap<>();
+    private final Map<Long, Trip> byScheduleId = new ConcurrentHashMap<>();
+    // How many indexed trips have each duration, so the longest can shrink when its trip leaves
+    private final TreeMap<Duration, Integer> durations = new TreeMap<>();
+    private volatile Duration longestTrip = Duration.ZERO;
+
+    TripIntervalIndex() {
+        super(schedule -> isActive(schedule) && schedule.getBus() != null ? schedule.getBus().getId() : null);
+    }
+
+    @Override
+    synchronized void link(Long busId, Long scheduleId, Schedule schedule) {
+        remove(scheduleId);
+        LocalDateTime departure = schedule.getDepartureTime();
+        LocalDateTime arrival = schedule.getArrivalTime();
+        if (departure == null || arrival == null) {
+            return;
+        }
+        Trip trip = new Trip(scheduleId, busId, departure, arrival);
+        // Widen the window before the trip becomes visible, so a concurrent scan cannot miss it
+        durations.merge(trip.duration(), 1, Integer::sum);
+        updateLongestTrip();
+        fleet.add(trip);
+        byBus.computeIfAbsent(busId, k -> new ConcurrentSkipListSet<>()).add(trip);
+        byScheduleId.put(scheduleId, trip);
+    }
+
+    @Override
+    synchronized void unlink(Long busId, Long scheduleId) {
+        remove(scheduleId);
+    }
+
+    private void remove(Long scheduleId) {
+        Trip trip = byScheduleId.remove(scheduleId);
+        if (trip == null) {
+            return;
+        }
+        fleet.remove(trip);
+        NavigableSet<Trip> trips = byBus.get(trip.busId);
+        if (trips != null) {
+            trips.remove(trip);
+            if (trips.isEmpty()) {
+                byBus.remove(trip.busId);
+            }
+        }
+        // Narrow the window only once the trip is out of the sets
+        durations.computeIfPresent(trip.duration(), (d, count) -> count > 1 ? count - 1 : null);
+        updateLongestTrip();
+    }
+
+    private void updateLongestTrip() {
+        Duration longest = durations.isEmpty() ? Duration.ZERO : durations.lastKey();
+        longestTrip = longest.isNegative() ? Duration.ZERO : longest;
+    }
+
+    // How far before a window's start a scan begins, for monitoring and tests
+    Duration getLongestTrip() {
+        return longestTrip;
+    }
+
+    boolean hasOverlap(Long busId, LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
+        NavigableSet<Trip> trips = byBus.get(busId);
+        if (trips == null) {
+            return false;
+        }
+        for (Trip trip : window(trips, start, end)) {
+            if (trip.overlaps(start, end) && !trip.scheduleId.equals(excludeScheduleId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ids of the bus's active trips overlapping [start, end), in departure order
+    List<Long> overlappingTrips(Long busId, LocalDateTime start, LocalDateTime end) {
+        NavigableSet<Trip> trips = byBus.get(busId);
+        if (trips == null) {
+            return Collections.emptyList();
+        }
+        List<Long> scheduleIds = new ArrayList<>();
+        for (Trip trip : window(trips, start, end)) {
+            if (trip.overlaps(start, end)) {
+                scheduleIds.add(trip.scheduleId);
+            }
+        }
+        return scheduleIds;
+    }
+
+    // Ids of every bus with an active trip overlapping [start, end)
+    Set<Long> busyBusIds(LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
+        Set<Long> busy = new HashSet<>();
+        for (Trip trip : window(fleet, start, end)) {
+            if (trip.overlaps(start, end) && !trip.scheduleId.equals(excludeScheduleId)) {
+                busy.add(trip.busId);
+            }
+        }
+        return busy;
+    }
+
+    private static boolean isActive(Schedule schedule) {
+        Schedule.ScheduleStatus status = schedule.lifecycleStatus();
+        return status != null && status.isActive();
+    }
+
+    private NavigableSet<Trip> window(NavigableSet<Trip> trips, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime from = start.minus(longestTrip);
+        if (!from.isBefore(end)) {
+            return new ConcurrentSkipListSet<>();
+        }
+        return trips.subSet(Trip.probe(from), true, Trip.probe(end), false);
+    }
+
+    private static final class Trip implements Comparable<Trip> {
+        private final Long scheduleId;
+        private final Long busId;
+        private final LocalDateTime departure;
+        private final LocalDateTime arrival;
+
+        Trip(Long scheduleId, Long busId, LocalDateTime departure, LocalDateTime arrival) {
+            this.scheduleId = scheduleId;
+            this.busId = busId;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        // Sorts before every real trip departing at the same instant
+        static Trip probe(LocalDateTime departure) {
+            return new Trip(Long.MIN_VALUE, null, departure, departure);
+        }
+
+        Duration duration() {
+            return Duration.between(departure, arrival);
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return start.isBefore(arrival) && end.isAfter(departure);
+        }
+
+        @Override
+        public int compareTo(Trip other) {
+            int cmp = departure.compareTo(other.departure);
+            return cmp != 0 ? cmp : Long.compare(scheduleId, other.scheduleId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Trip)) return false;
+            Trip other = (Trip) o;
+            return scheduleId.equals(other.scheduleId) && departure.equals(other.departure);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * scheduleId.hashCode() + departure.hashCode();
+        }
+    }
+}
@@ -9,23 +9,42 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
-public class BookingService {
+public class BookingService implements PaymentListener {
+    // Refunds saved and handed to the payment pipeline together when a whole trip is cancelled
+    private static final int REFUND_BATCH_SIZE = 512;
+    // Operator cancellations are refunded in full, whatever the time to departure
+    private static final double OPERATOR_CANCELLATION_REFUND = 1.0;
+
     private final InMemoryBookingRepository bookingRepository;
     private final PaymentService paymentService;
     private final TicketService ticketService;
+    private final SeatInventoryService seatInventoryService;
+    private final SeatHoldService seatHoldService;
+    private final ScheduleService scheduleService;
 
     @Autowired
     public BookingService(
             InMemoryBookingRepository bookingRepository,
             PaymentService paymentService,
-            TicketService ticketService) {
+            TicketService ticketService,
+            SeatInventoryService seatInventoryService,
+            SeatHoldService seatHoldService,
+            ScheduleService scheduleService) {
         this.bookingRepository = bookingRepository;
         this.paymentService = paymentService;
         this.ticketService = ticketService;
+        this.seatInventoryService = seatInventoryService;
+        this.seatHoldService = seatHoldService;
+        this.scheduleService = scheduleService;
+        paymentService.addPaymentListener(this);
     }
 
     public List<Booking> getAllBookings() {
@@ -46,7 +65,24 @@ public class BookingService {
     // Create booking needs to have all info about Booking so it can be considered as Creator 
     // Create a new booking with tickets and payment
     public Booking createBooking(Booking booking, List<Ticket> tickets, Payment payment) {
-        // Save the booking first
+        requireBookable(booking.getSchedule());
+
+        // Claim every seat up front; give back the ones already won if any claim fails
+        List<Ticket> claimed = new ArrayList<>();
+        try {
+            for (Ticket ticket : tickets) {
+                seatInventoryService.claimSeat(booking.getSchedule(), ticket.getSeatNumber());
+                claimed.add(ticket);
+            }
+        } catch (IllegalStateException e) {
+            for (Ticket ticket : claimed) {
+                seatInventoryService.releaseSeat(booking.getSchedule(), ticket.getSeatNumber());
+            }
+            throw e;
+        }
+
+        // Save the booking first; it is confirmed once the payment goes through
+        booking.setStatus("PENDING_PAYMENT");
         Booking savedBooking = bookingRepository.save(booking);
 
         // Associate tickets with the booking and save them
@@ -54,11 +90,12 @@ public class BookingService {
             ticket.setBooking(savedBooking);
             ticketService.saveTicket(ticket);
         }
+        abandonIfCancelled(savedBooking);
 
-        // Associate payment with the booking and save it
+        // Associate payment with the booking and queue it for the gateway
         payment.setBooking(savedBooking);
         payment.setAmount(savedBooking.getTotalFare());
-        paymentService.savePayment(payment);
+        paymentService.submitPayment(payment);
 
         return savedBooking;
     }
@@ -67,6 +104,26 @@ public class BookingService {
     public Booking createSingleTicketBooking(Schedule schedule, String passengerName,
             String passengerEmail, String passengerPhone, int seatNumber,
             double fare, String paymentMethod, String paymentId) {
+        return createSingleTicketBooking(schedule, passengerName, passengerEmail, passengerPhone,
+                seatNumber, fare, paymentMethod, paymentId, null, null);
+    }
+
+    // Single-ticket booking that takes over the seat hold holdOwner placed, if it is still live
+    public Booking createSingleTicketBooking(Schedule schedule, String passengerName,
+            String passengerEmail, String passengerPhone, int seatNumber,
+            double fare, String paymentMethod, String paymentId, Long holdId, String holdOwner) {
+        requireBookable(schedule);
+        if (paymentId != null && paymentService.getPaymentByPaymentId(paymentId).isPresent()) {
+            throw new IllegalStateException("Payment " + paymentId + " has already been used");
+        }
+
+        // Claim the seat before anything is persisted, so a lost race leaves no trace.
+        // A live hold already owns the seat; otherwise it has to be won now.
+        if (!seatHoldService.convertHold(holdId, schedule.getId(), seatNumber, holdOwner)) {
+            // The caller's own hold may have lapsed without being expired yet, still claiming the seat
+            seatHoldService.releaseHold(holdId, schedule.getId(), seatNumber, holdOwner);
+            seatInventoryService.claimSeat(schedule, seatNumber);
+        }
 
         // Create booking
         Booking booking = new Booking();
@@ -74,6 +131,7 @@ public class BookingService {
         booking.setPassengerName(passengerName);
         booking.setPassengerEmail(passengerEmail);
         booking.setPassengerPhone(passengerPhone);
+        booking.setStatus("PENDING_PAYMENT");
         Booking savedBooking = bookingRepository.save(booking);
 
         // Create ticket
@@ -82,14 +140,15 @@ public class BookingService {
         ticket.setSeatNumber(seatNumber);
         ticket.setFare(fare);
         ticketService.saveTicket(ticket);
+        abandonIfCancelled(savedBooking);
 
-        // Create payment
+        // Create payment; the booking is confirmed or cancelled when the gateway answers
         Payment payment = new Payment();
         payment.setBooking(savedBooking);
         payment.setAmount(fare);
         payment.setPaymentMethod(paymentMethod);
         payment.setPaymentId(paymentId);
-        paymentService.savePayment(payment);
+        paymentService.submitPayment(payment);
 
         return savedBooking;
     }
@@ -98,23 +157,23 @@ public class BookingService {
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Booking not found with ID: " + id));
 
-        // Mark booking as cancelled
-        booking.setStatus("CANCELLED");
-        booking.setCancelTime(LocalDateTime.now());
-
-        // Mark all tickets as cancelled
-        List<Ticket> tickets = ticketService.getTicketsByBookingId(id);
-        for (Ticket ticket : tickets) {
-            ticket.setStatus("CANCELLED");
-            ticketService.saveTicket(ticket);
+        // Mark booking as cancelled; only one of cancelBooking and paymentSettled makes the change
+        synchronized (booking) {
+            if (booking.isCancelled()) {
+                return booking;
+            }
+            booking.setStatus("CANCELLED");
+            booking.setCancelTime(LocalDateTime.now());
         }
 
-        // Process refund
+        // Mark all tickets as cancelled and free their seats, and record the cancellation before any refund
+        cancelTickets(id);
+        Booking saved = bookingRepository.save(booking);
+
+        // Process refund; a payment that failed charged nothing
         Optional<Payment> payment = paymentService.getPaymentByBookingId(id);
-        if (payment.isPresent()) {
+        if (payment.isPresent() && !payment.get().isFailed()) {
             Payment p = payment.get();
-            p.setRefundStatus("INITIATED");
-            p.setRefundTime(LocalDateTime.now());
 
             // Calculate refund amount based on cancellation policy
             LocalDateTime departureTime = booking.getSchedule().getDepartureTime();
@@ -132,10 +191,158 @@ public class BookingService {
                 refundPercent = 0.0; // No refund
             }
 
-            p.setRefundAmount(p.getAmount() * refundPercent);
-            paymentService.savePayment(p);
+            if (refundPercent > 0) {
+                // Queued for the gateway now, or once a charge still in flight goes through
+                paymentService.processRefund(p, p.getAmount() * refundPercent);
+            }
+        }
+
+        return saved;
+    }
+
+    /**
+     * Cancel a trip the operator is withdrawing: every booking on it is
+     * cancelled, its seats freed and its payment refunded in full.
+     *
+     * One sweep instead of cancelBooking per booking: the tickets come from the
+     * schedule index and the payments from the booking index, each repository
+     * takes one bulk write, and refunds are worked out over the whole trip at
+     * once and handed to the payment pipeline in batches.
+     */
+    public ScheduleCancellation cancelSchedule(Long scheduleId) {
+        long started = System.nanoTime();
+        Schedule schedule = scheduleService.getScheduleById(scheduleId)
+                .orElseThrow(() -> new IllegalArgumentException("Schedule not found with ID: " + scheduleId));
+        // Mark the trip before looking for its tickets. A booking that passed requireBookable
+        // before the mark either saved its tickets in time to be found here, or sees the mark
+        // in abandonIfCancelled after saving them and backs itself out.
+        scheduleService.markCancelled(schedule);
+        ScheduleCancellation result = new ScheduleCancellation(scheduleId);
+
+        // Live bookings on the trip, each with its tickets, through the schedule index
+        Map<Long, List<Ticket>> ticketsByBooking = new LinkedHashMap<>();
+        for (Ticket ticket : ticketService.getTicketsByScheduleId(scheduleId)) {
+            if (ticket.getBooking() != null) {
+                ticketsByBooking.computeIfAbsent(ticket.getBooking().getId(), id -> new ArrayList<>()).add(ticket);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> cancelled = new ArrayList<>(ticketsByBooking.size());
+        List<Ticket> tickets = new ArrayList<>();
+        for (Map.Entry<Long, List<Ticket>> entry : ticketsByBooking.entrySet()) {
+            Optional<Booking> found = bookingRepository.findById(entry.getKey());
+            if (!found.isPresent()) {
+                continue;
+            }
+            Booking booking = found.get();
+            // Same hand-over as cancelBooking, so each booking is cancelled and refunded once
+            synchronized (booking) {
+                if (booking.isCancelled()) {
+                    continue;
+                }
+                booking.setStatus("CANCELLED");
+                booking.setCancelTime(now);
+            }
+            cancelled.add(booking);
+            tickets.addAll(entry.getValue());
         }
+        bookingRepository.saveAll(cancelled);
+        result.bookingsCancelled(cancelled.size());
+        result.ticketsCancelled(ticketService.cancelTickets(tickets));
 
-        return bookingRepository.save(booking);
+        // Refunds for the whole trip in one pass over the payment amounts
+        List<Long> bookingIds = new ArrayList<>(cancelled.size());
+        for (Booking booking : cancelled) {
+            bookingIds.add(booking.getId());
+        }
+        List<Payment> payments = paymentService.getPaymentsByBookingIds(bookingIds);
+        double[] refunds = new double[payments.size()];
+        for (int i = 0; i < refunds.length; i++) {
+            refunds[i] = payments.get(i).getAmount() * OPERATOR_CANCELLATION_REFUND;
+        }
+        for (int from = 0; from < payments.size(); from += REFUND_BATCH_SIZE) {
+            int to = Math.min(payments.size(), from + REFUND_BATCH_SIZE);
+            double[] batchRefunds = Arrays.copyOfRange(refunds, from, to);
+            double batchTotal = 0;
+            List<Payment> refunded = paymentService.processRefunds(payments.subList(from, to), batchRefunds);
+            for (Payment payment : refunded) {
+                batchTotal += payment.getRefundAmount();
+            }
+            result.refundsQueued(refunded.size(), batchTotal);
+        }
+
+        result.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    private void requireBookable(Schedule schedule) {
+        if (isCancelled(schedule)) {
+            throw new IllegalStateException("This trip has been cancelled");
+        }
+    }
+
+    private boolean isCancelled(Schedule schedule) {
+        return schedule != null && schedule.getId() != null && scheduleService.isCancelled(schedule.getId());
+    }
+
+    /**
+     * Re-check the trip once the booking's tickets are saved and before its payment
+     * is submitted. If cancelSchedule marked the trip in the meantime, its sweep may
+     * have missed these tickets, so cancel the booking here and free its seats,
+     * unless the sweep already took it over. Either way the booking is refused.
+     */
+    private void abandonIfCancelled(Booking booking) {
+        if (!isCancelled(booking.getSchedule())) {
+            return;
+        }
+        boolean changed = false;
+        synchronized (booking) {
+            if (!booking.isCancelled()) {
+                booking.setStatus("CANCELLED");
+                booking.setCancelTime(LocalDateTime.now());
+                changed = true;
+            }
+        }
+        if (changed) {
+            cancelTickets(booking.getId());
+            bookingRepository.save(booking);
+        }
+        throw new IllegalStateException("This trip has been cancelled");
+    }
+
+    // Confirm the booking once its payment goes through, or cancel it and free the seats if it failed
+    @Override
+    public void paymentSettled(Payment payment) {
+        if (payment.getBooking() == null) {
+            return;
+        }
+        Optional<Booking> found = bookingRepository.findById(payment.getBooking().getId());
+        if (!found.isPresent()) {
+            return;
+        }
+        Booking booking = found.get();
+        boolean changed = false;
+        synchronized (booking) {
+            if (!booking.isCancelled()) {
+                booking.setStatus(payment.isCompleted() ? "CONFIRMED" : "CANCELLED");
+                if (payment.isFailed()) {
+                    booking.setCancelTime(LocalDateTime.now());
+                }
+                changed = true;
+            }
+        }
+        // A booking cancelled while the charge was in flight stays cancelled; its refund follows the charge
+        if (changed) {
+            if (payment.isFailed()) {
+                cancelTickets(booking.getId());
+            }
+            bookingRepository.save(booking);
+        }
+    }
+
+    private void cancelTickets(Long bookingId) {
+        for (Ticket ticket : ticketService.getTicketsByBookingId(bookingId)) {
+            ticketService.cancelTicket(ticket.getId());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.busmanagement.service;
 
 import com.busmanagement.model.Bus;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.repository.InMemoryBusRepository;
 import org.springframework.stereotype.Service;
 
@@ -17,7 +18,17 @@ public class BusService {
 
     // Facade method - simplifies access to the repository
     public List<Bus> getAllBuses() {
-        return busRepository.findAll();
+        return busRepository.findAllSnapshot();
+    }
+
+    // Page of buses in id order, starting after the given cursor
+    public CursorPage<Bus> getBusPage(Long afterId, int limit) {
+        return busRepository.findPage(afterId, limit);
+    }
+
+    // Bumped by every bus write, for HTTP validators
+    public long getModificationCount() {
+        return busRepository.getModificationCount();
     }
 
     public Optional<Bus> getBusById(Long id) {
@@ -18,9 +18,14 @@ public class CityService {
         this.cityRepository = cityRepository;
     }
 
-    // Get all cities
+    // Get all cities: a shared, read-only list that is only rebuilt after a city changes
     public List<City> getAllCities() {
-        return cityRepository.findAll();
+        return cityRepository.findAllSnapshot();
+    }
+
+    // Bumped by every city write, for HTTP validators
+    public long getModificationCount() {
+        return cityRepository.getModificationCount();
     }
 
     // Get city by ID
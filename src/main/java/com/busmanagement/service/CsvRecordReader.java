@@ -0,0 +1,155 @@
+package com.busmanagement.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a CSV file one record at a time. The first record is the header and
+ * columns are looked up by name, so files may list them in any order and carry
+ * extra ones (as GTFS feeds do). Quoted fields may contain commas, quotes ("")
+ * and line breaks.
+ */
+final class CsvRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private long line = 1;
+    private long recordLine;
+
+    CsvRecordReader(InputStream stream) throws IOException {
+        this.in = new InputStreamReader(stream, StandardCharsets.UTF_8);
+        String[] header = next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].trim();
+            // Strip a byte order mark left on the first column
+            if (i == 0 && !name.isEmpty() && name.charAt(0) == '\uFEFF') {
+                name = name.substring(1);
+            }
+            columns.put(name.toLowerCase(), i);
+        }
+    }
+
+    // Index of a header column, or -1 if the file does not have it
+    int column(String name) {
+        return columns.getOrDefault(name, -1);
+    }
+
+    int requireColumn(String name) {
+        int index = column(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("CSV file has no " + name + " column");
+        }
+        return index;
+    }
+
+    // Line the record last returned by next() started on
+    long getLineNumber() {
+        return recordLine;
+    }
+
+    // Next record, skipping blank lines; null at end of file
+    String[] next() throws IOException {
+        int c;
+        do {
+            recordLine = line;
+            c = read();
+            if (c == '\r' && peek() == '\n') {
+                c = read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+        } while (c == '\n' || c == '\r');
+        if (c < 0) {
+            return null;
+        }
+
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c < 0) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c >= 0) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
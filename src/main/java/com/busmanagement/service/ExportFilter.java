@@ -0,0 +1,42 @@
+package com.busmanagement.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Row filter for the exports. Every criterion is optional; the date range is
+ * inclusive of both days and is checked against the row's booking or payment time.
+ */
+public class ExportFilter {
+
+    private final LocalDateTime from;
+    private final LocalDateTime until;
+    private final Long scheduleId;
+    private final String status;
+
+    public ExportFilter(LocalDate fromDate, LocalDate toDate, Long scheduleId, String status) {
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("Export date range ends before it starts");
+        }
+        this.from = fromDate != null ? fromDate.atStartOfDay() : null;
+        this.until = toDate != null ? toDate.plusDays(1).atStartOfDay() : null;
+        this.scheduleId = scheduleId;
+        this.status = status != null && !status.isBlank() ? status.trim() : null;
+    }
+
+    public Long getScheduleId() {
+        return scheduleId;
+    }
+
+    boolean matches(LocalDateTime time, Long rowScheduleId, String rowStatus) {
+        if (from != null || until != null) {
+            if (time == null || (from != null && time.isBefore(from)) || (until != null && !time.isBefore(until))) {
+                return false;
+            }
+        }
+        if (scheduleId != null && !scheduleId.equals(rowScheduleId)) {
+            return false;
+        }
+        return status == null || status.equalsIgnoreCase(rowStatus);
+    }
+}
@@ -0,0 +1,117 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Payment;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Ticket;
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streaming exports of bookings, tickets and payments for finance.
+ *
+ * Each export walks the repository lazily and writes every matching row straight
+ * to the output stream, so memory use does not depend on how many rows there are.
+ * The walk is weakly consistent: rows written while an export runs may or may not
+ * be included.
+ */
+@Service
+public class ExportService {
+
+    private final InMemoryBookingRepository bookingRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private final InMemoryPaymentRepository paymentRepository;
+
+    @Autowired
+    public ExportService(InMemoryBookingRepository bookingRepository,
+            InMemoryTicketRepository ticketRepository,
+            InMemoryPaymentRepository paymentRepository) {
+        this.bookingRepository = bookingRepository;
+        this.ticketRepository = ticketRepository;
+        this.paymentRepository = paymentRepository;
+    }
+
+    // Filtered on booking time, schedule and booking status
+    public void exportBookings(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        ExportWriter writer = new ExportWriter(format, out, "id", "bookingReference", "scheduleId",
+                "passengerName", "passengerEmail", "passengerPhone", "status", "bookingTime", "cancelTime",
+                "tickets", "totalFare");
+        try (Stream<Booking> bookings = bookingRepository.streamAll()) {
+            Iterator<Booking> it = bookings.iterator();
+            while (it.hasNext()) {
+                Booking booking = it.next();
+                Long scheduleId = scheduleId(booking.getSchedule());
+                if (!filter.matches(booking.getBookingTime(), scheduleId, booking.getStatus())) {
+                    continue;
+                }
+                // Tickets are linked to their booking only through the ticket repository's booking index
+                List<Ticket> tickets = ticketRepository.findByBookingId(booking.getId());
+                writer.row(booking.getId(), booking.getBookingReference(), scheduleId,
+                        booking.getPassengerName(), booking.getPassengerEmail(), booking.getPassengerPhone(),
+                        booking.getStatus(), booking.getBookingTime(), booking.getCancelTime(),
+                        tickets.size(), tickets.stream().mapToDouble(Ticket::getFare).sum());
+            }
+        }
+        writer.finish();
+    }
+
+    // Filtered on the booking's time, schedule and ticket status; a schedule filter uses the ticket index
+    public void exportTickets(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        ExportWriter writer = new ExportWriter(format, out, "id", "bookingReference", "scheduleId",
+                "seatNumber", "fare", "status", "passengerName", "bookingTime", "cancelTime");
+        Stream<Ticket> source = filter.getScheduleId() != null
+                ? ticketRepository.streamByScheduleId(filter.getScheduleId())
+                : ticketRepository.streamAll();
+        try (Stream<Ticket> tickets = source) {
+            Iterator<Ticket> it = tickets.iterator();
+            while (it.hasNext()) {
+                Ticket ticket = it.next();
+                Long scheduleId = scheduleId(ticket.getSchedule());
+                if (!filter.matches(ticket.getBookingTime(), scheduleId, ticket.getStatus())) {
+                    continue;
+                }
+                writer.row(ticket.getId(), ticket.getBookingReference(), scheduleId,
+                        ticket.getSeatNumber(), ticket.getFare(), ticket.getStatus(), ticket.getPassengerName(),
+                        ticket.getBookingTime(), ticket.getCancelTime());
+            }
+        }
+        writer.finish();
+    }
+
+    // Filtered on payment time, the booking's schedule and payment status
+    public void exportPayments(ExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        ExportWriter writer = new ExportWriter(format, out, "id", "bookingId", "bookingReference",
+                "scheduleId", "paymentId", "paymentMethod", "amount", "status", "failureReason",
+                "paymentTime", "refundAmount", "refundTime", "refundStatus");
+        try (Stream<Payment> payments = paymentRepository.streamAll()) {
+            Iterator<Payment> it = payments.iterator();
+            while (it.hasNext()) {
+                Payment payment = it.next();
+                Booking booking = payment.getBooking();
+                Long scheduleId = booking != null ? scheduleId(booking.getSchedule()) : null;
+                if (!filter.matches(payment.getPaymentTime(), scheduleId, payment.getStatus())) {
+                    continue;
+                }
+                writer.row(payment.getId(), booking != null ? booking.getId() : null,
+                        booking != null ? booking.getBookingReference() : null, scheduleId,
+                        payment.getPaymentId(), payment.getPaymentMethod(), payment.getAmount(),
+                        payment.getStatus(), payment.getFailureReason(), payment.getPaymentTime(),
+                        payment.getRefundAmount(), payment.getRefundTime(), payment.getRefundStatus());
+            }
+        }
+        writer.finish();
+    }
+
+    private static Long scheduleId(Schedule schedule) {
+        return schedule != null ? schedule.getId() : null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.busmanagement.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes export rows one at a time as NDJSON objects or CSV lines. Only a fixed
+ * buffer is held; once it fills, the write blocks on the response stream, so a
+ * slow client slows the walk instead of growing the heap.
+ */
+final class ExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExportFormat format;
+    private final String[] columns;
+    private final Writer out;
+    // JSON key prefixes, escaped once: {"id": and ,"name":
+    private final String[] keys;
+
+    ExportWriter(ExportFormat format, OutputStream stream, String... columns) throws IOException {
+        this.format = format;
+        this.columns = columns;
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.keys = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            keys[i] = (i == 0 ? "{\"" : ",\"") + columns[i] + "\":";
+        }
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeCsv(columns[i]);
+            }
+            out.write("\r\n");
+        }
+    }
+
+    void row(Object... values) throws IOException {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " values, got " + values.length);
+        }
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (values[i] != null) {
+                    writeCsv(values[i].toString());
+                }
+            }
+            out.write("\r\n");
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                out.write(keys[i]);
+                writeJson(values[i]);
+            }
+            out.write("}\n");
+        }
+    }
+
+    // Push out whatever is still buffered; the caller owns the underlying stream
+    void finish() throws IOException {
+        out.flush();
+    }
+
+    private void writeJson(Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.write(value.toString());
+        } else {
+            String text = value.toString();
+            out.write('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                        }
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    private void writeCsv(String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
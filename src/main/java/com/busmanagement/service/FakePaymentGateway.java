@@ -0,0 +1,82 @@
+package com.busmanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the card processor, so the payment pipeline can be
+ * run and load-tested offline.
+ *
+ * Each call sleeps for the configured latency and then fails with the
+ * configured probability. Half of those failures happen after the charge was
+ * recorded, like a timeout on a request the processor did receive, so a retry
+ * has to rely on the idempotency key not to charge twice. Accepted keys are
+ * remembered for the life of the process.
+ */
+@Component
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final long latencyMillis;
+    private final double failureRate;
+    private final Map<String, String> accepted = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+
+    @Autowired
+    public FakePaymentGateway(
+            @Value("${payment.gateway.simulated-latency-ms:0}") long latencyMillis,
+            @Value("${payment.gateway.failure-rate:0}") double failureRate) {
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("payment.gateway.failure-rate must be between 0 and 1");
+        }
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String charge(String idempotencyKey, double amount, String paymentMethod) {
+        return call(idempotencyKey, "CHG-");
+    }
+
+    @Override
+    public String refund(String idempotencyKey, String paymentId, double amount) {
+        return call(idempotencyKey, "RFD-");
+    }
+
+    // Charges and refunds actually made, not counting replays of an accepted key
+    public int getAcceptedCount() {
+        return accepted.size();
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    private String call(String idempotencyKey, String prefix) {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Interrupted waiting for the gateway", true);
+            }
+        }
+        boolean fail = failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+        if (fail && ThreadLocalRandom.current().nextBoolean()) {
+            throw new PaymentGatewayException("Gateway unavailable", true);
+        }
+        String reference = accepted.computeIfAbsent(idempotencyKey, key -> prefix + sequence.incrementAndGet());
+        if (fail) {
+            throw new PaymentGatewayException("Gateway timed out", true);
+        }
+        return reference;
+    }
+}
@@ -0,0 +1,152 @@
+package com.busmanagement.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a timetable import: what was created or matched, how fast trips
+ * went in, and why rows were turned away. Only the first rejections are kept
+ * in detail; getRejectedCount() has the full number.
+ */
+public class ImportReport {
+
+    static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    private int citiesCreated;
+    private int citiesMatched;
+    private int routesCreated;
+    private int routesMatched;
+    private int busesCreated;
+    private int busesMatched;
+    private long tripsRead;
+    private long tripsImported;
+    private long rejectedCount;
+    private final List<RejectedRow> rejections = new ArrayList<>();
+    private long elapsedMillis;
+
+    void reject(String file, long line, String reason) {
+        rejectedCount++;
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add(new RejectedRow(file, line, reason));
+        }
+    }
+
+    // Fold in rejections gathered by a worker, which are already capped
+    void addRejections(List<RejectedRow> rows, long count) {
+        rejectedCount += count;
+        for (RejectedRow row : rows) {
+            if (rejections.size() == MAX_REPORTED_REJECTIONS) {
+                break;
+            }
+            rejections.add(row);
+        }
+    }
+
+    void cityImported(boolean created) {
+        if (created) {
+            citiesCreated++;
+        } else {
+            citiesMatched++;
+        }
+    }
+
+    void routeImported(boolean created) {
+        if (created) {
+            routesCreated++;
+        } else {
+            routesMatched++;
+        }
+    }
+
+    void busImported(boolean created) {
+        if (created) {
+            busesCreated++;
+        } else {
+            busesMatched++;
+        }
+    }
+
+    void setTripsRead(long tripsRead) {
+        this.tripsRead = tripsRead;
+    }
+
+    void setTripsImported(long tripsImported) {
+        this.tripsImported = tripsImported;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getCitiesCreated() {
+        return citiesCreated;
+    }
+
+    public int getCitiesMatched() {
+        return citiesMatched;
+    }
+
+    public int getRoutesCreated() {
+        return routesCreated;
+    }
+
+    public int getRoutesMatched() {
+        return routesMatched;
+    }
+
+    public int getBusesCreated() {
+        return busesCreated;
+    }
+
+    public int getBusesMatched() {
+        return busesMatched;
+    }
+
+    public long getTripsRead() {
+        return tripsRead;
+    }
+
+    public long getTripsImported() {
+        return tripsImported;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public List<RejectedRow> getRejections() {
+        return rejections;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getTripsPerSecond() {
+        return elapsedMillis > 0 ? tripsRead * 1000 / elapsedMillis : tripsRead;
+    }
+
+    public static class RejectedRow {
+        private final String file;
+        private final long line;
+        private final String reason;
+
+        RejectedRow(String file, long line, String reason) {
+            this.file = file;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One itinerary from the journey planner: the schedules to ride, in order.
+ */
+public class Journey {
+
+    private final List<Schedule> legs;
+
+    public Journey(List<Schedule> legs) {
+        this.legs = Collections.unmodifiableList(legs);
+    }
+
+    public List<Schedule> getLegs() {
+        return legs;
+    }
+
+    public LocalDateTime getDepartureTime() {
+        return legs.get(0).getDepartureTime();
+    }
+
+    public LocalDateTime getArrivalTime() {
+        return legs.get(legs.size() - 1).getArrivalTime();
+    }
+
+    public int getTransfers() {
+        return legs.size() - 1;
+    }
+
+    public long getTotalMinutes() {
+        return Duration.between(getDepartureTime(), getArrivalTime()).toMinutes();
+    }
+
+    public double getTotalFare() {
+        double total = 0;
+        for (Schedule leg : legs) {
+            Double fare = leg.getRoute().getFareAmount();
+            total += fare != null ? fare : 0;
+        }
+        return total;
+    }
+}
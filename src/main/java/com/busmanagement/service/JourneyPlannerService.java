@@ -0,0 +1,214 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Multi-leg journey planning over the schedule timetable.
+ *
+ * Range search in the style of rRAPTOR, scanning the packed connection arrays of a
+ * {@link Timetable}: round k finds the earliest arrival at every city using at most
+ * k schedules, and runs for later first departures are done first so their labels
+ * prune the earlier ones. The result is the Pareto set over later departure,
+ * earlier arrival and fewer transfers.
+ */
+@Service
+public class JourneyPlannerService {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final InMemoryScheduleRepository scheduleRepository;
+    private final int minTransferMinutes;
+    private final int maxLegs;
+    private final int maxJourneyMinutes;
+    private volatile Timetable timetable;
+
+    @Autowired
+    public JourneyPlannerService(InMemoryScheduleRepository scheduleRepository,
+            @Value("${planner.min-transfer-minutes:30}") int minTransferMinutes,
+            @Value("${planner.max-legs:3}") int maxLegs,
+            @Value("${planner.max-journey-hours:48}") int maxJourneyHours) {
+        if (maxLegs < 1) {
+            throw new IllegalArgumentException("planner.max-legs must be at least 1");
+        }
+        this.scheduleRepository = scheduleRepository;
+        this.minTransferMinutes = minTransferMinutes;
+        this.maxLegs = maxLegs;
+        this.maxJourneyMinutes = maxJourneyHours * 60;
+    }
+
+    // Journeys whose first leg leaves on the given date
+    public List<Journey> planJourneys(Long sourceId, Long destinationId, LocalDate travelDate) {
+        LocalDateTime startOfDay = travelDate.atStartOfDay();
+        return planJourneys(sourceId, destinationId, startOfDay, startOfDay.plusDays(1));
+    }
+
+    // Pareto-optimal journeys whose first leg departs in [from, to), ordered by departure
+    public List<Journey> planJourneys(Long sourceId, Long destinationId, LocalDateTime from, LocalDateTime to) {
+        Timetable tt = currentTimetable();
+        int source = tt.stop(sourceId);
+        int target = tt.stop(destinationId);
+        if (source < 0 || target < 0 || source == target) {
+            return new ArrayList<>();
+        }
+
+        int windowStart = Timetable.toMinute(from);
+        int windowEnd = Timetable.toMinute(to);
+        int horizon = windowEnd + maxJourneyMinutes;
+        int[] departures = departuresFrom(tt, source, windowStart, windowEnd);
+
+        // arrival[k][stop]: earliest arrival using at most k legs; parent[k][stop]: connection that set it,
+        // or -1 when the label was inherited from round k - 1
+        int[][] arrival = new int[maxLegs + 1][tt.stopCount];
+        int[][] parent = new int[maxLegs + 1][tt.stopCount];
+        for (int k = 0; k <= maxLegs; k++) {
+            Arrays.fill(arrival[k], UNREACHED);
+            Arrays.fill(parent[k], -1);
+        }
+        int[] previousBest = new int[maxLegs + 1];
+        // Stops whose label improved in the previous round of the current run; only they can board anything new
+        boolean[] marked = new boolean[tt.stopCount];
+        boolean[] nextMarked = new boolean[tt.stopCount];
+        List<Journey> journeys = new ArrayList<>();
+
+        for (int d = departures.length - 1; d >= 0; d--) {
+            int departure = departures[d];
+            for (int k = 0; k <= maxLegs; k++) {
+                previousBest[k] = arrival[k][target];
+            }
+            arrival[0][source] = departure;
+            Arrays.fill(marked, false);
+            marked[source] = true;
+            int scanFrom = tt.firstDepartingAtOrAfter(departure);
+
+            for (int k = 1; k <= maxLegs; k++) {
+                int[] ready = arrival[k - 1];
+                int[] current = arrival[k];
+                int[] via = parent[k];
+                for (int stop = 0; stop < tt.stopCount; stop++) {
+                    if (ready[stop] < current[stop]) {
+                        current[stop] = ready[stop];
+                        via[stop] = -1;
+                    }
+                }
+
+                Arrays.fill(nextMarked, false);
+                int earliestArrival = UNREACHED;
+                for (int c = scanFrom; c < tt.size(); c++) {
+                    int departureMinute = tt.departureMinute[c];
+                    // Nothing leaving after we could already be at the target can help
+                    if (departureMinute >= horizon || departureMinute >= current[target]) {
+                        break;
+                    }
+                    // The first leg leaves exactly at this run's departure; later ones were covered by earlier runs
+                    if (k == 1 && departureMinute > departure) {
+                        break;
+                    }
+                    int boardAt = tt.departureStop[c];
+                    if (boardAt == source) {
+                        if (k > 1) {
+                            continue;
+                        }
+                    } else if (!marked[boardAt] || ready[boardAt] + minTransferMinutes > departureMinute) {
+                        continue;
+                    }
+                    int alightAt = tt.arrivalStop[c];
+                    int arrivalMinute = tt.arrivalMinute[c];
+                    if (alightAt == source || arrivalMinute >= current[alightAt]
+                            || arrivalMinute >= current[target]) {
+                        continue;
+                    }
+                    current[alightAt] = arrivalMinute;
+                    via[alightAt] = c;
+                    nextMarked[alightAt] = true;
+                    earliestArrival = Math.min(earliestArrival, arrivalMinute);
+                }
+
+                if (earliestArrival == UNREACHED) {
+                    break;
+                }
+                boolean[] swap = marked;
+                marked = nextMarked;
+                nextMarked = swap;
+                scanFrom = tt.firstDepartingAtOrAfter(earliestArrival + minTransferMinutes);
+            }
+
+            for (int k = 1; k <= maxLegs; k++) {
+                int arrivalAtTarget = arrival[k][target];
+                if (arrivalAtTarget < previousBest[k] && arrivalAtTarget < arrival[k - 1][target]) {
+                    journeys.add(reconstruct(tt, parent, source, target, k));
+                }
+            }
+        }
+
+        journeys.sort(Comparator.comparing(Journey::getDepartureTime)
+                .thenComparing(Journey::getArrivalTime));
+        return journeys;
+    }
+
+    private Timetable currentTimetable() {
+        long version = scheduleRepository.getModificationCount();
+        Timetable tt = timetable;
+        if (tt != null && tt.version == version) {
+            return tt;
+        }
+        synchronized (this) {
+            tt = timetable;
+            version = scheduleRepository.getModificationCount();
+            if (tt == null || tt.version != version) {
+                // Version is read before the snapshot, so a concurrent write triggers another rebuild
+                tt = Timetable.build(scheduleRepository.findByStatus(Schedule.ScheduleStatus.SCHEDULED), version);
+                timetable = tt;
+            }
+            return tt;
+        }
+    }
+
+    // Distinct departure minutes of connections leaving the source in [from, to), ascending
+    private static int[] departuresFrom(Timetable tt, int source, int from, int to) {
+        int[] departures = new int[16];
+        int count = 0;
+        for (int c = tt.firstDepartingAtOrAfter(from); c < tt.size() && tt.departureMinute[c] < to; c++) {
+            if (tt.departureStop[c] != source) {
+                continue;
+            }
+            int minute = tt.departureMinute[c];
+            if (count > 0 && departures[count - 1] == minute) {
+                continue;
+            }
+            if (count == departures.length) {
+                departures = Arrays.copyOf(departures, count * 2);
+            }
+            departures[count++] = minute;
+        }
+        return Arrays.copyOf(departures, count);
+    }
+
+    private static Journey reconstruct(Timetable tt, int[][] parent, int source, int target, int legs) {
+        List<Schedule> path = new ArrayList<>(legs);
+        int stop = target;
+        int k = legs;
+        while (stop != source) {
+            while (parent[k][stop] == -1) {
+                k--;
+            }
+            int c = parent[k][stop];
+            path.add(tt.schedules[c]);
+            stop = tt.departureStop[c];
+            k--;
+        }
+        Collections.reverse(path);
+        return new Journey(path);
+    }
+}
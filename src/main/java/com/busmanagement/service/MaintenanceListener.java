@@ -0,0 +1,12 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Maintenance;
+
+/**
+ * Told when a scheduled maintenance job passes its date without being started.
+ * Called on the maintenance scheduler's timer thread, so implementations must
+ * not block.
+ */
+public interface MaintenanceListener {
+    void maintenanceOverdue(Maintenance maintenance);
+}
@@ -0,0 +1,97 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Maintenance;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves scheduled maintenance jobs from upcoming to overdue when their date
+ * arrives. One timer is kept set for the earliest upcoming date; when it fires
+ * the due jobs are moved, listeners are told, and the timer is set for the
+ * next date. Saving a job with an earlier date sets the timer sooner.
+ * A job saved with a date already past goes straight to overdue and is not
+ * announced, as it never was upcoming.
+ */
+@Service
+public class MaintenanceScheduler {
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceScheduler.class);
+
+    private final InMemoryMaintenanceRepository maintenanceRepository;
+    private final List<MaintenanceListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> pending;
+    private LocalDateTime pendingDeadline;
+
+    @Autowired
+    public MaintenanceScheduler(InMemoryMaintenanceRepository maintenanceRepository) {
+        this.maintenanceRepository = maintenanceRepository;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "maintenance-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenanceRepository.setDeadlineListener(this::arm);
+        arm(maintenanceRepository.nextDeadline());
+    }
+
+    public void addListener(MaintenanceListener listener) {
+        listeners.add(listener);
+    }
+
+    // Make sure the timer fires no later than deadline
+    private synchronized void arm(LocalDateTime deadline) {
+        if (deadline == null || timer.isShutdown()) {
+            return;
+        }
+        if (pending != null && !pendingDeadline.isAfter(deadline)) {
+            return;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), deadline).toMillis());
+        pendingDeadline = deadline;
+        pending = timer.schedule(this::fire, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        synchronized (this) {
+            pending = null;
+            pendingDeadline = null;
+        }
+        // A job saved after this point re-arms the timer itself, so none is missed
+        List<Maintenance> due = maintenanceRepository.promoteOverdue(LocalDateTime.now());
+        for (Maintenance maintenance : due) {
+            log.info("Maintenance {} for bus {} is overdue (scheduled {})", maintenance.getId(),
+                    maintenance.getBus() != null ? maintenance.getBus().getRegistrationNumber() : null,
+                    maintenance.getScheduledDate());
+            for (MaintenanceListener listener : listeners) {
+                try {
+                    listener.maintenanceOverdue(maintenance);
+                } catch (RuntimeException e) {
+                    log.warn("Maintenance listener failed for job {}", maintenance.getId(), e);
+                }
+            }
+        }
+        // The timer can fire early (a clock change, a job moved later); this just sets it again
+        arm(maintenanceRepository.nextDeadline());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
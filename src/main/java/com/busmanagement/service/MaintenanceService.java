@@ -2,6 +2,8 @@ package com.busmanagement.service;
 
 import com.busmanagement.model.Bus;
 import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Maintenance.MaintenanceStatus;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.repository.InMemoryMaintenanceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,11 +17,19 @@ public class MaintenanceService {
 
     private final InMemoryMaintenanceRepository maintenanceRepository;
     private final BusService busService;
+    private final MaintenanceScheduler maintenanceScheduler;
 
     @Autowired
-    public MaintenanceService(InMemoryMaintenanceRepository maintenanceRepository, BusService busService) {
+    public MaintenanceService(InMemoryMaintenanceRepository maintenanceRepository, BusService busService,
+            MaintenanceScheduler maintenanceScheduler) {
         this.maintenanceRepository = maintenanceRepository;
         this.busService = busService;
+        this.maintenanceScheduler = maintenanceScheduler;
+    }
+
+    // Hear about scheduled jobs as their date passes without them being started
+    public void addMaintenanceListener(MaintenanceListener listener) {
+        maintenanceScheduler.addListener(listener);
     }
 
     // Get all maintenance records
@@ -27,6 +37,16 @@ public class MaintenanceService {
         return maintenanceRepository.findAll();
     }
 
+    // Page of maintenance records in id order, starting after the given cursor
+    public CursorPage<Maintenance> getMaintenancePage(Long afterId, int limit) {
+        return maintenanceRepository.findPage(afterId, limit);
+    }
+
+    // Bumped by every maintenance write, for HTTP validators
+    public long getModificationCount() {
+        return maintenanceRepository.getModificationCount();
+    }
+
     // Get maintenance record by id
     public Optional<Maintenance> getMaintenanceById(Long id) {
         return maintenanceRepository.findById(id);
@@ -38,7 +58,7 @@ public class MaintenanceService {
         validateMaintenance(maintenance);
 
         // Set bus status to MAINTENANCE if it's starting now
-        if (maintenance.getStatus().equals("IN_PROGRESS")) {
+        if (maintenance.lifecycleStatus() == MaintenanceStatus.IN_PROGRESS) {
             changeBusStatus(maintenance.getBus().getId(), Bus.BusStatus.MAINTENANCE);
         }
 
@@ -54,15 +74,15 @@ public class MaintenanceService {
             Maintenance current = existingMaintenance.get();
 
             // If status changed from SCHEDULED to IN_PROGRESS
-            if (!current.getStatus().equals("IN_PROGRESS") &&
-                    maintenance.getStatus().equals("IN_PROGRESS")) {
+            if (current.lifecycleStatus() != MaintenanceStatus.IN_PROGRESS &&
+                    maintenance.lifecycleStatus() == MaintenanceStatus.IN_PROGRESS) {
                 // Set bus to maintenance status
                 changeBusStatus(maintenance.getBus().getId(), Bus.BusStatus.MAINTENANCE);
             }
 
             // If status changed to COMPLETED
-            if (!current.getStatus().equals("COMPLETED") &&
-                    maintenance.getStatus().equals("COMPLETED")) {
+            if (current.lifecycleStatus() != MaintenanceStatus.COMPLETED &&
+                    maintenance.lifecycleStatus() == MaintenanceStatus.COMPLETED) {
                 // If not already set, set the completion date
                 if (maintenance.getCompletedDate() == null) {
                     maintenance.setCompletedDate(LocalDateTime.now());
@@ -101,7 +121,7 @@ public class MaintenanceService {
         return maintenanceRepository.findCompleted();
     }
 
-    // Get upcoming maintenance
+    // Get upcoming maintenance; the dashboard lists are kept sorted by the repository, so these are plain reads
     public List<Maintenance> getUpcomingMaintenance() {
         return maintenanceRepository.findUpcoming();
     }
@@ -111,41 +131,30 @@ public class MaintenanceService {
         return maintenanceRepository.findOverdue();
     }
 
-    // Complete a maintenance task
+    // Complete a maintenance task; refused unless it is scheduled or in progress
     public Maintenance completeMaintenance(Long id) {
-        Maintenance maintenance = maintenanceRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid maintenance ID: " + id));
-
-        maintenance.setStatus("COMPLETED");
-        maintenance.setCompletedDate(LocalDateTime.now());
+        Maintenance maintenance = maintenanceRepository.transition(id, MaintenanceStatus.COMPLETED,
+                m -> m.setCompletedDate(LocalDateTime.now()));
 
         // Set bus back to active status
         changeBusStatus(maintenance.getBus().getId(), Bus.BusStatus.ACTIVE);
 
-        return maintenanceRepository.save(maintenance);
+        return maintenance;
     }
 
-    // Start a maintenance task
+    // Start a maintenance task; refused unless it is scheduled
     public Maintenance startMaintenance(Long id) {
-        Maintenance maintenance = maintenanceRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid maintenance ID: " + id));
-
-        maintenance.setStatus("IN_PROGRESS");
+        Maintenance maintenance = maintenanceRepository.transition(id, MaintenanceStatus.IN_PROGRESS, m -> { });
 
         // Set bus to maintenance status
         changeBusStatus(maintenance.getBus().getId(), Bus.BusStatus.MAINTENANCE);
 
-        return maintenanceRepository.save(maintenance);
+        return maintenance;
     }
 
-    // Cancel a maintenance task
+    // Cancel a maintenance task; refused unless it is scheduled
     public Maintenance cancelMaintenance(Long id) {
-        Maintenance maintenance = maintenanceRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid maintenance ID: " + id));
-
-        maintenance.setStatus("CANCELLED");
-
-        return maintenanceRepository.save(maintenance);
+        return maintenanceRepository.transition(id, MaintenanceStatus.CANCELLED, m -> { });
     }
 
     // Private helper methods
@@ -0,0 +1,19 @@
+package com.busmanagement.service;
+
+/**
+ * The card processor, as seen by the PaymentProcessor. Calls block until the
+ * processor answers.
+ *
+ * Every call carries an idempotency key. Repeating a call with a key the
+ * processor has already accepted must not charge or refund again; it returns
+ * the original reference. That is what makes it safe to retry a call whose
+ * outcome is unknown, such as one that timed out.
+ */
+public interface PaymentGateway {
+
+    // Charge the customer; returns the processor's reference for the charge
+    String charge(String idempotencyKey, double amount, String paymentMethod);
+
+    // Refund part or all of an earlier charge; returns the processor's reference for the refund
+    String refund(String idempotencyKey, String paymentId, double amount);
+}
@@ -0,0 +1,20 @@
+package com.busmanagement.service;
+
+/**
+ * A gateway call that did not succeed. Retryable failures (timeouts, the
+ * processor being unavailable) may succeed if sent again with the same
+ * idempotency key; the rest, such as a declined card, will not.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public PaymentGatewayException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,12 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Payment;
+
+/**
+ * Told when the PaymentProcessor settles a charge, that is when the payment
+ * becomes COMPLETED or FAILED. Called on a payment worker thread after the
+ * payment has been saved.
+ */
+public interface PaymentListener {
+    void paymentSettled(Payment payment);
+}
@@ -0,0 +1,381 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Payment;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs charges and refunds against the PaymentGateway off the request thread.
+ *
+ * Submissions go into a bounded queue served by a fixed pool of workers; when
+ * the queue is full a charge is refused straight away rather than letting the
+ * backlog grow. A call that fails in a retryable way is sent again after an
+ * exponential backoff with jitter, from a timer, so a waiting retry does not
+ * hold a worker. Every call for a payment uses the same idempotency key (the
+ * paymentId, or REFUND- plus it), so a retry after an ambiguous failure can
+ * never charge twice, and a second submission of a payment that is still in
+ * flight joins the first instead of starting another.
+ *
+ * When a charge settles the payment is saved as COMPLETED or FAILED and the
+ * PaymentListeners are told. A refund recorded while the charge was still in
+ * flight is queued once it completes, or dropped if it failed. Payments still PENDING, and refunds still
+ * INITIATED, when the application stopped are resumed once it has started.
+ */
+@Service
+public class PaymentProcessor {
+    private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
+    private static final String REFUND_KEY_PREFIX = "REFUND-";
+
+    private final PaymentGateway gateway;
+    private final InMemoryPaymentRepository paymentRepository;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryTimer;
+    // Jobs queued, running or waiting to retry, by idempotency key
+    private final Map<String, Job> inFlight = new ConcurrentHashMap<>();
+    private final List<PaymentListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @Autowired
+    public PaymentProcessor(PaymentGateway gateway, InMemoryPaymentRepository paymentRepository,
+            @Value("${payment.pipeline.workers:16}") int workerCount,
+            @Value("${payment.pipeline.queue-capacity:10000}") int queueCapacity,
+            @Value("${payment.pipeline.max-attempts:5}") int maxAttempts,
+            @Value("${payment.pipeline.initial-backoff-ms:200}") long initialBackoffMillis,
+            @Value("${payment.pipeline.max-backoff-ms:10000}") long maxBackoffMillis) {
+        if (workerCount < 1 || queueCapacity < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("payment.pipeline workers, queue-capacity and max-attempts must be positive");
+        }
+        this.gateway = gateway;
+        this.paymentRepository = paymentRepository;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addListener(PaymentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Queue a saved, PENDING payment for charging. The future completes with
+     * the payment once it is COMPLETED or FAILED. Throws IllegalStateException,
+     * after marking the payment FAILED, when the queue is full.
+     */
+    public CompletableFuture<Payment> submitCharge(Payment payment) {
+        requireSubmittable(payment);
+        if (!payment.isPending()) {
+            return CompletableFuture.completedFuture(payment);
+        }
+        return submit(new Job(payment.getPaymentId(), payment, false));
+    }
+
+    /**
+     * Queue the refund of payment.refundAmount for a COMPLETED payment whose
+     * refund is INITIATED. A refund is owed money, so unlike a charge it is never
+     * refused: when the queue is full it waits for room.
+     */
+    public CompletableFuture<Payment> submitRefund(Payment payment) {
+        requireSubmittable(payment);
+        if (!payment.isCompleted()) {
+            throw new IllegalStateException("Payment " + payment.getPaymentId() + " has not been charged");
+        }
+        if (!"INITIATED".equals(payment.getRefundStatus())) {
+            return CompletableFuture.completedFuture(payment);
+        }
+        Job job = new Job(REFUND_KEY_PREFIX + payment.getPaymentId(), payment, true);
+        Job existing = inFlight.putIfAbsent(job.key, job);
+        if (existing != null) {
+            return existing.result;
+        }
+        dispatch(job);
+        return job.result;
+    }
+
+    /**
+     * Queue refunds in bulk, as after a trip is cancelled. Like submitRefund
+     * these are never refused: when the queue is full they wait for room.
+     */
+    public void submitRefunds(List<Payment> payments) {
+        for (Payment payment : payments) {
+            requireSubmittable(payment);
+            if (!payment.isCompleted() || !"INITIATED".equals(payment.getRefundStatus())) {
+                continue;
+            }
+            enqueue(new Job(REFUND_KEY_PREFIX + payment.getPaymentId(), payment, true));
+        }
+    }
+
+    /**
+     * Charge on the calling thread, retrying with the same backoff as the
+     * queue, for callers that must have the outcome before they answer.
+     */
+    public Payment chargeNow(Payment payment) {
+        requireSubmittable(payment);
+        if (!payment.isPending()) {
+            return payment;
+        }
+        Job job = new Job(payment.getPaymentId(), payment, false);
+        Job existing = inFlight.putIfAbsent(job.key, job);
+        if (existing != null) {
+            return existing.result.join();
+        }
+        try {
+            while (!job.attempt()) {
+                retryCount.incrementAndGet();
+                TimeUnit.MILLISECONDS.sleep(backoffMillis(job.attempts));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IllegalStateException failure = new IllegalStateException("Interrupted while charging payment " + job.key);
+            inFlight.remove(job.key, job);
+            job.result.completeExceptionally(failure);
+            throw failure;
+        } catch (RuntimeException e) {
+            inFlight.remove(job.key, job);
+            job.result.completeExceptionally(e);
+            throw e;
+        }
+        return payment;
+    }
+
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    // Pick up what the previous run left unsettled; waits for queue space rather than refusing
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnsettled() {
+        int resumed = 0;
+        for (Payment payment : paymentRepository.findAll()) {
+            if (payment.getPaymentId() == null) {
+                continue;
+            }
+            Job job = null;
+            if (payment.isPending()) {
+                job = new Job(payment.getPaymentId(), payment, false);
+            } else if (payment.isCompleted() && "INITIATED".equals(payment.getRefundStatus())) {
+                job = new Job(REFUND_KEY_PREFIX + payment.getPaymentId(), payment, true);
+            }
+            if (job != null && enqueue(job)) {
+                resumed++;
+            }
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} unsettled payments and refunds", resumed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Anything not finished stays PENDING or INITIATED and is resumed on the next start
+        retryTimer.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void requireSubmittable(Payment payment) {
+        if (payment.getId() == null || payment.getPaymentId() == null) {
+            throw new IllegalArgumentException("Payment must be saved with a paymentId before it is processed");
+        }
+    }
+
+    private CompletableFuture<Payment> submit(Job job) {
+        Job existing = inFlight.putIfAbsent(job.key, job);
+        if (existing != null) {
+            return existing.result;
+        }
+        try {
+            workers.execute(job);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            settle(job, "Payment queue is full");
+            throw new IllegalStateException("Too many payments in progress, please try again shortly");
+        }
+        return job.result;
+    }
+
+    // Queue a job unless one with the same key is in flight, waiting for room rather than refusing
+    private boolean enqueue(Job job) {
+        if (inFlight.putIfAbsent(job.key, job) != null) {
+            return false;
+        }
+        dispatch(job);
+        return true;
+    }
+
+    // Hand a job to the workers, waiting on the timer while the queue is full
+    private void dispatch(Job job) {
+        try {
+            workers.execute(job);
+        } catch (RejectedExecutionException e) {
+            schedule(job, initialBackoffMillis);
+        }
+    }
+
+    private void schedule(Job job, long delayMillis) {
+        if (workers.isShutdown()) {
+            return;
+        }
+        try {
+            retryTimer.schedule(() -> dispatch(job), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    // Exponential in the attempts made so far, capped, with the upper half jittered so retries spread out
+    private long backoffMillis(int attempts) {
+        long ceiling = initialBackoffMillis << Math.min(attempts - 1, 30);
+        ceiling = Math.min(maxBackoffMillis, ceiling);
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void settle(Job job, String failure) {
+        // Under the write lock, so a refund recorded at the same moment either is seen here or sees the outcome
+        AtomicBoolean refundWaiting = new AtomicBoolean();
+        Payment payment = paymentRepository.update(job.payment.getId(), p -> {
+            if (job.refund) {
+                p.setRefundStatus(failure == null ? "PROCESSED" : "FAILED");
+                p.setRefundTime(LocalDateTime.now());
+            } else {
+                p.setStatus(failure == null ? "COMPLETED" : "FAILED");
+                p.setFailureReason(failure);
+                if ("INITIATED".equals(p.getRefundStatus())) {
+                    if (failure == null) {
+                        refundWaiting.set(true);
+                    } else {
+                        // Refund asked for while the charge was in flight; nothing was charged
+                        p.setRefundStatus("NONE");
+                        p.setRefundAmount(0);
+                    }
+                }
+            }
+        });
+        if (job.refund && failure != null) {
+            log.warn("Refund for payment {} failed: {}", payment.getPaymentId(), failure);
+        }
+        inFlight.remove(job.key, job);
+        if (refundWaiting.get()) {
+            // Refund asked for while the charge was in flight
+            enqueue(new Job(REFUND_KEY_PREFIX + payment.getPaymentId(), payment, true));
+        }
+        if (!job.refund) {
+            for (PaymentListener listener : listeners) {
+                try {
+                    listener.paymentSettled(payment);
+                } catch (RuntimeException e) {
+                    log.error("Payment listener failed for {}", payment.getPaymentId(), e);
+                }
+            }
+        }
+        job.result.complete(payment);
+    }
+
+    private final class Job implements Runnable {
+        private final String key;
+        private final Payment payment;
+        private final boolean refund;
+        private final CompletableFuture<Payment> result = new CompletableFuture<>();
+        // Only touched by the thread running the job; hand-offs go through the executors
+        private int attempts;
+
+        Job(String key, Payment payment, boolean refund) {
+            this.key = key;
+            this.payment = payment;
+            this.refund = refund;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!attempt()) {
+                    retryCount.incrementAndGet();
+                    schedule(this, backoffMillis(attempts));
+                }
+            } catch (RuntimeException e) {
+                // Saving the outcome failed; the payment is resumed on the next start
+                log.error("Could not settle payment {}", key, e);
+                inFlight.remove(key, this);
+                result.completeExceptionally(e);
+            }
+        }
+
+        // One gateway call; false when it should be retried
+        boolean attempt() {
+            attempts++;
+            String failure = null;
+            try {
+                if (refund) {
+                    gateway.refund(key, payment.getPaymentId(), payment.getRefundAmount());
+                } else {
+                    gateway.charge(key, payment.getAmount(), payment.getPaymentMethod());
+                }
+            } catch (PaymentGatewayException e) {
+                if (e.isRetryable() && attempts < maxAttempts) {
+                    return false;
+                }
+                failure = e.getMessage();
+            } catch (RuntimeException e) {
+                log.error("Gateway call for {} failed unexpectedly", key, e);
+                failure = "Payment gateway error";
+            }
+            settle(this, failure);
+            return true;
+        }
+    }
+}
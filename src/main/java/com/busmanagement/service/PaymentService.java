@@ -5,16 +5,27 @@ import com.busmanagement.repository.InMemoryPaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class PaymentService {
     private final InMemoryPaymentRepository paymentRepository;
+    private final PaymentProcessor paymentProcessor;
+    private final AtomicLong paymentSequence = new AtomicLong();
 
     @Autowired
-    public PaymentService(InMemoryPaymentRepository paymentRepository) {
+    public PaymentService(InMemoryPaymentRepository paymentRepository, PaymentProcessor paymentProcessor) {
         this.paymentRepository = paymentRepository;
+        this.paymentProcessor = paymentProcessor;
     }
 
     public List<Payment> getAllPayments() {
@@ -29,6 +40,10 @@ public class PaymentService {
         return paymentRepository.findByBookingId(bookingId);
     }
 
+    public List<Payment> getPaymentsByBookingIds(Collection<Long> bookingIds) {
+        return paymentRepository.findByBookingIds(bookingIds);
+    }
+
     public Optional<Payment> getPaymentByPaymentId(String paymentId) {
         return paymentRepository.findByPaymentId(paymentId);
     }
@@ -41,19 +56,77 @@ public class PaymentService {
         paymentRepository.deleteById(id);
     }
 
-    // Sample payment gateway integration method
+    public void addPaymentListener(PaymentListener listener) {
+        paymentProcessor.addListener(listener);
+    }
+
+    // Save the payment as PENDING and queue it for the gateway; listeners hear when it settles
+    public CompletableFuture<Payment> submitPayment(Payment payment) {
+        return paymentProcessor.submitCharge(prepare(payment));
+    }
+
+    // Charge on the calling thread and wait for the gateway, for callers that need the outcome to answer
     public Payment processPayment(Payment payment) {
-        // In a real system, this would integrate with a payment gateway
-        // For demo purposes, we'll simulate a successful payment
-        payment.setPaymentId("PAY-" + System.currentTimeMillis());
-        return savePayment(payment);
+        return paymentProcessor.chargeNow(prepare(payment));
     }
 
-    // Sample refund processing method
+    // Record the refund as INITIATED and queue it; it becomes PROCESSED once the gateway accepts it
     public Payment processRefund(Payment payment, double amount) {
-        // In a real system, this would integrate with a payment gateway for refund
-        payment.setRefundAmount(amount);
-        payment.setRefundStatus("PROCESSED");
-        return savePayment(payment);
+        if (amount < 0 || amount > payment.getAmount()) {
+            throw new IllegalArgumentException("Refund amount must be between 0 and " + payment.getAmount());
+        }
+        // Decided under the write lock: a charge still in flight sends the refund itself once it settles
+        AtomicBoolean charged = new AtomicBoolean();
+        Payment saved = paymentRepository.update(payment.getId(), p -> {
+            if (p.isFailed()) {
+                throw new IllegalStateException("Payment " + p.getPaymentId() + " failed; there is nothing to refund");
+            }
+            p.setRefundAmount(amount);
+            p.setRefundStatus("INITIATED");
+            p.setRefundTime(LocalDateTime.now());
+            charged.set(p.isCompleted());
+        });
+        if (charged.get()) {
+            paymentProcessor.submitRefund(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Refund amounts[i] of payments[i] for each payment, as processRefund would,
+     * but with one bulk update and one hand-off to the pipeline for the lot.
+     * Failed payments are skipped. Returns the payments whose refund was recorded.
+     */
+    public List<Payment> processRefunds(List<Payment> payments, double[] amounts) {
+        Map<Long, Double> amountById = new LinkedHashMap<>();
+        for (int i = 0; i < payments.size(); i++) {
+            if (amounts[i] > 0) {
+                amountById.put(payments.get(i).getId(), amounts[i]);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> charged = new ArrayList<>(amountById.size());
+        List<Payment> refunded = paymentRepository.updateAll(amountById.keySet(), payment -> {
+            if (payment.isFailed()) {
+                return false;
+            }
+            payment.setRefundAmount(Math.min(amountById.get(payment.getId()), payment.getAmount()));
+            payment.setRefundStatus("INITIATED");
+            payment.setRefundTime(now);
+            // Charges still in flight send their refund once they settle
+            if (payment.isCompleted()) {
+                charged.add(payment);
+            }
+            return true;
+        });
+        paymentProcessor.submitRefunds(charged);
+        return refunded;
+    }
+
+    private Payment prepare(Payment payment) {
+        if (payment.getPaymentId() == null) {
+            payment.setPaymentId("PAY-" + System.currentTimeMillis() + "-" + paymentSequence.incrementAndGet());
+        }
+        return payment.getId() == null ? savePayment(payment) : payment;
     }
-}
\ No newline at end of file
+}
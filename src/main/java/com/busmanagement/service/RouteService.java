@@ -1,6 +1,7 @@
 package com.busmanagement.service;
 
 import com.busmanagement.model.Route;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.repository.InMemoryRouteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,7 +21,17 @@ public class RouteService {
 
     // Get all routes
     public List<Route> getAllRoutes() {
-        return routeRepository.findAll();
+        return routeRepository.findAllSnapshot();
+    }
+
+    // Page of routes in id order, starting after the given cursor
+    public CursorPage<Route> getRoutePage(Long afterId, int limit) {
+        return routeRepository.findPage(afterId, limit);
+    }
+
+    // Bumped by every route write, for HTTP validators
+    public long getModificationCount() {
+        return routeRepository.getModificationCount();
     }
 
     // Get route by ID
@@ -0,0 +1,61 @@
+package com.busmanagement.service;
+
+/**
+ * Outcome of cancelling a whole trip: how many bookings and tickets were
+ * cancelled, and how many refunds were handed to the payment pipeline. The
+ * refunds themselves settle later; see Payment.refundStatus.
+ */
+public class ScheduleCancellation {
+
+    private final Long scheduleId;
+    private int bookingsCancelled;
+    private int ticketsCancelled;
+    private int refundsQueued;
+    private double refundTotal;
+    private long elapsedMillis;
+
+    ScheduleCancellation(Long scheduleId) {
+        this.scheduleId = scheduleId;
+    }
+
+    void bookingsCancelled(int count) {
+        bookingsCancelled += count;
+    }
+
+    void ticketsCancelled(int count) {
+        ticketsCancelled += count;
+    }
+
+    void refundsQueued(int count, double amount) {
+        refundsQueued += count;
+        refundTotal += amount;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Long getScheduleId() {
+        return scheduleId;
+    }
+
+    public int getBookingsCancelled() {
+        return bookingsCancelled;
+    }
+
+    public int getTicketsCancelled() {
+        return ticketsCancelled;
+    }
+
+    public int getRefundsQueued() {
+        return refundsQueued;
+    }
+
+    public double getRefundTotal() {
+        return refundTotal;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,263 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.RouteDayListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of search results per (source city, destination city, travel
+ * date), in front of ScheduleService.findSchedulesByRouteAndDate.
+ *
+ * Hits are lock-free: a map lookup, a frequency bump and a reference bit.
+ * When full, a CLOCK sweep picks the least recently used entry as the victim,
+ * and a TinyLFU admission check lets the newcomer in only if it has been
+ * searched for more often than the victim, so a burst of one-off searches
+ * cannot flush the popular city pairs.
+ *
+ * The repository reports every route day a schedule write touches, and that
+ * entry is dropped. Seat counts are not part of an entry: the cached list
+ * holds the stored Schedule objects, whose availableSeats are kept current in
+ * place, so bookings need no invalidation.
+ */
+@Component
+public class ScheduleSearchCache implements RouteDayListener {
+    private final Map<SearchKey, Node> entries = new ConcurrentHashMap<>();
+    // CLOCK ring over the cached entries; a slot whose node is no longer in entries is free
+    private final Node[] ring;
+    private final FrequencySketch sketch;
+    private int hand;
+    private int used;
+    // Bumped before every invalidation, so a lookup that raced a write is not cached
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public ScheduleSearchCache(InMemoryScheduleRepository scheduleRepository,
+            @Value("${schedule.search-cache.capacity:1024}") int capacity) {
+        this.ring = new Node[Math.max(0, capacity)];
+        this.sketch = new FrequencySketch(Math.max(1, capacity));
+        scheduleRepository.addRouteDayListener(this);
+    }
+
+    // Cached results, or null on a miss; take stamp() before computing a result to put()
+    List<Schedule> get(Long sourceId, Long destinationId, LocalDate travelDate) {
+        if (ring.length == 0) {
+            return null;
+        }
+        SearchKey key = new SearchKey(sourceId, destinationId, travelDate);
+        sketch.increment(key);
+        Node node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        node.referenced = true;
+        hits.increment();
+        return node.schedules;
+    }
+
+    long stamp() {
+        return invalidationStamp.get();
+    }
+
+    // Cache results computed after stamp was taken, unless a schedule write has landed since
+    void put(Long sourceId, Long destinationId, LocalDate travelDate, List<Schedule> schedules, long stamp) {
+        if (ring.length == 0) {
+            return;
+        }
+        SearchKey key = new SearchKey(sourceId, destinationId, travelDate);
+        synchronized (this) {
+            if (invalidationStamp.get() != stamp) {
+                return;
+            }
+            Node previous = entries.get(key);
+            int slot;
+            if (previous != null) {
+                slot = previous.slot;
+            } else if (used < ring.length) {
+                slot = used++;
+            } else {
+                slot = sweep();
+                Node victim = ring[slot];
+                if (entries.get(victim.key) == victim) {
+                    // TinyLFU admission: keep the victim unless the newcomer is wanted more often
+                    if (sketch.frequency(key) <= sketch.frequency(victim.key)) {
+                        rejections.increment();
+                        return;
+                    }
+                    entries.remove(victim.key, victim);
+                    evictions.increment();
+                }
+            }
+            Node node = new Node(key, schedules, slot);
+            ring[slot] = node;
+            entries.put(key, node);
+            // An invalidation that bumped the stamp before this put could not see the entry; undo it
+            if (invalidationStamp.get() != stamp) {
+                entries.remove(key, node);
+            }
+        }
+    }
+
+    @Override
+    public void routeDayChanged(long sourceId, long destinationId, LocalDate departureDate) {
+        invalidationStamp.incrementAndGet();
+        if (entries.remove(new SearchKey(sourceId, destinationId, departureDate)) != null) {
+            invalidations.increment();
+        }
+    }
+
+    // Advance the hand to a free slot or to an entry not read since the hand last passed it
+    private int sweep() {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) % ring.length;
+            Node node = ring[slot];
+            if (node == null || entries.get(node.key) != node || !node.referenced) {
+                return slot;
+            }
+            node.referenced = false;
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Entries pushed out to make room
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Results not cached because they were searched for less often than the entry they would replace
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    // Entries dropped because a schedule on their route day was written
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private static final class Node {
+        private final SearchKey key;
+        private final List<Schedule> schedules;
+        private final int slot;
+        private volatile boolean referenced;
+
+        Node(SearchKey key, List<Schedule> schedules, int slot) {
+            this.key = key;
+            this.schedules = schedules;
+            this.slot = slot;
+        }
+    }
+
+    private static final class SearchKey {
+        private final long sourceId;
+        private final long destinationId;
+        private final LocalDate date;
+
+        SearchKey(long sourceId, long destinationId, LocalDate date) {
+            this.sourceId = sourceId;
+            this.destinationId = destinationId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SearchKey)) return false;
+            SearchKey other = (SearchKey) o;
+            return sourceId == other.sourceId && destinationId == other.destinationId && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceId, destinationId, date);
+        }
+    }
+
+    /**
+     * Count-min sketch of how often each key was searched for: four rows of
+     * counters saturating at 15, all halved once the sample size is reached so
+     * old popularity fades. Updates are unsynchronized; a lost increment only
+     * makes an estimate slightly low.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final int MAX_COUNT = 15;
+
+        private final int[] counters;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            width = Integer.highestOneBit(Math.max(16, capacity * 4) - 1) << 1;
+            counters = new int[SEEDS.length * width];
+            sampleSize = 10 * capacity;
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = indexOf(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return row * width + ((int) h & (width - 1));
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>>= 1;
+            }
+            additions = sampleSize / 2;
+        }
+    }
+}
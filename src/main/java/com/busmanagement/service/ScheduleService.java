@@ -3,31 +3,43 @@ package com.busmanagement.service;
 import com.busmanagement.model.Bus;
 import com.busmanagement.model.Route;
 import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.CursorPage;
 import com.busmanagement.repository.InMemoryScheduleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@DependsOn("persistenceManager") // recover persisted schedules before deciding to add sample data
 public class ScheduleService {
 
     private final InMemoryScheduleRepository scheduleRepository;
     private final BusService busService;
     private final RouteService routeService;
+    private final SeatInventoryService seatInventoryService;
+    private final ScheduleSearchCache searchCache;
 
     @Autowired
     public ScheduleService(InMemoryScheduleRepository scheduleRepository,
             BusService busService,
-            RouteService routeService) {
+            RouteService routeService,
+            SeatInventoryService seatInventoryService,
+            ScheduleSearchCache searchCache) {
         this.scheduleRepository = scheduleRepository;
         this.busService = busService;
         this.routeService = routeService;
+        this.seatInventoryService = seatInventoryService;
+        this.searchCache = searchCache;
 
         // Add some sample data if empty
         if (scheduleRepository.findAll().isEmpty()) {
@@ -35,26 +47,33 @@ public class ScheduleService {
         }
     }
 
+    // Served from the search cache when possible; the returned list is read-only
     public List<Schedule> findSchedulesByRouteAndDate(Long sourceId, Long destinationId, LocalDate travelDate) {
-        // Get the start and end of the day
+        List<Schedule> cached = searchCache.get(sourceId, destinationId, travelDate);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = searchCache.stamp();
+        // Get the start of the day and of the next day (exclusive upper bound)
         LocalDateTime startOfDay = LocalDateTime.of(travelDate, LocalTime.MIN);
-        LocalDateTime endOfDay = LocalDateTime.of(travelDate, LocalTime.MAX);
-
-        return scheduleRepository.findAll().stream()
-                .filter(schedule -> {
-                    // Skip any schedules with null routes
-                    if (schedule == null || schedule.getRoute() == null ||
-                            schedule.getRoute().getSource() == null ||
-                            schedule.getRoute().getDestination() == null) {
-                        return false;
-                    }
-
-                    Route route = schedule.getRoute();
-                    return route.getSource().getId().equals(sourceId) &&
-                            route.getDestination().getId().equals(destinationId) &&
-                            !schedule.getDepartureTime().isBefore(startOfDay) &&
-                            !schedule.getDepartureTime().isAfter(endOfDay);
-                })
+        LocalDateTime startOfNextDay = startOfDay.plusDays(1);
+
+        List<Schedule> schedules = scheduleRepository.findByRouteCitiesAndDepartureBetween(sourceId, destinationId,
+                startOfDay, startOfNextDay);
+        // Builds the seat inventory of trips not looked at since startup, which sets their seats-left count
+        for (Schedule schedule : schedules) {
+            seatInventoryService.getInventory(schedule);
+        }
+        schedules = Collections.unmodifiableList(schedules);
+        searchCache.put(sourceId, destinationId, travelDate, schedules, stamp);
+        return schedules;
+    }
+
+    // Same search, keeping only trips with at least minSeats free; the counts are maintained, not recounted
+    public List<Schedule> findSchedulesByRouteAndDate(Long sourceId, Long destinationId, LocalDate travelDate,
+            int minSeats) {
+        return findSchedulesByRouteAndDate(sourceId, destinationId, travelDate).stream()
+                .filter(schedule -> schedule.getAvailableSeats() >= minSeats)
                 .collect(Collectors.toList());
     }
 
@@ -74,26 +93,65 @@ public class ScheduleService {
             schedule.setArrivalTime(tomorrow.plusHours(routes.get(0).getDuration() / 60));
             schedule.setDriverName("John Driver");
             schedule.setAvailableSeats(activeBuses.get(0).getCapacity());
-            schedule.setStatus("Scheduled");
+            schedule.setStatus(ScheduleStatus.SCHEDULED.getLabel());
 
             scheduleRepository.save(schedule);
         }
     }
 
+    // Seats neither booked nor held, without reading any tickets once the trip's inventory is built
+    public int getSeatsLeft(Schedule schedule) {
+        return seatInventoryService.getInventory(schedule).getAvailableCount();
+    }
+
     public List<Schedule> getAllSchedules() {
         return scheduleRepository.findAll();
     }
 
+    // Page of schedules in id order, starting after the given cursor
+    public CursorPage<Schedule> getSchedulePage(Long afterId, int limit) {
+        return scheduleRepository.findPage(afterId, limit);
+    }
+
     public Optional<Schedule> getScheduleById(Long id) {
         return scheduleRepository.findById(id);
     }
 
     public Schedule saveSchedule(Schedule schedule) throws IllegalStateException {
         validateSchedule(schedule);
-        return scheduleRepository.save(schedule);
+        // Keep the stored bus rather than the form's copy, whose capacity may be missing
+        Bus bus = busService.getBusById(schedule.getBus().getId())
+                .orElseThrow(() -> new IllegalStateException("Selected bus does not exist"));
+        schedule.setBus(bus);
+        if (schedule.getId() != null) {
+            // A different bus or capacity resizes the seat map; refused if a taken seat would be lost
+            seatInventoryService.resizeInventory(schedule.getId(), bus.getCapacity() != null ? bus.getCapacity() : 0);
+        }
+        Schedule saved = scheduleRepository.save(schedule);
+        // An edit arrives as a new object with the full bus capacity; put back the seats already taken
+        seatInventoryService.refreshAvailableSeats(saved);
+        return saved;
     }
 
     private void validateSchedule(Schedule schedule) {
+        validateScheduleDetails(schedule);
+
+        // Check for scheduling conflicts, only for new schedules
+        if (schedule.getId() == null) {
+            boolean busAlreadyScheduled = isAlreadyScheduled(
+                    schedule.getBus().getId(), schedule.getDepartureTime(), schedule.getArrivalTime(), null);
+
+            if (busAlreadyScheduled) {
+                throw new IllegalStateException("Bus is already scheduled during this time period");
+            }
+        }
+    }
+
+    /**
+     * Every rule except the bus conflict check, which needs the other trips of the
+     * same bus. Only reads, so the timetable import runs it from several threads.
+     */
+    void validateScheduleDetails(Schedule schedule) {
         // 1. Check if bus exists and is active
         Bus bus = schedule.getBus();
         if (bus == null || bus.getId() == null) {
@@ -112,17 +170,7 @@ public class ScheduleService {
             throw new IllegalStateException("Cannot schedule a retired bus");
         }
 
-        // 3. Check for scheduling conflicts
-        if (schedule.getId() == null) { // Only for new schedules
-            boolean busAlreadyScheduled = scheduleRepository.isBusScheduledBetween(
-                    bus.getId(), schedule.getDepartureTime(), schedule.getArrivalTime());
-
-            if (busAlreadyScheduled) {
-                throw new IllegalStateException("Bus is already scheduled during this time period");
-            }
-        }
-
-        // 4. Check route exists
+        // 3. Check route exists
         Route route = schedule.getRoute();
         if (route == null || route.getId() == null) {
             throw new IllegalStateException("Route must be selected for schedule");
@@ -131,7 +179,7 @@ public class ScheduleService {
         routeService.getRouteById(route.getId())
                 .orElseThrow(() -> new IllegalStateException("Selected route does not exist"));
 
-        // 5. Validate times
+        // 4. Validate times
         if (schedule.getDepartureTime() == null || schedule.getArrivalTime() == null) {
             throw new IllegalStateException("Departure and arrival times must be specified");
         }
@@ -145,8 +193,24 @@ public class ScheduleService {
         }
     }
 
+    // Commit schedules that already passed validation, as one bulk write
+    void saveValidatedSchedules(List<Schedule> schedules) {
+        scheduleRepository.saveAll(schedules);
+    }
+
+    // Withdraw a trip; the bookings on it are cancelled by BookingService.cancelSchedule
+    Schedule markCancelled(Schedule schedule) {
+        return scheduleRepository.updateStatus(schedule.getId(), ScheduleStatus.CANCELLED);
+    }
+
+    // Whether the trip has been cancelled, as of the latest markCancelled
+    boolean isCancelled(Long scheduleId) {
+        return scheduleRepository.findStatus(scheduleId) == ScheduleStatus.CANCELLED;
+    }
+
     public void deleteSchedule(Long id) {
         scheduleRepository.deleteById(id);
+        seatInventoryService.evict(id);
     }
 
     public List<Schedule> getSchedulesByRouteId(Long routeId) {
@@ -158,30 +222,19 @@ public class ScheduleService {
     }
 
     public List<Bus> getAvailableBusesForTimeSlot(LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
-        // Get all active buses
-        List<Bus> activeBuses = busService.getActiveBuses();
+        // Buses with an active trip in this window, found with one range scan over the fleet
+        Set<Long> busyBusIds = scheduleRepository.findBusyBusIds(start, end, excludeScheduleId);
 
-        // Filter out buses that are already scheduled during this time period
-        return activeBuses.stream()
-                .filter(bus -> {
-                    // Check if this bus is available during the specified time period
-                    return !isAlreadyScheduled(bus.getId(), start, end, excludeScheduleId);
-                })
+        // Keep the active buses that are not busy
+        return busService.getActiveBuses().stream()
+                .filter(bus -> !busyBusIds.contains(bus.getId()))
                 .collect(Collectors.toList());
     }
 
     /**
      * Check if a bus is already scheduled during the specified time period
      */
-    private boolean isAlreadyScheduled(Long busId, LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
-        List<Schedule> busSchedules = scheduleRepository.findByBusId(busId);
-
-        return busSchedules.stream()
-                .filter(schedule -> !schedule.getId().equals(excludeScheduleId)) // Exclude current schedule being
-                                                                                 // edited
-                .filter(schedule -> "Scheduled".equals(schedule.getStatus())
-                        || "In-Progress".equals(schedule.getStatus()))
-                .anyMatch(schedule -> (start.isBefore(schedule.getArrivalTime())
-                        && end.isAfter(schedule.getDepartureTime())));
-    }
-}
\ No newline at end of file
+    boolean isAlreadyScheduled(Long busId, LocalDateTime start, LocalDateTime end, Long excludeScheduleId) {
+        return scheduleRepository.isBusScheduledBetween(busId, start, end, excludeScheduleId);
+    }
+}
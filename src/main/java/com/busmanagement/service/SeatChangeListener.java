@@ -0,0 +1,9 @@
+package com.busmanagement.service;
+
+/**
+ * Told about every seat that changes state in the SeatInventoryService.
+ * Called on the thread that made the change, so implementations must not block.
+ */
+public interface SeatChangeListener {
+    void seatChanged(long scheduleId, int seatNumber, SeatState state);
+}
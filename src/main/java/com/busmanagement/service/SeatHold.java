@@ -0,0 +1,73 @@
+package com.busmanagement.service;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A temporary claim on one seat of one schedule, held between seat selection
+ * and booking confirmation.
+ */
+public final class SeatHold {
+    private final long holdId;
+    private final long scheduleId;
+    private final int seatNumber;
+    private final String owner;
+    private final long expiresAtNanos;
+    // The timer that gives the seat back at expiry
+    private volatile ScheduledFuture<?> expiry;
+
+    SeatHold(long holdId, long scheduleId, int seatNumber, String owner, long expiresAtNanos) {
+        this.holdId = holdId;
+        this.scheduleId = scheduleId;
+        this.seatNumber = seatNumber;
+        this.owner = owner;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public long getHoldId() {
+        return holdId;
+    }
+
+    public long getScheduleId() {
+        return scheduleId;
+    }
+
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    // Who placed the hold, e.g. the HTTP session id; only they can convert or release it
+    public String getOwner() {
+        return owner;
+    }
+
+    boolean isFor(long scheduleId, int seatNumber) {
+        return this.scheduleId == scheduleId && this.seatNumber == seatNumber;
+    }
+
+    // Seconds left before the hold lapses, for display
+    public long getRemainingSeconds() {
+        return Math.max(0, getDelay(TimeUnit.SECONDS));
+    }
+
+    long key() {
+        return SeatHoldService.key(scheduleId, seatNumber);
+    }
+
+    // Time left before the hold lapses; zero or less once it has
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    void setExpiry(ScheduledFuture<?> expiry) {
+        this.expiry = expiry;
+    }
+
+    // Take the timer out of the queue once the hold is converted or released
+    void cancelExpiry() {
+        ScheduledFuture<?> scheduled = expiry;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+}
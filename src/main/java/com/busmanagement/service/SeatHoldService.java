@@ -0,0 +1,160 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-bounded seat holds. A hold claims the seat in the schedule's
+ * SeatInventory so nobody else can book it, and a single timer thread gives
+ * the seat back when the hold lapses. Only expired holds are ever touched, so
+ * expiry cost does not grow with the number of holds in flight, and a hold
+ * converted or released early has its timer taken out of the queue at once.
+ */
+@Service
+public class SeatHoldService {
+
+    private final SeatInventoryService seatInventoryService;
+    private final long ttlNanos;
+    private final Map<Long, SeatHold> holds = new ConcurrentHashMap<>();
+    // Each owner's current hold; a new one replaces it
+    private final Map<String, SeatHold> holdsByOwner = new ConcurrentHashMap<>();
+    private final AtomicLong holdIdCounter = new AtomicLong(1);
+    private final ScheduledThreadPoolExecutor expiryTimer;
+
+    @Autowired
+    public SeatHoldService(SeatInventoryService seatInventoryService,
+            @Value("${booking.seat-hold.ttl-seconds:600}") long ttlSeconds) {
+        this.seatInventoryService = seatInventoryService;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        this.expiryTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A cancelled timer leaves the queue straight away instead of waiting out the TTL
+        this.expiryTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    // Schedule id and seat number packed into one map key
+    static long key(long scheduleId, int seatNumber) {
+        return (scheduleId << 16) | (seatNumber & 0xFFFF);
+    }
+
+    /**
+     * Hold a seat for the configured TTL on behalf of owner (the customer's
+     * session). Fails if the seat is booked or held by someone else. An owner
+     * has at most one live hold: asking again for the seat it already holds
+     * returns that hold, e.g. after a back or refresh, and holding another seat
+     * gives the previous one back once the new claim has succeeded.
+     */
+    public SeatHold placeHold(Schedule schedule, int seatNumber, String owner) {
+        if (owner == null) {
+            throw new IllegalArgumentException("A seat hold needs an owner");
+        }
+        SeatHold[] placed = new SeatHold[1];
+        // compute() keeps two requests from the same session from each placing a hold
+        holdsByOwner.compute(owner, (o, current) -> {
+            SeatHold previous = current;
+            if (previous != null && !isLive(previous)) {
+                // Lapsed but not yet expired by the background thread: give its seat back now
+                release(previous);
+                previous = null;
+            }
+            if (previous != null && previous.isFor(schedule.getId(), seatNumber)) {
+                placed[0] = previous;
+                return previous;
+            }
+            // Throws if the seat is taken, leaving the previous hold in place
+            seatInventoryService.holdSeat(schedule, seatNumber);
+            SeatHold hold = new SeatHold(holdIdCounter.getAndIncrement(), schedule.getId(), seatNumber, owner,
+                    System.nanoTime() + ttlNanos);
+            holds.put(hold.key(), hold);
+            hold.setExpiry(expiryTimer.schedule(() -> expire(hold), ttlNanos, TimeUnit.NANOSECONDS));
+            if (previous != null) {
+                release(previous);
+            }
+            placed[0] = hold;
+            return hold;
+        });
+        return placed[0];
+    }
+
+    /**
+     * Hand a live hold over to a booking. The seat stays claimed and the hold is
+     * forgotten. Returns false if the hold is unknown, belongs to another seat or
+     * another owner, or has already lapsed.
+     */
+    public boolean convertHold(Long holdId, Long scheduleId, int seatNumber, String owner) {
+        SeatHold hold = find(holdId, scheduleId, seatNumber, owner);
+        if (hold == null || hold.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+            return false;
+        }
+        if (!holds.remove(hold.key(), hold)) {
+            return false;
+        }
+        hold.cancelExpiry();
+        holdsByOwner.remove(owner, hold);
+        seatInventoryService.confirmHeldSeat(scheduleId, seatNumber);
+        return true;
+    }
+
+    // Give up a hold early, e.g. when the customer leaves the booking flow
+    public void releaseHold(Long holdId, Long scheduleId, int seatNumber, String owner) {
+        SeatHold hold = find(holdId, scheduleId, seatNumber, owner);
+        if (hold != null) {
+            holdsByOwner.remove(owner, hold);
+            release(hold);
+        }
+    }
+
+    // The live hold with this id on this seat, if owner placed it; hold ids are sequential, so the owner is checked
+    private SeatHold find(Long holdId, Long scheduleId, int seatNumber, String owner) {
+        if (holdId == null || scheduleId == null || owner == null) {
+            return null;
+        }
+        SeatHold hold = holds.get(key(scheduleId, seatNumber));
+        return hold != null && hold.getHoldId() == holdId && owner.equals(hold.getOwner()) ? hold : null;
+    }
+
+    private boolean isLive(SeatHold hold) {
+        return holds.get(hold.key()) == hold && hold.getDelay(TimeUnit.NANOSECONDS) > 0;
+    }
+
+    // Whoever removes the hold from the map frees the seat, so it is freed once
+    private void release(SeatHold hold) {
+        if (holds.remove(hold.key(), hold)) {
+            hold.cancelExpiry();
+            seatInventoryService.releaseSeat(hold.getScheduleId(), hold.getSeatNumber());
+        }
+    }
+
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    // Runs on the timer when the TTL is up; a hold converted or released just before is no longer in the map
+    private void expire(SeatHold hold) {
+        holdsByOwner.remove(hold.getOwner(), hold);
+        release(hold);
+    }
+
+    // Holds still queued for expiry, for monitoring and tests
+    int getPendingExpiryCount() {
+        return expiryTimer.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryTimer.shutdownNow();
+    }
+}
@@ -0,0 +1,214 @@
+package com.busmanagement.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Occupancy of the seats on one schedule, packed one bit per seat, 63 seats
+ * to a word. Seats are numbered from 1 to capacity. Claims and releases are
+ * lock-free compare-and-set operations, so two concurrent claims on the same
+ * seat can never both succeed. A free-seat counter moves with every
+ * successful claim and release, so availability is read without counting bits.
+ *
+ * The top bit of each word seals it while the inventory is copied by resize.
+ * A claim or release that meets a sealed word waits for the copy, then carries
+ * on against the copy, or here again if the resize was refused. Once resized,
+ * this inventory forwards every call to its copy.
+ */
+public final class SeatInventory {
+    private static final int SEATS_PER_WORD = 63;
+    private static final long SEALED = 1L << 63;
+
+    private final long scheduleId;
+    private final int capacity;
+    private final AtomicLongArray words;
+    private final AtomicInteger available;
+    // Set once resize has copied every taken seat across
+    private volatile SeatInventory successor;
+
+    public SeatInventory(long scheduleId, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.scheduleId = scheduleId;
+        this.capacity = capacity;
+        this.words = new AtomicLongArray((capacity + SEATS_PER_WORD - 1) / SEATS_PER_WORD);
+        this.available = new AtomicInteger(capacity);
+    }
+
+    public long getScheduleId() {
+        return scheduleId;
+    }
+
+    public int getCapacity() {
+        SeatInventory next = successor;
+        return next != null ? next.getCapacity() : capacity;
+    }
+
+    public boolean isValidSeat(int seatNumber) {
+        SeatInventory next = successor;
+        return next != null ? next.isValidSeat(seatNumber) : seatNumber >= 1 && seatNumber <= capacity;
+    }
+
+    // Atomically marks the seat as taken; returns false if it was already taken or does not exist
+    public boolean claim(int seatNumber) {
+        if (seatNumber < 1 || seatNumber > capacity) {
+            SeatInventory next = resized();
+            return next != null && next.claim(seatNumber);
+        }
+        int index = (seatNumber - 1) / SEATS_PER_WORD;
+        long mask = 1L << ((seatNumber - 1) % SEATS_PER_WORD);
+        while (true) {
+            long current = words.get(index);
+            // A sealed word is frozen, so a seat taken in it is taken in the copy as well
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if ((current & SEALED) != 0) {
+                SeatInventory next = awaitResize(index);
+                if (next != null) {
+                    return next.claim(seatNumber);
+                }
+            } else if (words.compareAndSet(index, current, current | mask)) {
+                available.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // Atomically frees the seat; returns false if it was not taken
+    public boolean release(int seatNumber) {
+        if (seatNumber < 1 || seatNumber > capacity) {
+            SeatInventory next = resized();
+            return next != null && next.release(seatNumber);
+        }
+        int index = (seatNumber - 1) / SEATS_PER_WORD;
+        long mask = 1L << ((seatNumber - 1) % SEATS_PER_WORD);
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) == 0) {
+                // Free when sealed, but the copy may have had the seat claimed since
+                SeatInventory next = (current & SEALED) != 0 ? awaitResize(index) : null;
+                return next != null && next.release(seatNumber);
+            }
+            if ((current & SEALED) != 0) {
+                SeatInventory next = awaitResize(index);
+                if (next != null) {
+                    return next.release(seatNumber);
+                }
+            } else if (words.compareAndSet(index, current, current & ~mask)) {
+                available.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public boolean isTaken(int seatNumber) {
+        SeatInventory next = successor;
+        if (next != null) {
+            return next.isTaken(seatNumber);
+        }
+        if (!isValidSeat(seatNumber)) {
+            return false;
+        }
+        return (words.get((seatNumber - 1) / SEATS_PER_WORD) & (1L << ((seatNumber - 1) % SEATS_PER_WORD))) != 0;
+    }
+
+    // Taken seat numbers in ascending order, read one word at a time
+    public List<Integer> getTakenSeats() {
+        SeatInventory next = successor;
+        if (next != null) {
+            return next.getTakenSeats();
+        }
+        List<Integer> seats = new ArrayList<>();
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i) & ~SEALED;
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                seats.add(i * SEATS_PER_WORD + bit + 1);
+                word &= word - 1;
+            }
+        }
+        return seats;
+    }
+
+    public int getTakenCount() {
+        SeatInventory next = successor;
+        if (next != null) {
+            return next.getTakenCount();
+        }
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i) & ~SEALED);
+        }
+        return count;
+    }
+
+    // Seats neither booked nor held
+    public int getAvailableCount() {
+        SeatInventory next = successor;
+        return next != null ? next.getAvailableCount() : available.get();
+    }
+
+    /**
+     * A copy of this inventory with newCapacity seats and the same seats taken,
+     * to which this one forwards from then on. Every word is sealed before it is
+     * read, so no claim or release can slip in between the copy and the hand-over.
+     * Throws IllegalStateException, leaving this inventory as it was, if a taken
+     * seat would not exist at the new capacity. Not safe against a concurrent
+     * resize of the same inventory; callers serialise them.
+     */
+    public SeatInventory resize(int newCapacity) {
+        SeatInventory next = successor;
+        if (next != null) {
+            return next.resize(newCapacity);
+        }
+        SeatInventory copy = new SeatInventory(scheduleId, newCapacity);
+        long[] frozen = new long[words.length()];
+        for (int i = 0; i < frozen.length; i++) {
+            frozen[i] = words.getAndUpdate(i, word -> word | SEALED);
+        }
+        for (int i = 0; i < frozen.length; i++) {
+            long word = frozen[i];
+            while (word != 0) {
+                int seatNumber = i * SEATS_PER_WORD + Long.numberOfTrailingZeros(word) + 1;
+                if (!copy.claim(seatNumber)) {
+                    unseal(frozen);
+                    throw new IllegalStateException("Seat " + seatNumber
+                            + " is already taken and would not exist on a bus with " + newCapacity + " seats");
+                }
+                word &= word - 1;
+            }
+        }
+        successor = copy;
+        return copy;
+    }
+
+    // Sealed words never change, so putting the frozen values back loses nothing
+    private void unseal(long[] frozen) {
+        for (int i = 0; i < frozen.length; i++) {
+            words.set(i, frozen[i]);
+        }
+    }
+
+    // The copy this inventory forwards to, once any resize under way is over; null if there is none
+    private SeatInventory resized() {
+        return words.length() > 0 ? awaitResize(0) : successor;
+    }
+
+    // Wait out a resize that has sealed the word: its copy once handed over, or null if it was refused
+    private SeatInventory awaitResize(int index) {
+        while (true) {
+            SeatInventory next = successor;
+            if (next != null) {
+                return next;
+            }
+            if ((words.get(index) & SEALED) == 0) {
+                return null;
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
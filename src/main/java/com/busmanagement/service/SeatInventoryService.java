@@ -0,0 +1,159 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Service
+public class SeatInventoryService {
+
+    private final InMemoryScheduleRepository scheduleRepository;
+    private final InMemoryTicketRepository ticketRepository;
+    private final Map<Long, SeatInventory> inventories = new ConcurrentHashMap<>();
+    private final List<SeatChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public SeatInventoryService(InMemoryScheduleRepository scheduleRepository,
+            InMemoryTicketRepository ticketRepository) {
+        this.scheduleRepository = scheduleRepository;
+        this.ticketRepository = ticketRepository;
+    }
+
+    // Get (or lazily build) the inventory for a schedule, seeded once from its sold tickets
+    public SeatInventory getInventory(Schedule schedule) {
+        SeatInventory existing = inventories.get(schedule.getId());
+        if (existing != null) {
+            return existing;
+        }
+        SeatInventory inventory = inventories.computeIfAbsent(schedule.getId(), id -> {
+            Integer capacity = schedule.getBus() != null ? schedule.getBus().getCapacity() : null;
+            SeatInventory built = new SeatInventory(id, capacity != null ? capacity : 0);
+            for (Integer seatNumber : ticketRepository.findBookedSeatsByScheduleId(id)) {
+                built.claim(seatNumber);
+            }
+            return built;
+        });
+        // A restored schedule may carry a stale count; the first look at its seats corrects it
+        publishAvailableSeats(inventory);
+        return inventory;
+    }
+
+    // Copy the free-seat count onto the stored schedule again, e.g. after the schedule was re-saved from a form
+    public void refreshAvailableSeats(Schedule schedule) {
+        publishAvailableSeats(getInventory(schedule));
+    }
+
+    /**
+     * Size a schedule's seat inventory for a new bus, or a new capacity of its
+     * bus, keeping every seat already booked or held. Throws
+     * IllegalStateException, changing nothing, if one of those seats would not
+     * exist on the new bus.
+     */
+    public void resizeInventory(Long scheduleId, int capacity) {
+        // Built from the stored trip if nobody has looked at its seats yet, so its tickets are checked too
+        getInventory(scheduleId);
+        inventories.computeIfPresent(scheduleId,
+                (id, inventory) -> inventory.getCapacity() == capacity ? inventory : inventory.resize(capacity));
+    }
+
+    public Optional<SeatInventory> getInventory(Long scheduleId) {
+        SeatInventory inventory = inventories.get(scheduleId);
+        if (inventory != null) {
+            return Optional.of(inventory);
+        }
+        return scheduleRepository.findById(scheduleId).map(this::getInventory);
+    }
+
+    public void addListener(SeatChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Claim a seat for a booking, failing if it is already taken or outside the bus capacity
+    public void claimSeat(Schedule schedule, int seatNumber) {
+        claim(schedule, seatNumber);
+        notifyListeners(schedule.getId(), seatNumber, SeatState.BOOKED);
+    }
+
+    // Claim a seat for a temporary hold; same rules as claimSeat
+    public void holdSeat(Schedule schedule, int seatNumber) {
+        claim(schedule, seatNumber);
+        notifyListeners(schedule.getId(), seatNumber, SeatState.HELD);
+    }
+
+    // A held seat was taken over by a booking; it stays claimed
+    public void confirmHeldSeat(Long scheduleId, int seatNumber) {
+        notifyListeners(scheduleId, seatNumber, SeatState.BOOKED);
+    }
+
+    public boolean releaseSeat(Schedule schedule, int seatNumber) {
+        return released(schedule.getId(), seatNumber, getInventory(schedule).release(seatNumber));
+    }
+
+    public boolean releaseSeat(Long scheduleId, int seatNumber) {
+        SeatInventory inventory = inventories.get(scheduleId);
+        return released(scheduleId, seatNumber, inventory != null && inventory.release(seatNumber));
+    }
+
+    public List<Integer> getBookedSeats(Long scheduleId) {
+        return getInventory(scheduleId)
+                .map(SeatInventory::getTakenSeats)
+                .orElseGet(ArrayList::new);
+    }
+
+    // Drop the inventory of a deleted schedule
+    public void evict(Long scheduleId) {
+        inventories.remove(scheduleId);
+    }
+
+    private void claim(Schedule schedule, int seatNumber) {
+        SeatInventory inventory = getInventory(schedule);
+        if (!inventory.isValidSeat(seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " does not exist on this bus");
+        }
+        if (!inventory.claim(seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is already booked");
+        }
+        publishAvailableSeats(inventory);
+    }
+
+    private boolean released(Long scheduleId, int seatNumber, boolean released) {
+        if (released) {
+            SeatInventory inventory = inventories.get(scheduleId);
+            if (inventory != null) {
+                publishAvailableSeats(inventory);
+            }
+            notifyListeners(scheduleId, seatNumber, SeatState.AVAILABLE);
+        }
+        return released;
+    }
+
+    // Write the inventory's free-seat count to the stored schedule. The count is read again after the
+    // write, so a racing thread that wrote an older count always goes round and writes the newer one.
+    private void publishAvailableSeats(SeatInventory inventory) {
+        Optional<Schedule> stored = scheduleRepository.findById(inventory.getScheduleId());
+        if (!stored.isPresent()) {
+            return;
+        }
+        Schedule schedule = stored.get();
+        int available;
+        do {
+            available = inventory.getAvailableCount();
+            schedule.setAvailableSeats(available);
+        } while (available != inventory.getAvailableCount());
+    }
+
+    private void notifyListeners(Long scheduleId, int seatNumber, SeatState state) {
+        for (SeatChangeListener listener : listeners) {
+            listener.seatChanged(scheduleId, seatNumber, state);
+        }
+    }
+}
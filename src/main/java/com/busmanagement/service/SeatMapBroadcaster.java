@@ -0,0 +1,347 @@
+package com.busmanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes seat-map changes to browsers over Server-Sent Events.
+ *
+ * There is one channel per watched schedule. Seat changes are queued on the
+ * channel and drained by a small shared pool, one drain per channel at a time,
+ * so the booking thread never writes to a socket. Everything queued since the
+ * last drain goes out as a single event, encoded once for all subscribers. A
+ * new subscriber is added by the drain too, after a snapshot of the taken
+ * seats, so it sees every change made after that snapshot and none before.
+ *
+ * The drain never writes to a socket either: each subscriber has a bounded
+ * outbox written out by a sender thread of its own while it has events, so a
+ * slow client only holds up itself. A client that lets its outbox fill up is
+ * dropped; the browser's EventSource reconnects and starts from a fresh
+ * snapshot. A write to a client that stops reading is cut off by the
+ * container's write timeout (server.tomcat.connection-timeout).
+ */
+@Service
+public class SeatMapBroadcaster implements SeatChangeListener {
+
+    private static final Object HEARTBEAT = new Object();
+    // Most seat changes sent in one event before the drain yields to other channels
+    private static final int MAX_BATCH = 256;
+
+    private final SeatInventoryService seatInventoryService;
+    private final long emitterTimeoutMillis;
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final int bufferEvents;
+    private final ScheduledExecutorService executor;
+    // Writes to clients; a thread is only held while a subscriber has events queued
+    private final ExecutorService senders;
+
+    @Autowired
+    public SeatMapBroadcaster(SeatInventoryService seatInventoryService,
+            @Value("${booking.seat-stream.timeout-seconds:1800}") long timeoutSeconds,
+            @Value("${booking.seat-stream.heartbeat-seconds:25}") long heartbeatSeconds,
+            @Value("${booking.seat-stream.threads:2}") int threads,
+            @Value("${booking.seat-stream.buffer-events:64}") int bufferEvents,
+            @Value("${booking.seat-stream.sender-threads:64}") int senderThreads) {
+        if (bufferEvents < 1 || senderThreads < 1) {
+            throw new IllegalArgumentException("The seat stream needs at least one buffered event and one sender thread");
+        }
+        this.seatInventoryService = seatInventoryService;
+        this.emitterTimeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.bufferEvents = bufferEvents;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-map-push-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        AtomicInteger senderCount = new AtomicInteger();
+        // No queue: when every sender is busy the events wait in the subscriber's outbox instead
+        this.senders = new ThreadPoolExecutor(0, senderThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "seat-map-send-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        seatInventoryService.addListener(this);
+    }
+
+    // Open a stream of seat changes for one schedule; the first event is a snapshot of the taken seats
+    public SseEmitter subscribe(Long scheduleId) {
+        return subscribe(scheduleId, new SseEmitter(emitterTimeoutMillis));
+    }
+
+    // Subscribe a given emitter, so tests can stand in for the client
+    SseEmitter subscribe(Long scheduleId, SseEmitter emitter) {
+        // compute() keeps the heartbeat sweep from dropping the channel while we enqueue
+        channels.compute(scheduleId, (id, channel) -> {
+            Channel target = channel != null ? channel : new Channel(id);
+            Subscriber subscriber = new Subscriber(emitter);
+            emitter.onCompletion(() -> target.remove(subscriber));
+            emitter.onTimeout(() -> {
+                target.remove(subscriber);
+                emitter.complete();
+            });
+            emitter.onError(e -> target.remove(subscriber));
+            target.offer(subscriber);
+            return target;
+        });
+        return emitter;
+    }
+
+    @Override
+    public void seatChanged(long scheduleId, int seatNumber, SeatState state) {
+        Channel channel = channels.get(scheduleId);
+        // Nobody is watching this schedule
+        if (channel != null) {
+            channel.offer(new SeatChange(seatNumber, state));
+        }
+    }
+
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+
+    // Keep idle connections open through proxies, notice dead clients, and drop unwatched channels
+    private void heartbeat() {
+        for (Long scheduleId : channels.keySet()) {
+            Channel channel = channels.computeIfPresent(scheduleId, (id, current) -> current.isIdle() ? null : current);
+            if (channel != null && !channel.subscribers.isEmpty()) {
+                channel.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.drop();
+            }
+        }
+        channels.clear();
+        // Let senders still writing finish and complete their emitters
+        senders.shutdown();
+    }
+
+    private static final class SeatChange {
+        private final int seatNumber;
+        private final SeatState state;
+
+        SeatChange(int seatNumber, SeatState state) {
+            this.seatNumber = seatNumber;
+            this.state = state;
+        }
+    }
+
+    private final class Channel {
+        private final long scheduleId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        // Seat changes, new subscribers and heartbeats, in arrival order
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Only touched by the drain in progress
+        private long sequence;
+
+        Channel(long scheduleId) {
+            this.scheduleId = scheduleId;
+        }
+
+        void offer(Object item) {
+            pending.add(item);
+            if (draining.compareAndSet(false, true)) {
+                resubmit();
+            }
+        }
+
+        void remove(Subscriber subscriber) {
+            subscriber.close();
+            subscribers.remove(subscriber);
+        }
+
+        boolean isIdle() {
+            return subscribers.isEmpty() && pending.isEmpty() && !draining.get();
+        }
+
+        private void drain() {
+            do {
+                StringBuilder changes = null;
+                int batched = 0;
+                Object item;
+                while ((item = pending.poll()) != null) {
+                    if (item instanceof SeatChange) {
+                        SeatChange change = (SeatChange) item;
+                        changes = changes == null ? new StringBuilder("{\"changes\":[") : changes.append(',');
+                        changes.append("{\"seat\":").append(change.seatNumber)
+                                .append(",\"state\":\"").append(change.state.name()).append("\"}");
+                        if (++batched == MAX_BATCH) {
+                            // Busy schedule: send what we have and give the thread to other channels
+                            publish(changes);
+                            resubmit();
+                            return;
+                        }
+                        continue;
+                    }
+                    // Changes queued before a subscriber or heartbeat go out first
+                    publish(changes);
+                    changes = null;
+                    if (item == HEARTBEAT) {
+                        sendHeartbeat();
+                    } else {
+                        addSubscriber((Subscriber) item);
+                    }
+                }
+                publish(changes);
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void resubmit() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                draining.set(false);
+            }
+        }
+
+        private void publish(StringBuilder changes) {
+            if (changes == null) {
+                return;
+            }
+            String data = changes.append("]}").toString();
+            String id = Long.toString(++sequence);
+            for (Subscriber subscriber : subscribers) {
+                send(subscriber, SseEmitter.event().id(id).name("seats").data(data));
+            }
+        }
+
+        private void sendHeartbeat() {
+            for (Subscriber subscriber : subscribers) {
+                send(subscriber, SseEmitter.event().comment("keep-alive"));
+            }
+        }
+
+        private void addSubscriber(Subscriber subscriber) {
+            StringBuilder snapshot = new StringBuilder("{\"taken\":[");
+            List<Integer> taken = seatInventoryService.getBookedSeats(scheduleId);
+            for (int i = 0; i < taken.size(); i++) {
+                if (i > 0) {
+                    snapshot.append(',');
+                }
+                snapshot.append(taken.get(i));
+            }
+            snapshot.append("]}");
+            subscribers.add(subscriber);
+            send(subscriber, SseEmitter.event().id(Long.toString(sequence)).name("snapshot")
+                    .data(snapshot.toString()));
+        }
+
+        // Hand the event to the subscriber's outbox; never waits for the client
+        private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+            if (!subscriber.offer(event)) {
+                // Too far behind, or already gone
+                subscribers.remove(subscriber);
+                subscriber.drop();
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox;
+        // Set while a sender owns this subscriber; never reset once it is closed
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.outbox = new ArrayBlockingQueue<>(bufferEvents);
+        }
+
+        // False if the outbox is full or the subscriber is closed
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            if (closed || !outbox.offer(event)) {
+                return false;
+            }
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::sendPending);
+                } catch (RejectedExecutionException e) {
+                    // Every sender is busy; the events wait here and the next offer tries again
+                    sending.set(false);
+                }
+            }
+            return true;
+        }
+
+        // Stop sending without completing the emitter, e.g. once the container has
+        void close() {
+            closed = true;
+        }
+
+        // Stop sending and complete the emitter once no send is in flight
+        void drop() {
+            closed = true;
+            // complete() waits on the emitter's lock, which a send blocked on the socket holds, so an
+            // in-flight sender completes it instead when its write returns
+            if (sending.compareAndSet(false, true)) {
+                finish();
+            }
+        }
+
+        private void sendPending() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = outbox.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away or the emitter already completed
+                        closed = true;
+                    }
+                }
+                if (closed) {
+                    finish();
+                    return;
+                }
+                sending.set(false);
+            } while ((closed || !outbox.isEmpty()) && sending.compareAndSet(false, true));
+        }
+
+        // Runs once, by whoever holds sending after the subscriber is closed
+        private void finish() {
+            outbox.clear();
+            emitter.complete();
+        }
+    }
+}
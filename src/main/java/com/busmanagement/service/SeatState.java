@@ -0,0 +1,8 @@
+package com.busmanagement.service;
+
+// Occupancy state of a seat as pushed to seat-map subscribers
+public enum SeatState {
+    AVAILABLE,
+    HELD,
+    BOOKED
+}
@@ -5,16 +5,21 @@ import com.busmanagement.repository.InMemoryTicketRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class TicketService {
     private final InMemoryTicketRepository ticketRepository;
+    private final SeatInventoryService seatInventoryService;
 
     @Autowired
-    public TicketService(InMemoryTicketRepository ticketRepository) {
+    public TicketService(InMemoryTicketRepository ticketRepository, SeatInventoryService seatInventoryService) {
         this.ticketRepository = ticketRepository;
+        this.seatInventoryService = seatInventoryService;
     }
 
     public List<Ticket> getAllTickets() {
@@ -29,12 +34,16 @@ public class TicketService {
         return ticketRepository.findByBookingId(bookingId);
     }
 
+    public List<Ticket> getTicketsByBookingIds(Collection<Long> bookingIds) {
+        return ticketRepository.findByBookingIds(bookingIds);
+    }
+
     public List<Ticket> getTicketsByScheduleId(Long scheduleId) {
         return ticketRepository.findByScheduleId(scheduleId);
     }
 
     public List<Integer> getBookedSeatsByScheduleId(Long scheduleId) {
-        return ticketRepository.findBookedSeatsByScheduleId(scheduleId);
+        return seatInventoryService.getBookedSeats(scheduleId);
     }
 
     public Ticket saveTicket(Ticket ticket) {
@@ -48,7 +57,28 @@ public class TicketService {
     public Ticket cancelTicket(Long id) {
         Ticket ticket = ticketRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Ticket not found with ID: " + id));
-        ticket.setStatus("CANCELLED");
-        return ticketRepository.save(ticket);
+        releaseSeats(ticketRepository.cancelAll(Collections.singletonList(id)));
+        return ticket;
+    }
+
+    // Cancel many tickets with one bulk write, then free their seats; returns how many this call cancelled
+    public int cancelTickets(List<Ticket> tickets) {
+        List<Long> ids = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            ids.add(ticket.getId());
+        }
+        List<Ticket> cancelled = ticketRepository.cancelAll(ids);
+        releaseSeats(cancelled);
+        return cancelled.size();
+    }
+
+    // Only for tickets this call moved to CANCELLED: a racing cancel of the same ticket gets none back,
+    // so a seat resold in between is never freed by a second release
+    private void releaseSeats(List<Ticket> cancelled) {
+        for (Ticket ticket : cancelled) {
+            if (ticket.getSchedule() != null) {
+                seatInventoryService.releaseSeat(ticket.getSchedule(), ticket.getSeatNumber());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-packed snapshot of the bookable schedules, one connection per
+ * schedule, sorted by departure. Cities are mapped to dense stop indexes and times
+ * are minutes since the epoch so the planner's scan touches only int arrays.
+ */
+final class Timetable {
+
+    final long version;
+    final int stopCount;
+    final int[] departureStop;
+    final int[] arrivalStop;
+    final int[] departureMinute;
+    final int[] arrivalMinute;
+    final Schedule[] schedules;
+    private final Map<Long, Integer> stopIndex;
+
+    private Timetable(long version, Map<Long, Integer> stopIndex, List<Schedule> sorted) {
+        this.version = version;
+        this.stopIndex = stopIndex;
+        this.stopCount = stopIndex.size();
+        int n = sorted.size();
+        this.departureStop = new int[n];
+        this.arrivalStop = new int[n];
+        this.departureMinute = new int[n];
+        this.arrivalMinute = new int[n];
+        this.schedules = sorted.toArray(new Schedule[0]);
+        for (int i = 0; i < n; i++) {
+            Schedule schedule = schedules[i];
+            departureStop[i] = stopIndex.get(schedule.getRoute().getSource().getId());
+            arrivalStop[i] = stopIndex.get(schedule.getRoute().getDestination().getId());
+            departureMinute[i] = toMinute(schedule.getDepartureTime());
+            arrivalMinute[i] = toMinute(schedule.getArrivalTime());
+        }
+    }
+
+    static Timetable build(Collection<Schedule> all, long version) {
+        List<Schedule> bookable = new ArrayList<>();
+        for (Schedule schedule : all) {
+            if (isBookable(schedule)) {
+                bookable.add(schedule);
+            }
+        }
+        bookable.sort(Comparator.comparing(Schedule::getDepartureTime).thenComparing(Schedule::getId));
+
+        Map<Long, Integer> stopIndex = new HashMap<>();
+        for (Schedule schedule : bookable) {
+            stopIndex.putIfAbsent(schedule.getRoute().getSource().getId(), stopIndex.size());
+            stopIndex.putIfAbsent(schedule.getRoute().getDestination().getId(), stopIndex.size());
+        }
+        return new Timetable(version, stopIndex, bookable);
+    }
+
+    // Only trips that can still be sold and have a complete route and times
+    private static boolean isBookable(Schedule schedule) {
+        return schedule.lifecycleStatus() == Schedule.ScheduleStatus.SCHEDULED
+                && schedule.getRoute() != null
+                && schedule.getRoute().getSource() != null
+                && schedule.getRoute().getDestination() != null
+                && schedule.getDepartureTime() != null
+                && schedule.getArrivalTime() != null
+                && schedule.getArrivalTime().isAfter(schedule.getDepartureTime());
+    }
+
+    int size() {
+        return schedules.length;
+    }
+
+    // Dense stop index for a city, or -1 if no bookable trip touches it
+    int stop(Long cityId) {
+        Integer index = stopIndex.get(cityId);
+        return index != null ? index : -1;
+    }
+
+    // Index of the first connection departing at or after the given minute
+    int firstDepartingAtOrAfter(int minute) {
+        int low = 0;
+        int high = departureMinute.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureMinute[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static int toMinute(LocalDateTime time) {
+        return (int) Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
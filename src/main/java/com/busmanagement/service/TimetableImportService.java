@@ -0,0 +1,474 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.City;
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bulk import of a season timetable from GTFS-style CSV files:
+ *
+ *   cities.csv  city_id,name[,state,description]
+ *   routes.csv  route_id,source_city_id,destination_city_id[,distance,duration,fare]
+ *   buses.csv   bus_id,registration_number,capacity[,manufacturer,model,status]
+ *   trips.csv   trip_id,route_id,bus_id,departure_time[,arrival_time,driver_name]
+ *
+ * Ids in the files are the feed's own and only link rows of the same import;
+ * a reference that is not in the feed is taken as the id of an existing entity.
+ * Cities are matched by name, buses by registration number and routes by their
+ * two cities, so importing the next season reuses what is already there.
+ *
+ * Trips are streamed in batches to a worker pool that runs the schedule
+ * validation, then checked for bus conflicts per bus (in parallel across buses)
+ * and committed in bulk, with the schedule indexes filled once per commit.
+ */
+@Service
+public class TimetableImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimetableImportService.class);
+
+    private static final int VALIDATION_BATCH = 8192;
+    private static final int COMMIT_BATCH = 100_000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd['T'][' ']HH:mm[:ss]");
+
+    private final CityService cityService;
+    private final RouteService routeService;
+    private final BusService busService;
+    private final ScheduleService scheduleService;
+    private final int threads;
+
+    @Autowired
+    public TimetableImportService(CityService cityService, RouteService routeService, BusService busService,
+            ScheduleService scheduleService,
+            @Value("${timetable-import.threads:0}") int threads) {
+        this.cityService = cityService;
+        this.routeService = routeService;
+        this.busService = busService;
+        this.scheduleService = scheduleService;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Import whichever files are given (null to skip one). One import runs at a
+     * time, so two feeds cannot both book the same bus for the same hour.
+     */
+    public synchronized ImportReport importTimetable(InputStream cities, InputStream routes, InputStream buses,
+            InputStream trips) throws IOException {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        Map<String, City> cityRefs = cities != null ? importCities(cities, report) : new HashMap<>();
+        Map<String, Route> routeRefs = routes != null ? importRoutes(routes, cityRefs, report) : new HashMap<>();
+        Map<String, Bus> busRefs = buses != null ? importBuses(buses, report) : new HashMap<>();
+        if (trips != null) {
+            importTrips(trips, routeRefs, busRefs, report);
+        }
+
+        report.setElapsedMillis((System.nanoTime() - started) / 1_000_000);
+        log.info("Timetable import: {} of {} trips in {} ms ({} trips/s), {} rows rejected",
+                report.getTripsImported(), report.getTripsRead(), report.getElapsedMillis(),
+                report.getTripsPerSecond(), report.getRejectedCount());
+        return report;
+    }
+
+    private Map<String, City> importCities(InputStream stream, ImportReport report) throws IOException {
+        Map<String, City> byName = new HashMap<>();
+        for (City city : cityService.getAllCities()) {
+            byName.put(city.getName().toLowerCase(), city);
+        }
+        Map<String, City> refs = new HashMap<>();
+        try (CsvRecordReader csv = new CsvRecordReader(stream)) {
+            int idColumn = csv.requireColumn("city_id");
+            int nameColumn = csv.requireColumn("name");
+            int stateColumn = csv.column("state");
+            int descriptionColumn = csv.column("description");
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    String ref = required(row, idColumn, "city_id");
+                    String name = required(row, nameColumn, "name");
+                    City city = byName.get(name.toLowerCase());
+                    boolean created = city == null;
+                    if (created) {
+                        city = new City();
+                        city.setName(name);
+                        city.setState(optional(row, stateColumn));
+                        city.setDescription(optional(row, descriptionColumn));
+                        city = cityService.saveCity(city);
+                        byName.put(name.toLowerCase(), city);
+                    }
+                    refs.put(ref, city);
+                    report.cityImported(created);
+                } catch (IllegalArgumentException e) {
+                    report.reject("cities", csv.getLineNumber(), e.getMessage());
+                }
+            }
+        }
+        return refs;
+    }
+
+    private Map<String, Route> importRoutes(InputStream stream, Map<String, City> cityRefs, ImportReport report)
+            throws IOException {
+        Map<String, Route> byCities = new HashMap<>();
+        for (Route route : routeService.getAllRoutes()) {
+            if (route.getSource() != null && route.getDestination() != null) {
+                byCities.putIfAbsent(route.getSource().getId() + ">" + route.getDestination().getId(), route);
+            }
+        }
+        Map<String, Route> refs = new HashMap<>();
+        try (CsvRecordReader csv = new CsvRecordReader(stream)) {
+            int idColumn = csv.requireColumn("route_id");
+            int sourceColumn = csv.requireColumn("source_city_id");
+            int destinationColumn = csv.requireColumn("destination_city_id");
+            int distanceColumn = csv.column("distance");
+            int durationColumn = csv.column("duration");
+            int fareColumn = csv.column("fare");
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    String ref = required(row, idColumn, "route_id");
+                    City source = resolve(cityRefs, required(row, sourceColumn, "source_city_id"),
+                            cityService::getCityById, "city");
+                    City destination = resolve(cityRefs, required(row, destinationColumn, "destination_city_id"),
+                            cityService::getCityById, "city");
+                    if (source.getId().equals(destination.getId())) {
+                        throw new IllegalArgumentException("Route starts and ends in the same city");
+                    }
+                    String key = source.getId() + ">" + destination.getId();
+                    Route route = byCities.get(key);
+                    boolean created = route == null;
+                    if (created) {
+                        route = new Route();
+                        route.setSource(source);
+                        route.setDestination(destination);
+                        String distance = optional(row, distanceColumn);
+                        route.setDistance(distance != null ? Integer.valueOf(distance) : null);
+                        String duration = optional(row, durationColumn);
+                        route.setDuration(duration != null ? Integer.valueOf(duration) : null);
+                        String fare = optional(row, fareColumn);
+                        route.setFareAmount(fare != null ? Double.valueOf(fare) : null);
+                        route = routeService.saveRoute(route);
+                        byCities.put(key, route);
+                    }
+                    refs.put(ref, route);
+                    report.routeImported(created);
+                } catch (IllegalArgumentException e) {
+                    report.reject("routes", csv.getLineNumber(), e.getMessage());
+                }
+            }
+        }
+        return refs;
+    }
+
+    private Map<String, Bus> importBuses(InputStream stream, ImportReport report) throws IOException {
+        Map<String, Bus> refs = new HashMap<>();
+        try (CsvRecordReader csv = new CsvRecordReader(stream)) {
+            int idColumn = csv.requireColumn("bus_id");
+            int registrationColumn = csv.requireColumn("registration_number");
+            int capacityColumn = csv.requireColumn("capacity");
+            int manufacturerColumn = csv.column("manufacturer");
+            int modelColumn = csv.column("model");
+            int statusColumn = csv.column("status");
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    String ref = required(row, idColumn, "bus_id");
+                    String registration = required(row, registrationColumn, "registration_number");
+                    Optional<Bus> existing = busService.findByRegistrationNumber(registration);
+                    Bus bus;
+                    if (existing.isPresent()) {
+                        bus = existing.get();
+                    } else {
+                        bus = new Bus();
+                        bus.setRegistrationNumber(registration);
+                        bus.setCapacity(Integer.valueOf(required(row, capacityColumn, "capacity")));
+                        bus.setManufacturer(optional(row, manufacturerColumn));
+                        bus.setModel(optional(row, modelColumn));
+                        String status = optional(row, statusColumn);
+                        if (status != null) {
+                            bus.setStatus(Bus.BusStatus.valueOf(status.toUpperCase()));
+                        }
+                        bus = busService.saveBus(bus);
+                    }
+                    refs.put(ref, bus);
+                    report.busImported(!existing.isPresent());
+                } catch (IllegalArgumentException e) {
+                    report.reject("buses", csv.getLineNumber(), e.getMessage());
+                }
+            }
+        }
+        return refs;
+    }
+
+    private void importTrips(InputStream stream, Map<String, Route> routeRefs, Map<String, Bus> busRefs,
+            ImportReport report) throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "timetable-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // 1. Parse and validate in parallel; the reader waits when the workers fall behind
+            List<Future<TripBatch>> batches = new ArrayList<>();
+            Semaphore inFlight = new Semaphore(threads * 2);
+            long read = 0;
+            try (CsvRecordReader csv = new CsvRecordReader(stream)) {
+                TripColumns columns = new TripColumns(csv);
+                List<String[]> rows = new ArrayList<>(VALIDATION_BATCH);
+                long[] lines = new long[VALIDATION_BATCH];
+                String[] row;
+                while ((row = csv.next()) != null) {
+                    lines[rows.size()] = csv.getLineNumber();
+                    rows.add(row);
+                    read++;
+                    if (rows.size() == VALIDATION_BATCH) {
+                        batches.add(submit(pool, inFlight, rows, lines, columns, routeRefs, busRefs));
+                        rows = new ArrayList<>(VALIDATION_BATCH);
+                        lines = new long[VALIDATION_BATCH];
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    batches.add(submit(pool, inFlight, rows, lines, columns, routeRefs, busRefs));
+                }
+            }
+            report.setTripsRead(read);
+
+            // 2. Bus conflicts, against existing trips and within the feed, one task per bus
+            List<ImportedTrip> valid = new ArrayList<>();
+            Map<Long, List<ImportedTrip>> byBus = new HashMap<>();
+            for (Future<TripBatch> future : batches) {
+                TripBatch batch = await(future);
+                report.addRejections(batch.rejections, batch.rejectedCount);
+                for (ImportedTrip trip : batch.accepted) {
+                    valid.add(trip);
+                    byBus.computeIfAbsent(trip.schedule.getBus().getId(), id -> new ArrayList<>()).add(trip);
+                }
+            }
+            List<Future<TripBatch>> conflictChecks = new ArrayList<>();
+            for (Map.Entry<Long, List<ImportedTrip>> entry : byBus.entrySet()) {
+                conflictChecks.add(pool.submit(() -> checkConflicts(entry.getKey(), entry.getValue())));
+            }
+            for (Future<TripBatch> future : conflictChecks) {
+                TripBatch batch = await(future);
+                report.addRejections(batch.rejections, batch.rejectedCount);
+            }
+
+            // 3. Commit in file order, so ids follow the feed
+            List<Schedule> commit = new ArrayList<>(Math.min(valid.size(), COMMIT_BATCH));
+            long imported = 0;
+            for (ImportedTrip trip : valid) {
+                if (trip.conflict) {
+                    continue;
+                }
+                commit.add(trip.schedule);
+                if (commit.size() == COMMIT_BATCH) {
+                    scheduleService.saveValidatedSchedules(commit);
+                    imported += commit.size();
+                    commit = new ArrayList<>(COMMIT_BATCH);
+                }
+            }
+            if (!commit.isEmpty()) {
+                scheduleService.saveValidatedSchedules(commit);
+                imported += commit.size();
+            }
+            report.setTripsImported(imported);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Future<TripBatch> submit(ExecutorService pool, Semaphore inFlight, List<String[]> rows, long[] lines,
+            TripColumns columns, Map<String, Route> routeRefs, Map<String, Bus> busRefs) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Timetable import interrupted");
+        }
+        Callable<TripBatch> task = () -> {
+            try {
+                return validateTrips(rows, lines, columns, routeRefs, busRefs);
+            } finally {
+                inFlight.release();
+            }
+        };
+        return pool.submit(task);
+    }
+
+    private TripBatch validateTrips(List<String[]> rows, long[] lines, TripColumns columns,
+            Map<String, Route> routeRefs, Map<String, Bus> busRefs) {
+        TripBatch batch = new TripBatch();
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            try {
+                Route route = resolve(routeRefs, required(row, columns.route, "route_id"),
+                        routeService::getRouteById, "route");
+                Bus bus = resolve(busRefs, required(row, columns.bus, "bus_id"), busService::getBusById, "bus");
+                LocalDateTime departure = parseTime(required(row, columns.departure, "departure_time"));
+                String arrivalText = optional(row, columns.arrival);
+                LocalDateTime arrival;
+                if (arrivalText != null) {
+                    arrival = parseTime(arrivalText);
+                } else if (route.getDuration() != null) {
+                    arrival = departure.plusMinutes(route.getDuration());
+                } else {
+                    throw new IllegalArgumentException("arrival_time is required when the route has no duration");
+                }
+
+                Schedule schedule = new Schedule();
+                schedule.setRoute(route);
+                schedule.setBus(bus);
+                schedule.setDepartureTime(departure);
+                schedule.setArrivalTime(arrival);
+                schedule.setDriverName(optional(row, columns.driver));
+                schedule.setAvailableSeats(bus.getCapacity() != null ? bus.getCapacity() : 0);
+                schedule.setStatus(Schedule.ScheduleStatus.SCHEDULED.getLabel());
+                scheduleService.validateScheduleDetails(schedule);
+                batch.accepted.add(new ImportedTrip(lines[i], schedule));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                batch.reject(lines[i], e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    // Trips of one bus in departure order; each must clear the last one accepted and the bus's existing trips
+    private TripBatch checkConflicts(Long busId, List<ImportedTrip> trips) {
+        TripBatch batch = new TripBatch();
+        trips.sort(Comparator.comparing((ImportedTrip trip) -> trip.schedule.getDepartureTime())
+                .thenComparingLong(trip -> trip.line));
+        LocalDateTime busyUntil = null;
+        for (ImportedTrip trip : trips) {
+            LocalDateTime departure = trip.schedule.getDepartureTime();
+            LocalDateTime arrival = trip.schedule.getArrivalTime();
+            if (busyUntil != null && departure.isBefore(busyUntil)) {
+                trip.conflict = true;
+                batch.reject(trip.line, "Bus is already scheduled during this time period (earlier row in this feed)");
+            } else if (scheduleService.isAlreadyScheduled(busId, departure, arrival, null)) {
+                trip.conflict = true;
+                batch.reject(trip.line, "Bus is already scheduled during this time period");
+            } else if (busyUntil == null || arrival.isAfter(busyUntil)) {
+                busyUntil = arrival;
+            }
+        }
+        return batch;
+    }
+
+    // A feed reference, or failing that the id of an existing entity
+    private static <T> T resolve(Map<String, T> refs, String ref, Function<Long, Optional<T>> existing, String kind) {
+        T value = refs.get(ref);
+        if (value != null) {
+            return value;
+        }
+        try {
+            return existing.apply(Long.valueOf(ref))
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown " + kind + ": " + ref));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown " + kind + ": " + ref);
+        }
+    }
+
+    private static LocalDateTime parseTime(String text) {
+        try {
+            return LocalDateTime.parse(text, TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date-time: " + text);
+        }
+    }
+
+    private static String required(String[] row, int column, String name) {
+        String value = optional(row, column);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    private static String optional(String[] row, int column) {
+        if (column < 0 || column >= row.length) {
+            return null;
+        }
+        String value = row[column].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Timetable import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Timetable import failed", e.getCause());
+        }
+    }
+
+    private static final class TripColumns {
+        private final int route;
+        private final int bus;
+        private final int departure;
+        private final int arrival;
+        private final int driver;
+
+        TripColumns(CsvRecordReader csv) {
+            csv.requireColumn("trip_id");
+            this.route = csv.requireColumn("route_id");
+            this.bus = csv.requireColumn("bus_id");
+            this.departure = csv.requireColumn("departure_time");
+            this.arrival = csv.column("arrival_time");
+            this.driver = csv.column("driver_name");
+        }
+    }
+
+    private static final class ImportedTrip {
+        private final long line;
+        private final Schedule schedule;
+        // Set by the conflict check, which owns the trips of one bus
+        private boolean conflict;
+
+        ImportedTrip(long line, Schedule schedule) {
+            this.line = line;
+            this.schedule = schedule;
+        }
+    }
+
+    // Result of one worker task; rejection details are capped like the report's
+    private static final class TripBatch {
+        private final List<ImportedTrip> accepted = new ArrayList<>();
+        private final List<ImportReport.RejectedRow> rejections = new ArrayList<>();
+        private long rejectedCount;
+
+        void reject(long line, String reason) {
+            rejectedCount++;
+            if (rejections.size() < ImportReport.MAX_REPORTED_REJECTIONS) {
+                rejections.add(new ImportReport.RejectedRow("trips", line, reason));
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.busmanagement.controller;
+
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.service.BusService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ListingApiTest {
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        // The repository starts with two sample buses
+        mvc = MockMvcBuilders.standaloneSetup(new BusController(new BusService(InMemoryBusRepository.getInstance())))
+                .build();
+    }
+
+    @Test
+    void withoutPagingParametersTheListIsAPlainArray() throws Exception {
+        mvc.perform(get("/buses/api/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[0].id").exists());
+    }
+
+    @Test
+    void aLimitAsksForAPage() throws Exception {
+        mvc.perform(get("/buses/api/all").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor").isNumber());
+    }
+
+    @Test
+    void aCursorAloneAsksForAPageOfTheDefaultSize() throws Exception {
+        mvc.perform(get("/buses/api/all").param("after", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isArray());
+    }
+}
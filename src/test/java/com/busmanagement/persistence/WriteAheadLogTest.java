@@ -0,0 +1,205 @@
+package com.busmanagement.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+    private static final long SEGMENT_SIZE = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayReturnsRecordsInAppendOrderAcrossReopens() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.sync(wal.append(bytes("first")));
+            wal.sync(wal.append(bytes("second")));
+        }
+        // A reopen starts a new segment rather than appending to the old one
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.sync(wal.append(bytes("third")));
+        }
+
+        assertEquals(List.of("first", "second", "third"), replay(1));
+        assertEquals(2, segments().size());
+    }
+
+    @Test
+    void smallSegmentsRollOverWithoutLosingRecords() throws IOException {
+        List<String> written = new ArrayList<>();
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64)) {
+            for (int i = 0; i < 50; i++) {
+                String record = "record-" + i;
+                wal.append(bytes(record));
+                written.add(record);
+            }
+            wal.syncAll();
+        }
+
+        assertEquals(written, replay(1));
+        assertTrue(segments().size() > 1);
+    }
+
+    @Test
+    void replayFromARolledSegmentSkipsEarlierOnes() throws IOException {
+        long rolledTo;
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("before snapshot"));
+            rolledTo = wal.roll();
+            wal.append(bytes("after snapshot"));
+        }
+
+        assertEquals(List.of("after snapshot"), replay(rolledTo));
+    }
+
+    @Test
+    void tornTailOfTheLastSegmentIsCutOffAndLaterOpensReplayCleanly() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("kept"));
+        }
+        Path segment = segments().get(0);
+        long intactSize = Files.size(segment);
+        // A crash mid-append: the header promises 100 bytes but only 3 made it
+        appendRaw(segment, ByteBuffer.allocate(11).putInt(100).putInt(0).put(new byte[3]));
+
+        assertEquals(List.of("kept"), replay(1));
+        assertEquals(intactSize, Files.size(segment));
+
+        // The repaired segment is no longer the last one, and still replays
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("after restart"));
+        }
+        assertEquals(List.of("kept", "after restart"), replay(1));
+    }
+
+    @Test
+    void badChecksumOnTheLastRecordIsATornTail() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("good"));
+        }
+        byte[] body = bytes("flipped");
+        appendRaw(segments().get(0), ByteBuffer.allocate(8 + body.length).putInt(body.length).putInt(12345).put(body));
+
+        assertEquals(List.of("good"), replay(1));
+    }
+
+    @Test
+    void corruptRecordFollowedByMoreRecordsFailsReplay() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("first"));
+            wal.append(bytes("second"));
+        }
+        // Flip a byte of the first record's payload
+        Path segment = segments().get(0);
+        byte[] contents = Files.readAllBytes(segment);
+        contents[8] ^= 1;
+        Files.write(segment, contents);
+
+        IOException failure = assertThrows(IOException.class, () -> replay(1));
+        assertTrue(failure.getMessage().contains("offset 0"));
+        assertEquals(contents.length, Files.size(segment));
+    }
+
+    @Test
+    void tornTailOfAnEarlierSegmentFailsReplay() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("kept"));
+        }
+        // Damage that recovery never saw: a later segment exists, so this is not a crash tail
+        appendRaw(segments().get(0), ByteBuffer.allocate(11).putInt(100).putInt(0).put(new byte[3]));
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("later"));
+        }
+
+        assertThrows(IOException.class, () -> replay(1));
+    }
+
+    @Test
+    void negativeRecordLengthFailsReplay() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE)) {
+            wal.append(bytes("kept"));
+        }
+        appendRaw(segments().get(0), ByteBuffer.allocate(8).putInt(-5).putInt(0));
+
+        assertThrows(IOException.class, () -> replay(1));
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurableAndIntact() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 4096)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        wal.sync(wal.append(bytes(thread + ":" + i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> replayed = replay(1);
+        assertEquals(threads * perThread, replayed.size());
+        // Each writer's own records come back in the order it appended them
+        for (int t = 0; t < threads; t++) {
+            String prefix = t + ":";
+            List<String> own = replayed.stream().filter(r -> r.startsWith(prefix)).collect(Collectors.toList());
+            for (int i = 0; i < perThread; i++) {
+                assertEquals(prefix + i, own.get(i));
+            }
+        }
+    }
+
+    private List<String> replay(long fromSegment) throws IOException {
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, fromSegment, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".wal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void appendRaw(Path segment, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,99 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Booking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryBookingRepositoryTest {
+    private InMemoryBookingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryBookingRepository();
+    }
+
+    @Test
+    void findsABookingByItsReference() {
+        Booking booking = repository.save(booking("ada@example.com"));
+
+        assertSame(booking, repository.findByBookingReference(booking.getBookingReference()).orElseThrow());
+        assertFalse(repository.findByBookingReference("NO-SUCH-REF").isPresent());
+        assertFalse(repository.findByBookingReference(null).isPresent());
+    }
+
+    @Test
+    void aChangedReferenceIsReindexed() {
+        Booking booking = repository.save(booking("ada@example.com"));
+        String old = booking.getBookingReference();
+
+        booking.setBookingReference("BK-RENAMED");
+        repository.save(booking);
+
+        assertFalse(repository.findByBookingReference(old).isPresent());
+        assertSame(booking, repository.findByBookingReference("BK-RENAMED").orElseThrow());
+    }
+
+    @Test
+    void aNewBookingWithATakenReferenceDrawsAnother() {
+        Booking first = repository.save(booking("ada@example.com"));
+        Booking second = booking("bob@example.com");
+        second.setBookingReference(first.getBookingReference());
+
+        repository.save(second);
+
+        assertNotEquals(first.getBookingReference(), second.getBookingReference());
+        assertSame(first, repository.findByBookingReference(first.getBookingReference()).orElseThrow());
+        assertSame(second, repository.findByBookingReference(second.getBookingReference()).orElseThrow());
+    }
+
+    @Test
+    void anExistingBookingCannotTakeAnotherOnesReference() {
+        Booking first = repository.save(booking("ada@example.com"));
+        Booking second = repository.save(booking("bob@example.com"));
+
+        second.setBookingReference(first.getBookingReference());
+
+        assertThrows(IllegalStateException.class, () -> repository.save(second));
+        assertSame(first, repository.findByBookingReference(first.getBookingReference()).orElseThrow());
+    }
+
+    @Test
+    void findsEveryBookingOfAPassengerAndFollowsEmailChanges() {
+        Booking first = repository.save(booking("ada@example.com"));
+        Booking second = repository.save(booking("ada@example.com"));
+        Booking other = repository.save(booking("bob@example.com"));
+
+        assertEquals(List.of(first.getId(), second.getId()), ids(repository.findByPassengerEmail("ada@example.com")));
+
+        second.setPassengerEmail("ada@work.example.com");
+        repository.save(second);
+        repository.deleteById(other.getId());
+
+        assertEquals(List.of(first.getId()), ids(repository.findByPassengerEmail("ada@example.com")));
+        assertEquals(List.of(second.getId()), ids(repository.findByPassengerEmail("ada@work.example.com")));
+        assertTrue(repository.findByPassengerEmail("bob@example.com").isEmpty());
+        assertFalse(repository.findByBookingReference(other.getBookingReference()).isPresent());
+    }
+
+    private static Booking booking(String email) {
+        Booking booking = new Booking();
+        booking.setPassengerName("Passenger");
+        booking.setPassengerEmail(email);
+        booking.setStatus("CONFIRMED");
+        return booking;
+    }
+
+    private static List<Long> ids(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,105 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryPaymentRepositoryTest {
+    private InMemoryPaymentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryPaymentRepository();
+    }
+
+    @Test
+    void findsAPaymentByItsGatewayIdAndRefusesADuplicate() {
+        Payment payment = repository.save(payment("PAY-1", 10L));
+
+        assertSame(payment, repository.findByPaymentId("PAY-1").orElseThrow());
+        assertFalse(repository.findByPaymentId("PAY-2").isPresent());
+
+        assertThrows(IllegalStateException.class, () -> repository.save(payment("PAY-1", 11L)));
+        assertEquals(1, repository.count());
+        assertTrue(repository.findByBookingId(11L).isEmpty());
+    }
+
+    @Test
+    void aChangedGatewayIdIsReindexed() {
+        Payment payment = repository.save(payment("PAY-1", 10L));
+
+        repository.update(payment.getId(), p -> p.setPaymentId("PAY-1-RETRY"));
+
+        assertFalse(repository.findByPaymentId("PAY-1").isPresent());
+        assertSame(payment, repository.findByPaymentId("PAY-1-RETRY").orElseThrow());
+        // The old id is free again
+        repository.save(payment("PAY-1", 12L));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void findsPaymentsByBookingOneAtATimeAndInBulk() {
+        Payment first = repository.save(payment("PAY-1", 10L));
+        Payment second = repository.save(payment("PAY-2", 11L));
+        repository.save(payment("PAY-3", 12L));
+
+        assertSame(first, repository.findByBookingId(10L).orElseThrow());
+        assertFalse(repository.findByBookingId(99L).isPresent());
+        assertEquals(List.of(first.getId(), second.getId()),
+                ids(repository.findByBookingIds(List.of(10L, 99L, 11L))));
+
+        repository.deleteById(first.getId());
+        assertFalse(repository.findByBookingId(10L).isPresent());
+        assertFalse(repository.findByPaymentId("PAY-1").isPresent());
+    }
+
+    @Test
+    void updatesRefuseUnknownIdsAndBulkUpdatesReturnOnlyWhatChanged() {
+        Payment pending = repository.save(payment("PAY-1", 10L));
+        Payment failed = payment("PAY-2", 11L);
+        failed.setStatus("FAILED");
+        repository.save(failed);
+
+        assertThrows(IllegalArgumentException.class, () -> repository.update(999L, p -> p.setStatus("COMPLETED")));
+        // A change that throws refuses the update
+        assertThrows(IllegalStateException.class, () -> repository.update(pending.getId(), p -> {
+            throw new IllegalStateException("refused");
+        }));
+
+        List<Payment> changed = repository.updateAll(List.of(pending.getId(), failed.getId(), 999L), p -> {
+            if (p.isFailed()) {
+                return false;
+            }
+            p.setRefundStatus("INITIATED");
+            return true;
+        });
+
+        assertEquals(List.of(pending.getId()), ids(changed));
+        assertEquals("INITIATED", pending.getRefundStatus());
+        assertEquals("NONE", failed.getRefundStatus());
+    }
+
+    private static Payment payment(String paymentId, Long bookingId) {
+        Booking booking = new Booking();
+        booking.setId(bookingId);
+        Payment payment = new Payment();
+        payment.setPaymentId(paymentId);
+        payment.setBooking(booking);
+        payment.setAmount(20);
+        return payment;
+    }
+
+    private static List<Long> ids(List<Payment> payments) {
+        return payments.stream().map(Payment::getId).sorted().collect(Collectors.toList());
+    }
+}
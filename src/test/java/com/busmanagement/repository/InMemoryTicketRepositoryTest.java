@@ -0,0 +1,110 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTicketRepositoryTest {
+    private InMemoryTicketRepository repository;
+    private Schedule morning;
+    private Schedule evening;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryTicketRepository();
+        morning = schedule(1L);
+        evening = schedule(2L);
+    }
+
+    @Test
+    void findsTicketsByBookingAndByBatchOfBookings() {
+        Booking first = booking(10L, morning);
+        Booking second = booking(11L, evening);
+        Ticket a = repository.save(ticket(first, 1));
+        Ticket b = repository.save(ticket(first, 2));
+        Ticket c = repository.save(ticket(second, 1));
+
+        assertEquals(ids(a, b), ids(repository.findByBookingId(10L)));
+        assertEquals(ids(a, b, c), ids(repository.findByBookingIds(List.of(10L, 11L, 99L))));
+        assertTrue(repository.findByBookingIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void scheduleLookupsSkipCancelledTicketsButStreamsKeepThem() {
+        Booking booking = booking(10L, morning);
+        Ticket kept = repository.save(ticket(booking, 1));
+        Ticket cancelled = repository.save(ticket(booking, 2));
+        repository.save(ticket(booking(11L, evening), 3));
+
+        repository.cancelAll(List.of(cancelled.getId()));
+
+        assertEquals(ids(kept), ids(repository.findByScheduleId(1L)));
+        assertEquals(List.of(1), repository.findBookedSeatsByScheduleId(1L));
+        assertEquals(ids(kept, cancelled), ids(repository.streamByScheduleId(1L).collect(Collectors.toList())));
+    }
+
+    @Test
+    void aTicketMovedToAnotherBookingIsReindexed() {
+        Ticket ticket = repository.save(ticket(booking(10L, morning), 4));
+
+        ticket.setBooking(booking(11L, evening));
+        repository.save(ticket);
+
+        assertTrue(repository.findByBookingId(10L).isEmpty());
+        assertTrue(repository.findByScheduleId(1L).isEmpty());
+        assertEquals(ids(ticket), ids(repository.findByScheduleId(2L)));
+
+        repository.deleteById(ticket.getId());
+        assertTrue(repository.findByBookingId(11L).isEmpty());
+        assertTrue(repository.findByScheduleId(2L).isEmpty());
+    }
+
+    @Test
+    void cancelAllReturnsOnlyTheTicketsItCancelled() {
+        Booking booking = booking(10L, morning);
+        Ticket first = repository.save(ticket(booking, 1));
+        Ticket second = repository.save(ticket(booking, 2));
+
+        assertEquals(ids(first), ids(repository.cancelAll(List.of(first.getId()))));
+        // A second sweep, e.g. racing cancellations, only sees the ticket still live
+        assertEquals(ids(second), ids(repository.cancelAll(List.of(first.getId(), second.getId()))));
+        assertTrue(repository.cancelAll(List.of(first.getId(), second.getId(), 999L)).isEmpty());
+    }
+
+    private static Schedule schedule(Long id) {
+        Schedule schedule = new Schedule();
+        schedule.setId(id);
+        return schedule;
+    }
+
+    private static Booking booking(Long id, Schedule schedule) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setSchedule(schedule);
+        return booking;
+    }
+
+    private static Ticket ticket(Booking booking, int seatNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setBooking(booking);
+        ticket.setSeatNumber(seatNumber);
+        ticket.setFare(25.0);
+        return ticket;
+    }
+
+    private static List<Long> ids(Ticket... tickets) {
+        return ids(List.of(tickets));
+    }
+
+    private static List<Long> ids(List<Ticket> tickets) {
+        return tickets.stream().map(Ticket::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package com.busmanagement.repository;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripIntervalIndexTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 3, 1, 0, 0);
+
+    private InMemoryScheduleRepository repository;
+    private Bus red;
+    private Bus blue;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryScheduleRepository();
+        red = bus(1L);
+        blue = bus(2L);
+    }
+
+    @Test
+    void overlapsAreHalfOpenAndPerBus() {
+        Schedule trip = repository.save(trip(red, 10, 12));
+
+        assertTrue(repository.isBusScheduledBetween(red.getId(), at(11), at(13)));
+        assertTrue(repository.isBusScheduledBetween(red.getId(), at(9), at(10).plusMinutes(1)));
+        // Back-to-back trips do not conflict
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(12), at(14)));
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(8), at(10)));
+        assertFalse(repository.isBusScheduledBetween(blue.getId(), at(11), at(13)));
+        // Editing a trip does not conflict with itself
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(11), at(13), trip.getId()));
+    }
+
+    @Test
+    void onlyActiveTripsOccupyTheirBus() {
+        Schedule trip = repository.save(trip(red, 10, 12));
+        repository.save(trip(blue, 11, 15));
+        assertEquals(Set.of(red.getId(), blue.getId()), repository.findBusyBusIds(at(11), at(12), null));
+
+        repository.updateStatus(trip.getId(), ScheduleStatus.CANCELLED);
+
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(10), at(12)));
+        assertEquals(Set.of(blue.getId()), repository.findBusyBusIds(at(11), at(12), null));
+
+        repository.updateStatus(trip.getId(), ScheduleStatus.SCHEDULED);
+        assertTrue(repository.isBusScheduledBetween(red.getId(), at(10), at(12)));
+    }
+
+    @Test
+    void aLongTripDepartingWellBeforeTheWindowIsFound() {
+        // Three days on the road, then a check for the afternoon of day two
+        repository.save(trip(red, 6, 6 + 72));
+        repository.save(trip(red, 80, 82));
+
+        assertTrue(repository.isBusScheduledBetween(red.getId(), at(24 + 14), at(24 + 15)));
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(78), at(80)));
+    }
+
+    @Test
+    void movingATripToAnotherBusFreesTheFirst() {
+        Schedule trip = repository.save(trip(red, 10, 12));
+
+        trip.setBus(blue);
+        repository.save(trip);
+
+        assertFalse(repository.isBusScheduledBetween(red.getId(), at(10), at(12)));
+        assertTrue(repository.isBusScheduledBetween(blue.getId(), at(10), at(12)));
+
+        repository.deleteById(trip.getId());
+        assertFalse(repository.isBusScheduledBetween(blue.getId(), at(10), at(12)));
+    }
+
+    @Test
+    void theScanWindowShrinksWhenTheLongestTripLeaves() {
+        TripIntervalIndex index = new TripIntervalIndex();
+        index.link(red.getId(), 1L, trip(red, 0, 48));
+        index.link(red.getId(), 2L, trip(red, 50, 52));
+        index.link(blue.getId(), 3L, trip(blue, 50, 52));
+        assertEquals(Duration.ofHours(48), index.getLongestTrip());
+
+        index.unlink(blue.getId(), 3L);
+        assertEquals(Duration.ofHours(48), index.getLongestTrip());
+
+        index.unlink(red.getId(), 1L);
+        assertEquals(Duration.ofHours(2), index.getLongestTrip());
+        assertTrue(index.hasOverlap(red.getId(), at(51), at(53), null));
+
+        index.unlink(red.getId(), 2L);
+        assertEquals(Duration.ZERO, index.getLongestTrip());
+        assertFalse(index.hasOverlap(red.getId(), at(51), at(53), null));
+    }
+
+    private static Schedule trip(Bus bus, int departureHour, int arrivalHour) {
+        Schedule schedule = new Schedule();
+        schedule.setBus(bus);
+        schedule.setDepartureTime(at(departureHour));
+        schedule.setArrivalTime(at(arrivalHour));
+        schedule.setStatus(ScheduleStatus.SCHEDULED.getLabel());
+        return schedule;
+    }
+
+    private static Bus bus(Long id) {
+        Bus bus = new Bus();
+        bus.setId(id);
+        bus.setCapacity(40);
+        return bus;
+    }
+
+    private static LocalDateTime at(int hour) {
+        return DAY.plusHours(hour);
+    }
+}
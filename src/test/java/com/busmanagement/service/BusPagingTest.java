@@ -0,0 +1,105 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.repository.CursorPage;
+import com.busmanagement.repository.InMemoryBusRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BusPagingTest {
+    // The bus repository is a singleton shared across tests, so registrations are kept unique
+    private static final AtomicInteger REGISTRATIONS = new AtomicInteger();
+
+    private BusService busService;
+
+    @BeforeEach
+    void setUp() {
+        busService = new BusService(InMemoryBusRepository.getInstance());
+        for (int i = 0; i < 7; i++) {
+            addBus();
+        }
+    }
+
+    @Test
+    void pagesWalkEveryBusOnceInIdOrder() {
+        List<Long> walked = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Bus> page = busService.getBusPage(cursor, 3);
+            assertTrue(page.getItems().size() <= 3);
+            page.getItems().forEach(bus -> walked.add(bus.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(ids(busService.getAllBuses()), walked);
+        assertEquals((walked.size() + 2) / 3, pages);
+    }
+
+    @Test
+    void aCursorStaysValidWhileRowsComeAndGo() {
+        List<Long> before = ids(busService.getAllBuses());
+        CursorPage<Bus> first = busService.getBusPage(null, 2);
+        Long cursor = first.getNextCursor();
+
+        // Delete a row already served and add one at the end
+        busService.deleteBus(first.getItems().get(0).getId());
+        Bus added = addBus();
+
+        List<Long> rest = new ArrayList<>();
+        for (Long next = cursor; ; ) {
+            CursorPage<Bus> page = busService.getBusPage(next, 2);
+            page.getItems().forEach(bus -> rest.add(bus.getId()));
+            next = page.getNextCursor();
+            if (next == null) {
+                break;
+            }
+        }
+
+        List<Long> expected = new ArrayList<>(before.subList(2, before.size()));
+        expected.add(added.getId());
+        assertEquals(expected, rest);
+    }
+
+    @Test
+    void theLastPageHasNoCursor() {
+        List<Bus> all = busService.getAllBuses();
+        Long secondToLast = all.get(all.size() - 2).getId();
+
+        CursorPage<Bus> page = busService.getBusPage(secondToLast, 5);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    void limitIsClampedToTheAllowedRange() {
+        assertEquals(1, busService.getBusPage(null, 0).getItems().size());
+        assertFalse(busService.getBusPage(null, 0).isLastPage());
+        assertTrue(busService.getBusPage(null, Integer.MAX_VALUE).getItems().size() <= CursorPage.MAX_LIMIT);
+    }
+
+    private Bus addBus() {
+        Bus bus = new Bus();
+        bus.setRegistrationNumber("PAGE-" + REGISTRATIONS.incrementAndGet());
+        bus.setCapacity(40);
+        bus.setStatus(Bus.BusStatus.ACTIVE);
+        return busService.saveBus(bus);
+    }
+
+    private static List<Long> ids(List<Bus> buses) {
+        return buses.stream().map(Bus::getId).sorted().collect(Collectors.toList());
+    }
+}
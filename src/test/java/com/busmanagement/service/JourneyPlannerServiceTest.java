@@ -0,0 +1,127 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.City;
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JourneyPlannerServiceTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 1);
+
+    private final City a = city(1L, "A");
+    private final City b = city(2L, "B");
+    private final City c = city(3L, "C");
+    private final City d = city(4L, "D");
+    private final City e = city(5L, "E");
+
+    private InMemoryScheduleRepository scheduleRepository;
+    private JourneyPlannerService planner;
+
+    @BeforeEach
+    void setUp() {
+        // A private repository rather than the shared singleton
+        scheduleRepository = new InMemoryScheduleRepository() { };
+        planner = new JourneyPlannerService(scheduleRepository, 30, 3, 48);
+    }
+
+    @Test
+    void keepsTheParetoSetOfDepartureArrivalAndTransfers() {
+        Schedule direct = trip(a, c, "08:00", "14:00");
+        Schedule toB = trip(a, b, "08:00", "10:00");
+        Schedule onToC = trip(b, c, "10:40", "12:00");
+        Schedule later = trip(a, c, "13:00", "16:00");
+
+        List<Journey> journeys = planner.planJourneys(a.getId(), c.getId(), DAY);
+
+        assertEquals(List.of(List.of(toB, onToC), List.of(direct), List.of(later)), legs(journeys));
+        assertEquals(1, journeys.get(0).getTransfers());
+        assertEquals(240, journeys.get(0).getTotalMinutes());
+    }
+
+    @Test
+    void connectionsNeedTheMinimumTransferTime() {
+        trip(a, b, "08:00", "10:00");
+        // Twenty minutes to change is less than the thirty required
+        trip(b, c, "10:20", "11:00");
+        Schedule enoughTime = trip(b, c, "10:30", "12:00");
+
+        List<Journey> journeys = planner.planJourneys(a.getId(), c.getId(), DAY);
+
+        assertEquals(1, journeys.size());
+        assertEquals(enoughTime, journeys.get(0).getLegs().get(1));
+    }
+
+    @Test
+    void skipsTripsThatCannotBeSold() {
+        Schedule cancelled = trip(a, c, "07:00", "09:00");
+        scheduleRepository.updateStatus(cancelled.getId(), ScheduleStatus.CANCELLED);
+        Schedule open = trip(a, c, "09:00", "12:00");
+
+        assertEquals(List.of(List.of(open)), legs(planner.planJourneys(a.getId(), c.getId(), DAY)));
+    }
+
+    @Test
+    void limitsTheNumberOfLegs() {
+        trip(a, b, "06:00", "07:00");
+        trip(b, c, "08:00", "09:00");
+        trip(c, d, "10:00", "11:00");
+        trip(d, e, "12:00", "13:00");
+
+        assertEquals(1, planner.planJourneys(a.getId(), d.getId(), DAY).size());
+        assertTrue(planner.planJourneys(a.getId(), e.getId(), DAY).isEmpty());
+    }
+
+    @Test
+    void seesTimetableChangesAndAnswersNothingForUnknownOrSameCities() {
+        trip(a, c, "08:00", "14:00");
+        assertEquals(1, planner.planJourneys(a.getId(), c.getId(), DAY).size());
+
+        Schedule faster = trip(a, c, "08:00", "11:00");
+
+        List<Journey> journeys = planner.planJourneys(a.getId(), c.getId(), DAY);
+        assertEquals(List.of(List.of(faster)), legs(journeys));
+        assertTrue(planner.planJourneys(a.getId(), 99L, DAY).isEmpty());
+        assertTrue(planner.planJourneys(a.getId(), a.getId(), DAY).isEmpty());
+        assertTrue(planner.planJourneys(a.getId(), c.getId(), DAY.plusDays(1)).isEmpty());
+    }
+
+    private Schedule trip(City from, City to, String departure, String arrival) {
+        Route route = new Route();
+        route.setSource(from);
+        route.setDestination(to);
+        route.setFareAmount(10.0);
+        Schedule schedule = new Schedule();
+        schedule.setRoute(route);
+        schedule.setDepartureTime(at(departure));
+        schedule.setArrivalTime(at(arrival));
+        schedule.setStatus(ScheduleStatus.SCHEDULED.getLabel());
+        return scheduleRepository.save(schedule);
+    }
+
+    private static LocalDateTime at(String time) {
+        return DAY.atTime(LocalTime.parse(time));
+    }
+
+    private static City city(Long id, String name) {
+        City city = new City();
+        city.setId(id);
+        city.setName(name);
+        return city;
+    }
+
+    private static List<List<Schedule>> legs(List<Journey> journeys) {
+        return journeys.stream().map(Journey::getLegs).collect(Collectors.toList());
+    }
+}
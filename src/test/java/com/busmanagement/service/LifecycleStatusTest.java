@@ -0,0 +1,162 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Maintenance.MaintenanceStatus;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LifecycleStatusTest {
+    private InMemoryMaintenanceRepository maintenanceRepository;
+    private MaintenanceScheduler maintenanceScheduler;
+    private MaintenanceService maintenanceService;
+    private BusService busService;
+    private Bus bus;
+
+    @BeforeEach
+    void setUp() {
+        // Private repositories rather than the shared singletons
+        maintenanceRepository = new InMemoryMaintenanceRepository() { };
+        maintenanceScheduler = new MaintenanceScheduler(maintenanceRepository);
+        busService = new BusService(new InMemoryBusRepository() { });
+        maintenanceService = new MaintenanceService(maintenanceRepository, busService, maintenanceScheduler);
+        bus = busService.getAllBuses().get(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        maintenanceScheduler.shutdown();
+    }
+
+    @Test
+    void maintenanceJobsMoveBetweenStateBucketsAndTakeTheBusWithThem() {
+        Maintenance job = maintenanceService.scheduleMaintenance(job());
+        assertEquals(List.of(job), maintenanceRepository.findByStatus(MaintenanceStatus.SCHEDULED));
+
+        maintenanceService.startMaintenance(job.getId());
+        assertTrue(maintenanceRepository.findByStatus(MaintenanceStatus.SCHEDULED).isEmpty());
+        assertEquals(List.of(job), maintenanceService.getInProgressMaintenance());
+        assertEquals(Bus.BusStatus.MAINTENANCE, busService.getBusById(bus.getId()).orElseThrow().getStatus());
+
+        maintenanceService.completeMaintenance(job.getId());
+        assertTrue(maintenanceService.getInProgressMaintenance().isEmpty());
+        assertEquals(List.of(job), maintenanceService.getCompletedMaintenance());
+        assertNotNull(job.getCompletedDate());
+        assertEquals(Bus.BusStatus.ACTIVE, busService.getBusById(bus.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void transitionsTheLifecycleDoesNotAllowAreRefused() {
+        Maintenance done = maintenanceService.scheduleMaintenance(job());
+        maintenanceService.completeMaintenance(done.getId());
+        Maintenance running = maintenanceService.scheduleMaintenance(job());
+        maintenanceService.startMaintenance(running.getId());
+
+        assertThrows(IllegalStateException.class, () -> maintenanceService.startMaintenance(done.getId()));
+        assertThrows(IllegalStateException.class, () -> maintenanceService.cancelMaintenance(done.getId()));
+        assertThrows(IllegalStateException.class, () -> maintenanceService.cancelMaintenance(running.getId()));
+        assertThrows(IllegalArgumentException.class, () -> maintenanceService.startMaintenance(999L));
+
+        // A refused move leaves the job where it was
+        assertEquals(List.of(done), maintenanceRepository.findByStatus(MaintenanceStatus.COMPLETED));
+        assertEquals(List.of(running), maintenanceRepository.findByStatus(MaintenanceStatus.IN_PROGRESS));
+        assertTrue(maintenanceRepository.findByStatus(MaintenanceStatus.CANCELLED).isEmpty());
+    }
+
+    @Test
+    void ofTwoRacingTransitionsExactlyOneWins() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 50; round++) {
+                Maintenance job = maintenanceService.scheduleMaintenance(job());
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger refused = new AtomicInteger();
+                List<Future<?>> moves = new ArrayList<>();
+                moves.add(pool.submit(() -> attempt(start, refused,
+                        () -> maintenanceService.cancelMaintenance(job.getId()))));
+                moves.add(pool.submit(() -> attempt(start, refused,
+                        () -> maintenanceService.startMaintenance(job.getId()))));
+                start.countDown();
+                for (Future<?> move : moves) {
+                    move.get();
+                }
+
+                assertEquals(1, refused.get());
+                MaintenanceStatus outcome = job.lifecycleStatus();
+                assertTrue(outcome == MaintenanceStatus.CANCELLED || outcome == MaintenanceStatus.IN_PROGRESS);
+                assertEquals(1, count(job, MaintenanceStatus.CANCELLED) + count(job, MaintenanceStatus.IN_PROGRESS));
+                if (outcome == MaintenanceStatus.IN_PROGRESS) {
+                    maintenanceService.completeMaintenance(job.getId());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void scheduleStatusChangesMoveTheTripAndBumpItsUpdateTime() throws Exception {
+        InMemoryScheduleRepository scheduleRepository = new InMemoryScheduleRepository() { };
+        Schedule trip = new Schedule();
+        trip.setBus(bus);
+        trip.setDepartureTime(LocalDateTime.now().plusDays(1));
+        trip.setArrivalTime(LocalDateTime.now().plusDays(1).plusHours(2));
+        trip.setStatus(ScheduleStatus.SCHEDULED.getLabel());
+        scheduleRepository.save(trip);
+        LocalDateTime savedAt = trip.getUpdatedAt();
+        Thread.sleep(5);
+
+        scheduleRepository.updateStatus(trip.getId(), ScheduleStatus.CANCELLED);
+
+        assertTrue(scheduleRepository.findByStatus(ScheduleStatus.SCHEDULED).isEmpty());
+        assertEquals(List.of(trip), scheduleRepository.findByStatus(ScheduleStatus.CANCELLED));
+        assertEquals(ScheduleStatus.CANCELLED, scheduleRepository.findStatus(trip.getId()));
+        // The ETag of /schedules/api/{id} is built on updatedAt
+        assertTrue(trip.getUpdatedAt().isAfter(savedAt));
+        assertThrows(IllegalArgumentException.class,
+                () -> scheduleRepository.updateStatus(999L, ScheduleStatus.COMPLETED));
+    }
+
+    private Maintenance job() {
+        Maintenance maintenance = new Maintenance();
+        maintenance.setBus(bus);
+        maintenance.setMaintenanceType("Inspection");
+        maintenance.setScheduledDate(LocalDateTime.now().plusDays(7));
+        return maintenance;
+    }
+
+    private int count(Maintenance job, MaintenanceStatus status) {
+        return maintenanceRepository.findByStatus(status).contains(job) ? 1 : 0;
+    }
+
+    private static void attempt(CountDownLatch start, AtomicInteger refused, Runnable move) {
+        try {
+            start.await();
+            move.run();
+        } catch (IllegalStateException e) {
+            refused.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Maintenance;
+import com.busmanagement.model.Maintenance.MaintenanceStatus;
+import com.busmanagement.repository.InMemoryMaintenanceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaintenanceSchedulerTest {
+    private InMemoryMaintenanceRepository repository;
+    private MaintenanceScheduler scheduler;
+    private final List<Maintenance> announced = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // A private repository rather than the shared singleton
+        repository = new InMemoryMaintenanceRepository() { };
+        scheduler = new MaintenanceScheduler(repository);
+        scheduler.addListener(announced::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void aJobMovesToOverdueWhenItsDateArrives() throws Exception {
+        Maintenance job = repository.save(job(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(150))));
+        assertEquals(List.of(job), repository.findUpcoming());
+        assertTrue(repository.findOverdue().isEmpty());
+
+        await(() -> announced.size() == 1);
+
+        assertEquals(List.of(job), announced);
+        assertEquals(List.of(job), repository.findOverdue());
+        assertTrue(repository.findUpcoming().isEmpty());
+        // Still scheduled, only late
+        assertEquals(List.of(job), repository.findScheduled());
+    }
+
+    @Test
+    void anEarlierJobSetsTheTimerSooner() throws Exception {
+        Maintenance later = repository.save(job(LocalDateTime.now().plusHours(1)));
+        Maintenance sooner = repository.save(job(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(100))));
+
+        await(() -> announced.size() == 1);
+
+        assertEquals(List.of(sooner), announced);
+        assertEquals(List.of(later), repository.findUpcoming());
+        assertEquals(later.getScheduledDate(), repository.nextDeadline());
+    }
+
+    @Test
+    void aJobSavedWithAPastDateIsOverdueButNotAnnounced() throws Exception {
+        Maintenance late = repository.save(job(LocalDateTime.now().minusDays(1)));
+        Maintenance due = repository.save(job(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(50))));
+
+        await(() -> announced.size() == 1);
+
+        assertEquals(List.of(due), announced);
+        assertEquals(List.of(late, due), repository.findOverdue());
+    }
+
+    @Test
+    void upcomingJobsAreListedEarliestFirstAndLeaveWhenClosed() {
+        LocalDateTime now = LocalDateTime.now();
+        Maintenance third = repository.save(job(now.plusDays(3)));
+        Maintenance first = repository.save(job(now.plusDays(1)));
+        Maintenance second = repository.save(job(now.plusDays(2)));
+        assertEquals(List.of(first, second, third), repository.findUpcoming());
+
+        repository.transition(first.getId(), MaintenanceStatus.CANCELLED, m -> { });
+        repository.transition(second.getId(), MaintenanceStatus.IN_PROGRESS, m -> { });
+
+        assertEquals(List.of(third), repository.findUpcoming());
+        assertEquals(List.of(second), repository.findInProgress());
+        assertEquals(third.getScheduledDate(), repository.nextDeadline());
+        assertTrue(announced.isEmpty());
+    }
+
+    private static Maintenance job(LocalDateTime date) {
+        Bus bus = new Bus();
+        bus.setId(1L);
+        Maintenance maintenance = new Maintenance();
+        maintenance.setBus(bus);
+        maintenance.setMaintenanceType("Inspection");
+        maintenance.setScheduledDate(date);
+        return maintenance;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
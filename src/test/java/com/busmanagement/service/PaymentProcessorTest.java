@@ -0,0 +1,241 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Payment;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentProcessorTest {
+    private ScriptedGateway gateway;
+    private InMemoryPaymentRepository paymentRepository;
+    private PaymentProcessor processor;
+    private PaymentService paymentService;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        gateway = new ScriptedGateway();
+        paymentRepository = new InMemoryPaymentRepository();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        gateway.release();
+        processor.shutdown();
+    }
+
+    @Test
+    void retryableFailuresAreRetriedWithTheSameKeyUntilTheChargeGoesThrough() throws Exception {
+        start(2, 10, 5);
+        gateway.failNext(new PaymentGatewayException("timeout", true));
+        gateway.failNext(new PaymentGatewayException("timeout", true));
+        List<Payment> settled = new CopyOnWriteArrayList<>();
+        processor.addListener(settled::add);
+        Payment payment = pending(50);
+
+        Payment result = processor.submitCharge(payment).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isCompleted());
+        assertEquals(List.of(payment.getPaymentId(), payment.getPaymentId(), payment.getPaymentId()), gateway.keys);
+        assertEquals(2, processor.getRetryCount());
+        assertEquals(List.of(result), settled);
+        assertEquals(0, processor.getInFlightCount());
+    }
+
+    @Test
+    void aDeclineOrTooManyFailuresMarksTheChargeFailed() throws Exception {
+        start(2, 10, 3);
+        gateway.failNext(new PaymentGatewayException("Card declined", false));
+        Payment declined = processor.submitCharge(pending(20)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(declined.isFailed());
+        assertEquals("Card declined", declined.getFailureReason());
+        assertEquals(1, gateway.keys.size());
+
+        for (int i = 0; i < 3; i++) {
+            gateway.failNext(new PaymentGatewayException("Gateway unavailable", true));
+        }
+        Payment exhausted = processor.submitCharge(pending(20)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(exhausted.isFailed());
+        assertEquals("Gateway unavailable", exhausted.getFailureReason());
+        assertEquals(4, gateway.keys.size());
+    }
+
+    @Test
+    void aFullQueueRefusesNewChargesButNeverARefund() throws Exception {
+        start(1, 1, 5);
+        gateway.block();
+        CompletableFuture<Payment> running = processor.submitCharge(pending(10));
+        assertTrue(gateway.awaitCalls(1));
+        CompletableFuture<Payment> queued = processor.submitCharge(pending(11));
+        Payment refused = pending(12);
+
+        assertThrows(IllegalStateException.class, () -> processor.submitCharge(refused));
+        assertTrue(paymentRepository.findById(refused.getId()).orElseThrow().isFailed());
+        assertEquals("Payment queue is full", refused.getFailureReason());
+        assertEquals(1, processor.getRejectedCount());
+
+        // The queue is still full, but the customer is owed this money
+        Payment charged = completed(30);
+        paymentService.processRefund(charged, 30);
+        gateway.release();
+
+        assertTrue(running.get(5, TimeUnit.SECONDS).isCompleted());
+        assertTrue(queued.get(5, TimeUnit.SECONDS).isCompleted());
+        awaitRefundStatus(charged, "PROCESSED");
+        assertTrue(gateway.keys.contains("REFUND-" + charged.getPaymentId()));
+    }
+
+    @Test
+    void aSecondSubmissionOfAChargeInFlightJoinsTheFirst() throws Exception {
+        start(2, 10, 5);
+        gateway.block();
+        Payment payment = pending(40);
+
+        CompletableFuture<Payment> first = processor.submitCharge(payment);
+        CompletableFuture<Payment> second = processor.submitCharge(payment);
+        gateway.release();
+
+        assertSame(first, second);
+        assertTrue(first.get(5, TimeUnit.SECONDS).isCompleted());
+        assertEquals(1, gateway.keys.size());
+    }
+
+    @Test
+    void aRefundAskedForWhileTheChargeIsInFlightIsSentOnceItCompletes() throws Exception {
+        start(2, 10, 5);
+        gateway.block();
+        Payment payment = pending(60);
+        CompletableFuture<Payment> charge = processor.submitCharge(payment);
+        assertTrue(gateway.awaitCalls(1));
+
+        paymentService.processRefund(payment, 45);
+        assertEquals(1, gateway.keys.size());
+        gateway.release();
+
+        assertTrue(charge.get(5, TimeUnit.SECONDS).isCompleted());
+        awaitRefundStatus(payment, "PROCESSED");
+        assertEquals(List.of(payment.getPaymentId(), "REFUND-" + payment.getPaymentId()), gateway.keys);
+        assertEquals(45, gateway.lastRefundAmount, 0.001);
+    }
+
+    @Test
+    void aRefundAskedForWhileTheChargeIsInFlightIsDroppedIfItFails() throws Exception {
+        start(2, 10, 5);
+        gateway.block();
+        gateway.failNext(new PaymentGatewayException("Card declined", false));
+        Payment payment = pending(60);
+        CompletableFuture<Payment> charge = processor.submitCharge(payment);
+        assertTrue(gateway.awaitCalls(1));
+
+        paymentService.processRefund(payment, 60);
+        gateway.release();
+
+        assertTrue(charge.get(5, TimeUnit.SECONDS).isFailed());
+        assertEquals("NONE", payment.getRefundStatus());
+        assertEquals(0, payment.getRefundAmount(), 0.001);
+        assertEquals(1, gateway.keys.size());
+    }
+
+    private void start(int workers, int queueCapacity, int maxAttempts) {
+        processor = new PaymentProcessor(gateway, paymentRepository, workers, queueCapacity, maxAttempts, 1, 5);
+        paymentService = new PaymentService(paymentRepository, processor);
+    }
+
+    private Payment pending(double amount) {
+        Payment payment = new Payment();
+        payment.setPaymentId("PAY-TEST-" + sequence.incrementAndGet());
+        payment.setAmount(amount);
+        payment.setPaymentMethod("CARD");
+        return paymentRepository.save(payment);
+    }
+
+    private Payment completed(double amount) {
+        Payment payment = pending(amount);
+        payment.setStatus("COMPLETED");
+        return paymentRepository.save(payment);
+    }
+
+    private static void awaitRefundStatus(Payment payment, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!status.equals(payment.getRefundStatus())) {
+            assertTrue(System.nanoTime() < deadline, "refund is still " + payment.getRefundStatus());
+            Thread.sleep(2);
+        }
+    }
+
+    // Answers from a script of failures, then succeeds; can hold every call until released
+    private static final class ScriptedGateway implements PaymentGateway {
+        private final List<String> keys = new CopyOnWriteArrayList<>();
+        private final Deque<RuntimeException> failures = new ArrayDeque<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile double lastRefundAmount;
+
+        synchronized void failNext(RuntimeException failure) {
+            failures.add(failure);
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        boolean awaitCalls(int calls) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (keys.size() < calls) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+            return true;
+        }
+
+        @Override
+        public String charge(String idempotencyKey, double amount, String paymentMethod) {
+            return call(idempotencyKey);
+        }
+
+        @Override
+        public String refund(String idempotencyKey, String paymentId, double amount) {
+            lastRefundAmount = amount;
+            return call(idempotencyKey);
+        }
+
+        private String call(String key) {
+            keys.add(key);
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RuntimeException failure;
+            synchronized (this) {
+                failure = failures.poll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return "REF-" + key;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Payment;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.InMemoryBookingRepository;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryPaymentRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduleCancellationTest {
+    private static final int CAPACITY = 40;
+    private static final double FARE = 25.0;
+
+    private final AtomicInteger paymentIds = new AtomicInteger();
+    private InMemoryScheduleRepository scheduleRepository;
+    private InMemoryBookingRepository bookingRepository;
+    private InMemoryPaymentRepository paymentRepository;
+    private SeatInventoryService seatInventoryService;
+    private PaymentProcessor paymentProcessor;
+    private SeatHoldService seatHoldService;
+    private BookingService bookingService;
+    private Schedule trip;
+    private Schedule otherTrip;
+
+    @BeforeEach
+    void setUp() {
+        // Private repositories rather than the shared singletons
+        scheduleRepository = new InMemoryScheduleRepository() { };
+        bookingRepository = new InMemoryBookingRepository();
+        paymentRepository = new InMemoryPaymentRepository();
+        InMemoryTicketRepository ticketRepository = new InMemoryTicketRepository();
+        seatInventoryService = new SeatInventoryService(scheduleRepository, ticketRepository);
+        BusService busService = new BusService(new InMemoryBusRepository() { });
+        ScheduleService scheduleService = new ScheduleService(scheduleRepository, busService,
+                new RouteService(new InMemoryRouteRepository() { }), seatInventoryService,
+                new ScheduleSearchCache(scheduleRepository, 16));
+        // A gateway that always accepts at once
+        PaymentGateway gateway = new PaymentGateway() {
+            @Override
+            public String charge(String idempotencyKey, double amount, String paymentMethod) {
+                return "CH-" + idempotencyKey;
+            }
+
+            @Override
+            public String refund(String idempotencyKey, String paymentId, double amount) {
+                return "RF-" + idempotencyKey;
+            }
+        };
+        paymentProcessor = new PaymentProcessor(gateway, paymentRepository, 4, 1000, 3, 1, 5);
+        seatHoldService = new SeatHoldService(seatInventoryService, 600);
+        bookingService = new BookingService(bookingRepository, new PaymentService(paymentRepository, paymentProcessor),
+                new TicketService(ticketRepository, seatInventoryService), seatInventoryService, seatHoldService,
+                scheduleService);
+
+        trip = scheduleRepository.save(trip(1L, 10));
+        otherTrip = scheduleRepository.save(trip(2L, 10));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        paymentProcessor.shutdown();
+        seatHoldService.shutdown();
+    }
+
+    @Test
+    void cancelsEveryLiveBookingFreesItsSeatsAndRefundsInFull() throws Exception {
+        Booking first = book(trip, 1);
+        Booking second = book(trip, 2);
+        Booking alreadyCancelled = book(trip, 3);
+        Booking elsewhere = book(otherTrip, 1);
+        awaitStatus(first, "CONFIRMED");
+        awaitStatus(second, "CONFIRMED");
+        awaitStatus(alreadyCancelled, "CONFIRMED");
+        bookingService.cancelBooking(alreadyCancelled.getId());
+
+        ScheduleCancellation result = bookingService.cancelSchedule(trip.getId());
+
+        assertEquals(2, result.getBookingsCancelled());
+        assertEquals(2, result.getTicketsCancelled());
+        assertEquals(2, result.getRefundsQueued());
+        assertEquals(2 * FARE, result.getRefundTotal(), 0.001);
+        assertEquals(ScheduleStatus.CANCELLED, scheduleRepository.findStatus(trip.getId()));
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        assertTrue(seatInventoryService.getBookedSeats(trip.getId()).isEmpty());
+        awaitRefund(first, "PROCESSED", FARE);
+        awaitRefund(second, "PROCESSED", FARE);
+
+        // The other trip is untouched
+        awaitStatus(elsewhere, "CONFIRMED");
+        assertEquals(List.of(1), seatInventoryService.getBookedSeats(otherTrip.getId()));
+        assertEquals("NONE", payment(elsewhere).getRefundStatus());
+    }
+
+    @Test
+    void aCancelledTripTakesNoMoreBookingsAndASecondSweepFindsNothing() throws Exception {
+        awaitStatus(book(trip, 5), "CONFIRMED");
+        bookingService.cancelSchedule(trip.getId());
+
+        assertThrows(IllegalStateException.class, () -> book(trip, 6));
+        assertTrue(seatInventoryService.getBookedSeats(trip.getId()).isEmpty());
+
+        ScheduleCancellation again = bookingService.cancelSchedule(trip.getId());
+        assertEquals(0, again.getBookingsCancelled());
+        assertEquals(0, again.getRefundsQueued());
+    }
+
+    @Test
+    void noBookingOutlivesACancellationThatRacesIt() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Booking>> attempts = new ArrayList<>();
+        try {
+            for (int seat = 1; seat <= CAPACITY; seat++) {
+                int chosen = seat;
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    return book(trip, chosen);
+                }));
+            }
+            start.countDown();
+            Thread.sleep(1);
+            bookingService.cancelSchedule(trip.getId());
+
+            List<Booking> made = new ArrayList<>();
+            for (Future<Booking> attempt : attempts) {
+                try {
+                    made.add(attempt.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    // Refused: the trip was already cancelled
+                    assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+                }
+            }
+            for (Booking booking : made) {
+                awaitStatus(booking, "CANCELLED");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Booking booking : bookingRepository.findAll()) {
+            if (booking.getSchedule().getId().equals(trip.getId())) {
+                assertTrue(booking.isCancelled(), "booking " + booking.getId() + " is " + booking.getStatus());
+            }
+        }
+        assertTrue(seatInventoryService.getBookedSeats(trip.getId()).isEmpty());
+    }
+
+    private Booking book(Schedule schedule, int seat) {
+        return bookingService.createSingleTicketBooking(schedule, "Passenger " + seat, "p" + seat + "@example.com",
+                "555-0100", seat, FARE, "CARD", "PAY-CANCEL-" + paymentIds.incrementAndGet());
+    }
+
+    private Payment payment(Booking booking) {
+        return paymentRepository.findByBookingId(booking.getId()).orElseThrow();
+    }
+
+    private static Schedule trip(Long busId, int daysAhead) {
+        Bus bus = new Bus();
+        bus.setId(busId);
+        bus.setCapacity(CAPACITY);
+        Schedule schedule = new Schedule();
+        schedule.setBus(bus);
+        schedule.setDepartureTime(LocalDateTime.now().plusDays(daysAhead));
+        schedule.setArrivalTime(LocalDateTime.now().plusDays(daysAhead).plusHours(3));
+        schedule.setAvailableSeats(CAPACITY);
+        schedule.setStatus(ScheduleStatus.SCHEDULED.getLabel());
+        return schedule;
+    }
+
+    private static void awaitStatus(Booking booking, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!status.equals(booking.getStatus())) {
+            assertTrue(System.nanoTime() < deadline, "booking is still " + booking.getStatus());
+            Thread.sleep(2);
+        }
+    }
+
+    private void awaitRefund(Booking booking, String status, double amount) throws InterruptedException {
+        Payment payment = payment(booking);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!status.equals(payment.getRefundStatus())) {
+            assertTrue(System.nanoTime() < deadline, "refund is still " + payment.getRefundStatus());
+            Thread.sleep(2);
+        }
+        assertEquals(amount, payment.getRefundAmount(), 0.001);
+        assertFalse(payment.isFailed());
+    }
+}
@@ -0,0 +1,133 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.City;
+import com.busmanagement.model.Route;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Schedule.ScheduleStatus;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ScheduleSearchCacheTest {
+    // The schedule repository is a singleton shared across tests, so each test gets its own cities
+    private static final AtomicLong CITY_IDS = new AtomicLong(1_000_000);
+
+    private InMemoryScheduleRepository scheduleRepository;
+    private ScheduleSearchCache cache;
+    private Route route;
+    private LocalDate travelDate;
+
+    @BeforeEach
+    void setUp() {
+        scheduleRepository = InMemoryScheduleRepository.getInstance();
+        cache = new ScheduleSearchCache(scheduleRepository, 16);
+        route = new Route();
+        route.setSource(city("Source"));
+        route.setDestination(city("Destination"));
+        travelDate = LocalDate.now().plusDays(3);
+    }
+
+    @Test
+    void cachedResultsAreServedUntilTheRouteDayChanges() {
+        List<Schedule> results = Collections.singletonList(trip(travelDate));
+        cache.put(sourceId(), destinationId(), travelDate, results, cache.stamp());
+
+        assertSame(results, cache.get(sourceId(), destinationId(), travelDate));
+        assertEquals(1, cache.getHitCount());
+
+        scheduleRepository.save(trip(travelDate));
+
+        assertNull(cache.get(sourceId(), destinationId(), travelDate));
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    void writesOnAnotherDayLeaveTheEntryAlone() {
+        List<Schedule> results = Collections.emptyList();
+        cache.put(sourceId(), destinationId(), travelDate, results, cache.stamp());
+
+        scheduleRepository.save(trip(travelDate.plusDays(1)));
+
+        assertSame(results, cache.get(sourceId(), destinationId(), travelDate));
+        assertEquals(0, cache.getInvalidationCount());
+    }
+
+    @Test
+    void cancellingATripDropsItsRouteDay() {
+        Schedule saved = scheduleRepository.save(trip(travelDate));
+        cache.put(sourceId(), destinationId(), travelDate, Collections.singletonList(saved), cache.stamp());
+
+        scheduleRepository.updateStatus(saved.getId(), ScheduleStatus.CANCELLED);
+
+        assertNull(cache.get(sourceId(), destinationId(), travelDate));
+    }
+
+    @Test
+    void movingATripDropsBothTheOldAndTheNewRouteDay() {
+        Schedule saved = scheduleRepository.save(trip(travelDate));
+        LocalDate newDate = travelDate.plusDays(2);
+        cache.put(sourceId(), destinationId(), travelDate, Collections.singletonList(saved), cache.stamp());
+        cache.put(sourceId(), destinationId(), newDate, Collections.emptyList(), cache.stamp());
+
+        saved.setDepartureTime(newDate.atTime(9, 0));
+        saved.setArrivalTime(newDate.atTime(13, 0));
+        scheduleRepository.save(saved);
+
+        assertNull(cache.get(sourceId(), destinationId(), travelDate));
+        assertNull(cache.get(sourceId(), destinationId(), newDate));
+    }
+
+    @Test
+    void resultsComputedBeforeAWriteAreNotCached() {
+        long stamp = cache.stamp();
+        List<Schedule> stale = Collections.emptyList();
+
+        scheduleRepository.save(trip(travelDate));
+        cache.put(sourceId(), destinationId(), travelDate, stale, stamp);
+
+        assertNull(cache.get(sourceId(), destinationId(), travelDate));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void zeroCapacityCachesNothing() {
+        ScheduleSearchCache disabled = new ScheduleSearchCache(scheduleRepository, 0);
+        disabled.put(sourceId(), destinationId(), travelDate, Collections.emptyList(), disabled.stamp());
+
+        assertNull(disabled.get(sourceId(), destinationId(), travelDate));
+        assertEquals(0, disabled.getSize());
+    }
+
+    private Schedule trip(LocalDate date) {
+        Schedule schedule = new Schedule();
+        schedule.setRoute(route);
+        schedule.setDepartureTime(date.atTime(8, 0));
+        schedule.setArrivalTime(date.atTime(12, 0));
+        schedule.setStatus(ScheduleStatus.SCHEDULED.getLabel());
+        return schedule;
+    }
+
+    private Long sourceId() {
+        return route.getSource().getId();
+    }
+
+    private Long destinationId() {
+        return route.getDestination().getId();
+    }
+
+    private static City city(String name) {
+        City city = new City();
+        city.setId(CITY_IDS.getAndIncrement());
+        city.setName(name);
+        return city;
+    }
+}
@@ -0,0 +1,121 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatHoldServiceTest {
+    private static final int CAPACITY = 40;
+
+    private SeatInventoryService seatInventoryService;
+    private SeatHoldService seatHoldService;
+    private Schedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryScheduleRepository scheduleRepository = InMemoryScheduleRepository.getInstance();
+        seatInventoryService = new SeatInventoryService(scheduleRepository, new InMemoryTicketRepository());
+        seatHoldService = new SeatHoldService(seatInventoryService, 600);
+
+        Bus bus = new Bus();
+        bus.setCapacity(CAPACITY);
+        Schedule trip = new Schedule();
+        trip.setBus(bus);
+        trip.setDepartureTime(LocalDateTime.now().plusDays(1));
+        trip.setArrivalTime(LocalDateTime.now().plusDays(1).plusHours(2));
+        trip.setAvailableSeats(CAPACITY);
+        schedule = scheduleRepository.save(trip);
+    }
+
+    @AfterEach
+    void tearDown() {
+        seatHoldService.shutdown();
+    }
+
+    @Test
+    void convertingAHoldKeepsTheSeatAndTakesItsTimerOffTheQueue() {
+        SeatHold hold = seatHoldService.placeHold(schedule, 5, "session-a");
+        assertEquals(1, seatHoldService.getPendingExpiryCount());
+
+        assertTrue(seatHoldService.convertHold(hold.getHoldId(), schedule.getId(), 5, "session-a"));
+
+        assertEquals(0, seatHoldService.getPendingExpiryCount());
+        assertEquals(0, seatHoldService.getActiveHoldCount());
+        assertTrue(seatInventoryService.getInventory(schedule).isTaken(5));
+        // Converted once; a second booking cannot take it over again
+        assertFalse(seatHoldService.convertHold(hold.getHoldId(), schedule.getId(), 5, "session-a"));
+    }
+
+    @Test
+    void onlyTheOwnerCanConvertAHold() {
+        SeatHold hold = seatHoldService.placeHold(schedule, 5, "session-a");
+
+        assertFalse(seatHoldService.convertHold(hold.getHoldId(), schedule.getId(), 5, "session-b"));
+        assertFalse(seatHoldService.convertHold(hold.getHoldId(), schedule.getId(), 6, "session-a"));
+        assertEquals(1, seatHoldService.getActiveHoldCount());
+    }
+
+    @Test
+    void releasingAHoldFreesTheSeatAndItsTimer() {
+        SeatHold hold = seatHoldService.placeHold(schedule, 5, "session-a");
+
+        seatHoldService.releaseHold(hold.getHoldId(), schedule.getId(), 5, "session-a");
+
+        assertEquals(0, seatHoldService.getPendingExpiryCount());
+        assertFalse(seatInventoryService.getInventory(schedule).isTaken(5));
+    }
+
+    @Test
+    void aSeatHeldBySomeoneElseCannotBeHeld() {
+        seatHoldService.placeHold(schedule, 5, "session-a");
+
+        assertThrows(IllegalStateException.class, () -> seatHoldService.placeHold(schedule, 5, "session-b"));
+    }
+
+    @Test
+    void holdingAnotherSeatGivesThePreviousOneBack() {
+        SeatHold first = seatHoldService.placeHold(schedule, 5, "session-a");
+        assertSame(first, seatHoldService.placeHold(schedule, 5, "session-a"));
+
+        seatHoldService.placeHold(schedule, 6, "session-a");
+
+        SeatInventory inventory = seatInventoryService.getInventory(schedule);
+        assertFalse(inventory.isTaken(5));
+        assertTrue(inventory.isTaken(6));
+        assertEquals(1, seatHoldService.getActiveHoldCount());
+        assertEquals(1, seatHoldService.getPendingExpiryCount());
+    }
+
+    @Test
+    void aLapsedHoldGivesItsSeatBack() throws InterruptedException {
+        SeatHoldService shortHolds = new SeatHoldService(seatInventoryService, 1);
+        try {
+            SeatHold hold = shortHolds.placeHold(schedule, 5, "session-a");
+
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (shortHolds.getActiveHoldCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(0, shortHolds.getActiveHoldCount());
+            assertFalse(seatInventoryService.getInventory(schedule).isTaken(5));
+            assertFalse(shortHolds.convertHold(hold.getHoldId(), schedule.getId(), 5, "session-a"));
+            // The seat is free for anyone once more
+            seatInventoryService.claimSeat(schedule, 5);
+        } finally {
+            shortHolds.shutdown();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Booking;
+import com.busmanagement.model.Bus;
+import com.busmanagement.model.Schedule;
+import com.busmanagement.model.Ticket;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatInventoryConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int CAPACITY = 40;
+
+    private SeatInventoryService seatInventoryService;
+    private InMemoryTicketRepository ticketRepository;
+    private TicketService ticketService;
+    private ExecutorService executor;
+    private Schedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryScheduleRepository scheduleRepository = InMemoryScheduleRepository.getInstance();
+        ticketRepository = new InMemoryTicketRepository();
+        seatInventoryService = new SeatInventoryService(scheduleRepository, ticketRepository);
+        ticketService = new TicketService(ticketRepository, seatInventoryService);
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        Bus bus = new Bus();
+        bus.setCapacity(CAPACITY);
+        Schedule trip = new Schedule();
+        trip.setBus(bus);
+        trip.setDepartureTime(LocalDateTime.now().plusDays(1));
+        trip.setArrivalTime(LocalDateTime.now().plusDays(1).plusHours(2));
+        trip.setAvailableSeats(CAPACITY);
+        schedule = scheduleRepository.save(trip);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void onlyOneOfManyConcurrentClaimsOnASeatWins() throws Exception {
+        AtomicInteger won = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        runTogether(THREADS * 4, () -> {
+            try {
+                seatInventoryService.claimSeat(schedule, 7);
+                won.incrementAndGet();
+            } catch (IllegalStateException e) {
+                refused.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(1, won.get());
+        assertEquals(THREADS * 4 - 1, refused.get());
+        assertEquals(CAPACITY - 1, seatInventoryService.getInventory(schedule).getAvailableCount());
+    }
+
+    @Test
+    void claimAndReleaseChurnNeverHandsASeatToTwoOwners() throws Exception {
+        AtomicIntegerArray owners = new AtomicIntegerArray(CAPACITY + 1);
+        AtomicInteger doubleClaims = new AtomicInteger();
+        runTogether(THREADS, () -> {
+            for (int i = 0; i < 2_000; i++) {
+                int seat = 1 + (int) (Math.random() * CAPACITY);
+                try {
+                    seatInventoryService.claimSeat(schedule, seat);
+                } catch (IllegalStateException e) {
+                    continue;
+                }
+                if (!owners.compareAndSet(seat, 0, 1)) {
+                    doubleClaims.incrementAndGet();
+                }
+                owners.set(seat, 0);
+                assertTrue(seatInventoryService.releaseSeat(schedule, seat));
+            }
+            return null;
+        });
+
+        assertEquals(0, doubleClaims.get());
+        assertEquals(CAPACITY, seatInventoryService.getInventory(schedule).getAvailableCount());
+    }
+
+    @Test
+    void concurrentCancelsOfOneTicketReleaseItsSeatOnce() throws Exception {
+        Ticket ticket = bookSeat(3);
+
+        runTogether(THREADS, () -> ticketService.cancelTicket(ticket.getId()));
+
+        assertTrue(ticketRepository.findById(ticket.getId()).get().isCancelled());
+        assertEquals(CAPACITY, seatInventoryService.getInventory(schedule).getAvailableCount());
+
+        // The seat is resold; a late cancel of the old ticket must not free it again
+        Ticket resold = bookSeat(3);
+        ticketService.cancelTicket(ticket.getId());
+        assertTrue(seatInventoryService.getInventory(schedule).isTaken(3));
+        assertFalse(ticketRepository.findById(resold.getId()).get().isCancelled());
+    }
+
+    @Test
+    void bulkCancelRacingSingleCancelsLeavesEveryTicketCancelledAndSeatFree() throws Exception {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int seat = 1; seat <= CAPACITY; seat++) {
+            tickets.add(bookSeat(seat));
+        }
+        List<Callable<Object>> tasks = new ArrayList<>();
+        tasks.add(() -> ticketService.cancelTickets(tickets));
+        for (Ticket ticket : tickets) {
+            tasks.add(() -> ticketService.cancelTicket(ticket.getId()));
+        }
+        runTogether(tasks);
+
+        for (Ticket ticket : tickets) {
+            assertTrue(ticketRepository.findById(ticket.getId()).get().isCancelled());
+        }
+        assertEquals(CAPACITY, seatInventoryService.getInventory(schedule).getAvailableCount());
+    }
+
+    @Test
+    void resizingKeepsTakenSeatsAndOpensTheNewOnes() {
+        seatInventoryService.claimSeat(schedule, 3);
+        seatInventoryService.claimSeat(schedule, CAPACITY);
+
+        seatInventoryService.resizeInventory(schedule.getId(), 70);
+
+        SeatInventory inventory = seatInventoryService.getInventory(schedule);
+        assertEquals(70, inventory.getCapacity());
+        assertEquals(List.of(3, CAPACITY), inventory.getTakenSeats());
+        seatInventoryService.claimSeat(schedule, 64);
+        assertEquals(67, inventory.getAvailableCount());
+    }
+
+    @Test
+    void shrinkingPastATakenSeatIsRefusedAndChangesNothing() {
+        seatInventoryService.claimSeat(schedule, 38);
+
+        assertThrows(IllegalStateException.class, () -> seatInventoryService.resizeInventory(schedule.getId(), 30));
+
+        SeatInventory inventory = seatInventoryService.getInventory(schedule);
+        assertEquals(CAPACITY, inventory.getCapacity());
+        assertTrue(inventory.isTaken(38));
+        seatInventoryService.claimSeat(schedule, 39);
+        assertTrue(seatInventoryService.releaseSeat(schedule, 38));
+        assertEquals(CAPACITY - 1, inventory.getAvailableCount());
+    }
+
+    @Test
+    void claimsAndReleasesRacingAResizeAreNeverLost() throws Exception {
+        // A handle taken before the resizes, which must keep forwarding to the latest copy
+        SeatInventory original = seatInventoryService.getInventory(schedule);
+        AtomicIntegerArray owners = new AtomicIntegerArray(CAPACITY + 1);
+        AtomicInteger doubleClaims = new AtomicInteger();
+        int grownTo = CAPACITY + 100;
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS - 1; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    int seat = 1 + (int) (Math.random() * CAPACITY);
+                    if (!original.claim(seat)) {
+                        continue;
+                    }
+                    if (!owners.compareAndSet(seat, 0, 1)) {
+                        doubleClaims.incrementAndGet();
+                    }
+                    owners.set(seat, 0);
+                    assertTrue(original.release(seat));
+                }
+                return null;
+            });
+        }
+        // Grows one seat at a time, across the 63-seat word boundaries
+        tasks.add(() -> {
+            for (int capacity = CAPACITY + 1; capacity <= grownTo; capacity++) {
+                seatInventoryService.resizeInventory(schedule.getId(), capacity);
+            }
+            return null;
+        });
+        runTogether(tasks);
+
+        SeatInventory inventory = seatInventoryService.getInventory(schedule);
+        assertEquals(0, doubleClaims.get());
+        assertEquals(grownTo, original.getCapacity());
+        assertEquals(grownTo, inventory.getAvailableCount());
+        assertEquals(0, inventory.getTakenCount());
+    }
+
+    private Ticket bookSeat(int seatNumber) {
+        seatInventoryService.claimSeat(schedule, seatNumber);
+        Booking booking = new Booking();
+        booking.setSchedule(schedule);
+        Ticket ticket = new Ticket();
+        ticket.setBooking(booking);
+        ticket.setSeatNumber(seatNumber);
+        return ticketService.saveTicket(ticket);
+    }
+
+    private void runTogether(int copies, Callable<Object> task) throws Exception {
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            tasks.add(task);
+        }
+        runTogether(tasks);
+    }
+
+    // Start every task at once, then wait for all of them; a task's failure fails the test
+    private void runTogether(List<Callable<Object>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (Callable<Object> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Object> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
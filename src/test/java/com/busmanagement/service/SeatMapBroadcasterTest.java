@@ -0,0 +1,141 @@
+package com.busmanagement.service;
+
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatMapBroadcasterTest {
+    // No such schedule, so the snapshot is empty
+    private static final long SCHEDULE_ID = 987_654L;
+    private static final int BUFFER_EVENTS = 4;
+
+    private SeatMapBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        SeatInventoryService seatInventoryService = new SeatInventoryService(
+                InMemoryScheduleRepository.getInstance(), new InMemoryTicketRepository());
+        // One drain thread, so a drain stuck on a socket would starve everyone
+        broadcaster = new SeatMapBroadcaster(seatInventoryService, 60, 3600, 1, BUFFER_EVENTS, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void aStalledClientDoesNotHoldUpTheOthers() throws Exception {
+        RecordingEmitter stalled = new RecordingEmitter(new CountDownLatch(1));
+        RecordingEmitter healthy = new RecordingEmitter(null);
+        broadcaster.subscribe(SCHEDULE_ID, stalled);
+        broadcaster.subscribe(SCHEDULE_ID, healthy);
+        await(() -> healthy.sent.size() == 1);
+
+        int changes = BUFFER_EVENTS * 3;
+        for (int seat = 1; seat <= changes; seat++) {
+            broadcaster.seatChanged(SCHEDULE_ID, seat, SeatState.BOOKED);
+            int expected = seat + 1;
+            // One event per change
+            await(() -> healthy.sent.size() == expected);
+        }
+
+        // The stalled client fell more than its buffer behind and was dropped
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertFalse(stalled.completed);
+
+        // It is completed once its blocked write returns, not before
+        stalled.release.countDown();
+        await(() -> stalled.completed);
+        assertFalse(healthy.completed);
+        assertTrue(stalled.sent.size() <= BUFFER_EVENTS + 1);
+    }
+
+    @Test
+    void aHealthyClientSeesEveryChangeInOrder() throws Exception {
+        RecordingEmitter client = new RecordingEmitter(null);
+        broadcaster.subscribe(SCHEDULE_ID, client);
+        await(() -> client.sent.size() == 1);
+
+        for (int seat = 1; seat <= 500; seat++) {
+            broadcaster.seatChanged(SCHEDULE_ID, seat, SeatState.HELD);
+        }
+
+        // Changes are batched, so count seats rather than events
+        await(() -> client.seatsSeen() == 500);
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertFalse(client.completed);
+    }
+
+    @Test
+    void shutdownCompletesEveryClient() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(null);
+        RecordingEmitter second = new RecordingEmitter(null);
+        broadcaster.subscribe(SCHEDULE_ID, first);
+        broadcaster.subscribe(SCHEDULE_ID, second);
+        await(() -> first.sent.size() == 1 && second.sent.size() == 1);
+
+        broadcaster.shutdown();
+
+        await(() -> first.completed && second.completed);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(2);
+        }
+    }
+
+    // Stands in for a client; with a latch, every write blocks until it is released, like a full socket
+    private static final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            event.build().forEach(part -> text.append(part.getData()));
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        int seatsSeen() {
+            int seats = 0;
+            for (String event : sent) {
+                seats += event.split("\"seat\":", -1).length - 1;
+            }
+            return seats;
+        }
+    }
+}
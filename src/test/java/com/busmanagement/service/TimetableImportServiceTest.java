@@ -0,0 +1,146 @@
+package com.busmanagement.service;
+
+import com.busmanagement.model.Schedule;
+import com.busmanagement.repository.InMemoryBusRepository;
+import com.busmanagement.repository.InMemoryCityRepository;
+import com.busmanagement.repository.InMemoryRouteRepository;
+import com.busmanagement.repository.InMemoryScheduleRepository;
+import com.busmanagement.repository.InMemoryTicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimetableImportServiceTest {
+    private static final String CITIES = "city_id,name,state\n"
+            + "c1,Alpha,North\n"
+            + "c2,Beta,South\n"
+            + "c3,mumbai,\n";
+    private static final String ROUTES = "route_id,source_city_id,destination_city_id,distance,duration,fare\n"
+            + "r1,c1,c2,100,120,10.5\n"
+            + "r2,c1,c1,5,10,1\n"
+            + "r3,c2,c3,300,,20\n";
+    private static final String BUSES = "bus_id,registration_number,capacity,status\n"
+            + "b1,IMP-001,30,active\n"
+            + "b2,IMP-002,40,maintenance\n"
+            + "b3,IMP-003,lots,active\n";
+    private static final String TRIPS = "trip_id,route_id,bus_id,departure_time,arrival_time,driver_name\n"
+            + "t1,r1,b1,2030-05-01 08:00,,Ann\n"
+            + "t2,r1,b1,2030-05-01 09:00,,Ben\n"
+            + "t3,r3,b1,2030-05-01 11:00,,Cid\n"
+            + "t4,r1,b2,2030-05-02 08:00,,Dee\n"
+            + "t5,r9,b1,2030-05-03 08:00,,Eve\n"
+            + "t6,r1,b1,tomorrow,,Fay\n"
+            + "t7,r3,b1,2030-05-01T10:00,2030-05-01T12:00,Gus\n"
+            + "t8,r1,b1,2001-01-01 08:00,,Hal\n";
+
+    private InMemoryCityRepository cityRepository;
+    private InMemoryScheduleRepository scheduleRepository;
+    private TimetableImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        // Private repositories rather than the shared singletons
+        cityRepository = new InMemoryCityRepository() { };
+        scheduleRepository = new InMemoryScheduleRepository() { };
+        CityService cityService = new CityService(cityRepository);
+        RouteService routeService = new RouteService(new InMemoryRouteRepository() { });
+        BusService busService = new BusService(new InMemoryBusRepository() { });
+        SeatInventoryService seatInventoryService =
+                new SeatInventoryService(scheduleRepository, new InMemoryTicketRepository());
+        ScheduleService scheduleService = new ScheduleService(scheduleRepository, busService, routeService,
+                seatInventoryService, new ScheduleSearchCache(scheduleRepository, 16));
+        importService = new TimetableImportService(cityService, routeService, busService, scheduleService, 2);
+    }
+
+    @Test
+    void importsValidRowsAndReportsEveryRejectedOneByLine() throws IOException {
+        int citiesBefore = cityRepository.count();
+        int schedulesBefore = scheduleRepository.count();
+
+        ImportReport report = importService.importTimetable(csv(CITIES), csv(ROUTES), csv(BUSES), csv(TRIPS));
+
+        assertEquals(2, report.getCitiesCreated());
+        // Matched by name, ignoring case
+        assertEquals(1, report.getCitiesMatched());
+        assertEquals(citiesBefore + 2, cityRepository.count());
+        assertEquals(2, report.getRoutesCreated());
+        assertEquals(2, report.getBusesCreated());
+        assertEquals(8, report.getTripsRead());
+        assertEquals(2, report.getTripsImported());
+        assertEquals(schedulesBefore + 2, scheduleRepository.count());
+
+        assertEquals(List.of(
+                "buses:4 For input string: \"lots\"",
+                "routes:3 Route starts and ends in the same city",
+                "trips:3 Bus is already scheduled during this time period (earlier row in this feed)",
+                "trips:4 arrival_time is required when the route has no duration",
+                "trips:5 Cannot schedule a bus that is under maintenance",
+                "trips:6 Unknown route: r9",
+                "trips:7 Invalid date-time: tomorrow",
+                "trips:9 Cannot schedule a bus in the past"), describe(report));
+        assertEquals(8, report.getRejectedCount());
+
+        List<Schedule> imported = scheduleRepository.findByStatus(Schedule.ScheduleStatus.SCHEDULED).stream()
+                .filter(schedule -> schedule.getDepartureTime().getYear() == 2030)
+                .sorted(Comparator.comparing(Schedule::getDepartureTime))
+                .collect(Collectors.toList());
+        assertEquals(2, imported.size());
+        // No arrival_time: the route's duration is used
+        assertEquals(LocalDateTime.of(2030, 5, 1, 10, 0), imported.get(0).getArrivalTime());
+        assertEquals("Ann", imported.get(0).getDriverName());
+        assertEquals(30, imported.get(0).getAvailableSeats());
+        assertEquals("Gus", imported.get(1).getDriverName());
+    }
+
+    @Test
+    void importingTheSameSeasonAgainReusesEntitiesAndRejectsBookedBuses() throws IOException {
+        importService.importTimetable(csv(CITIES), csv(ROUTES), csv(BUSES), csv(TRIPS));
+        int schedulesAfterFirst = scheduleRepository.count();
+
+        ImportReport again = importService.importTimetable(csv(CITIES), csv(ROUTES), csv(BUSES), csv(TRIPS));
+
+        assertEquals(0, again.getCitiesCreated());
+        assertEquals(3, again.getCitiesMatched());
+        assertEquals(0, again.getRoutesCreated());
+        assertEquals(2, again.getRoutesMatched());
+        assertEquals(0, again.getBusesCreated());
+        assertEquals(0, again.getTripsImported());
+        assertEquals(schedulesAfterFirst, scheduleRepository.count());
+        assertTrue(describe(again).contains("trips:2 Bus is already scheduled during this time period"));
+        assertTrue(describe(again).contains("trips:8 Bus is already scheduled during this time period"));
+    }
+
+    @Test
+    void aFileWithoutARequiredColumnIsRefused() {
+        String trips = "trip_id,route_id,departure_time\nt1,r1,2030-05-01 08:00\n";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> importService.importTimetable(null, null, null, csv(trips)));
+        assertTrue(e.getMessage().contains("bus_id"), e.getMessage());
+    }
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "file:line reason" in file and line order
+    private static List<String> describe(ImportReport report) {
+        return report.getRejections().stream()
+                .sorted(Comparator.comparing(ImportReport.RejectedRow::getFile)
+                        .thenComparingLong(ImportReport.RejectedRow::getLine))
+                .map(row -> row.getFile() + ":" + row.getLine() + " " + row.getReason())
+                .collect(Collectors.toList());
+    }
+}